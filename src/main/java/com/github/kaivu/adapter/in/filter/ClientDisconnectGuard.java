@@ -0,0 +1,82 @@
+package com.github.kaivu.adapter.in.filter;
+
+import com.github.kaivu.config.metrics.AppMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.Cancellable;
+import io.vertx.core.http.HttpClosedException;
+import io.vertx.core.http.HttpServerRequest;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Ties the work of a request to its connection: when the client goes away before the response is written,
+ * the pipeline is cancelled so pending PG statements and MinIO reads are aborted instead of running for nobody,
+ * and the request ends with {@link HttpClosedException}.
+ */
+@Slf4j
+@ApplicationScoped
+public class ClientDisconnectGuard {
+
+    private final MeterRegistry meterRegistry;
+    private final AppMetrics appMetrics;
+
+    @Inject
+    public ClientDisconnectGuard(MeterRegistry meterRegistry, AppMetrics appMetrics) {
+        this.meterRegistry = meterRegistry;
+        this.appMetrics = appMetrics;
+    }
+
+    /**
+     * Run the work, cancelling it if the connection of the request closes before it completes.
+     *
+     * @param request  the HTTP request the work answers
+     * @param endpoint short endpoint name used as metric tag
+     * @param work     the pipeline producing the response
+     */
+    public <T> Uni<T> cancelOnDisconnect(HttpServerRequest request, String endpoint, Uni<T> work) {
+        return Uni.createFrom().emitter(emitter -> {
+            AtomicBoolean done = new AtomicBoolean();
+            Cancellable subscription = work.subscribe()
+                    .with(
+                            item -> {
+                                done.set(true);
+                                emitter.complete(item);
+                            },
+                            failure -> {
+                                done.set(true);
+                                emitter.fail(failure);
+                            });
+            emitter.onTermination(() -> {
+                if (emitter.isCancelled()) {
+                    subscription.cancel();
+                }
+            });
+            Runnable abandon = () -> {
+                if (done.compareAndSet(false, true)) {
+                    log.debug("Client disconnected from {} {}, cancelling", request.method(), request.path());
+                    subscription.cancel();
+                    recordAbandoned(endpoint);
+                    emitter.fail(new HttpClosedException("Client disconnected"));
+                }
+            };
+            request.response().closeHandler(ignored -> abandon.run());
+            if (request.response().closed()) {
+                abandon.run();
+            }
+        });
+    }
+
+    private void recordAbandoned(String endpoint) {
+        appMetrics.recordAbandonedRequest();
+        Counter.builder("http.requests.abandoned")
+                .description("Requests whose client disconnected before the response was ready")
+                .tag("endpoint", endpoint)
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,253 @@
+package com.github.kaivu.adapter.in.listener;
+
+import com.github.kaivu.adapter.out.persistence.SchemaObjectsInstaller;
+import com.github.kaivu.application.port.IEntityDeviceChangeRepository;
+import com.github.kaivu.application.usecase.CacheInvalidationUseCase;
+import com.github.kaivu.application.usecase.CacheInvalidationUseCase.MediaObject;
+import com.github.kaivu.config.ConfigsProvider;
+import com.github.kaivu.domain.change.ChangeToken;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.Cancellable;
+import io.vertx.core.json.JsonObject;
+import io.vertx.mutiny.core.Vertx;
+import io.vertx.mutiny.pgclient.pubsub.PgChannel;
+import io.vertx.mutiny.pgclient.pubsub.PgSubscriber;
+import io.vertx.pgclient.PgConnectOptions;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.interceptor.Interceptor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Listens on the channel notified by the row triggers of the cached tables and evicts the matching cache entries,
+ * so rows changed by migrations, SQL fixes or other services do not stay stale in Redis.
+ * Notifications sent while the connection is down are lost: after a reconnection the device changes logged since
+ * the last checkpoint are replayed from the change log, and media file entries, which have no log, are all evicted.
+ * The log is read from the primary: a checkpoint taken on a lagging replica would skip the changes it has not
+ * replayed yet.
+ * The outbox relay evicts the same device entries again once it relays the write: this listener is the prompt path,
+ * the relay the one that cannot lose a write. Evictions are plain deletes, repeating one is harmless.
+ */
+@Slf4j
+@ApplicationScoped
+public class CacheInvalidationListener {
+
+    private static final String URL_PREFIX = "vertx-reactive:";
+    private static final String TABLE_ENTITY_DEVICE = "entity_device";
+    private static final String TABLE_MEDIA_FILES = "media_files";
+    private static final long MAX_RECONNECT_DELAY_MILLIS = 30_000L;
+
+    private final Vertx vertx;
+    private final CacheInvalidationUseCase cacheInvalidationUseCase;
+    private final IEntityDeviceChangeRepository entityDeviceChangeRepository;
+    private final Counter notificationsCounter;
+    private final Counter reconnectionsCounter;
+
+    private final AtomicBoolean subscribedBefore = new AtomicBoolean();
+    // Replay start after a reconnection, trails the log by one checkpoint so notifications in flight are covered
+    private final AtomicReference<ChangeToken> checkpoint = new AtomicReference<>();
+    private final AtomicReference<ChangeToken> nextCheckpoint = new AtomicReference<>();
+
+    private PgSubscriber subscriber;
+    private Cancellable invalidations;
+
+    @Inject
+    public CacheInvalidationListener(
+            Vertx vertx,
+            CacheInvalidationUseCase cacheInvalidationUseCase,
+            IEntityDeviceChangeRepository entityDeviceChangeRepository,
+            MeterRegistry meterRegistry) {
+        this.vertx = vertx;
+        this.cacheInvalidationUseCase = cacheInvalidationUseCase;
+        this.entityDeviceChangeRepository = entityDeviceChangeRepository;
+        this.notificationsCounter = Counter.builder("cache.invalidation.notifications")
+                .description("Row change notifications received from the database")
+                .register(meterRegistry);
+        this.reconnectionsCounter = Counter.builder("cache.invalidation.reconnections")
+                .description("Listener reconnections followed by a catch-up sweep")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts once the triggers are installed.
+     */
+    void start(@Observes @Priority(Interceptor.Priority.APPLICATION + 10) StartupEvent event) {
+        if (!Boolean.TRUE.equals(ConfigsProvider.CACHE_LISTENER_ENABLED)) {
+            return;
+        }
+        subscriber = PgSubscriber.subscriber(vertx, connectOptions());
+        // Never gives up, the delay doubles up to a ceiling
+        subscriber.reconnectPolicy(retries -> Math.min(500L << Math.min(retries, 6), MAX_RECONNECT_DELAY_MILLIS));
+        subscriber.closeHandler(() -> log.info("Cache invalidation listener closed"));
+
+        PgChannel channel = subscriber.channel(SchemaObjectsInstaller.CACHE_INVALIDATION_CHANNEL);
+        channel.subscribeHandler(this::onSubscribed);
+        invalidations = Multi.createFrom()
+                .<String>emitter(emitter -> channel.handler(emitter::emit))
+                .group()
+                .intoLists()
+                .of(ConfigsProvider.CACHE_LISTENER_BATCH_SIZE, ConfigsProvider.CACHE_LISTENER_FLUSH_INTERVAL)
+                .onItem()
+                .transformToUniAndConcatenate(this::invalidate)
+                .subscribe()
+                .with(
+                        ignored -> {},
+                        failure -> log.error("Cache invalidation stream stopped", failure));
+
+        subscriber
+                .connect()
+                .onFailure()
+                .invoke(failure -> log.warn("Cannot listen for cache invalidations yet: {}", failure.getMessage()))
+                .onFailure()
+                .retry()
+                .withBackOff(Duration.ofSeconds(1), Duration.ofMillis(MAX_RECONNECT_DELAY_MILLIS))
+                .indefinitely()
+                .subscribe()
+                .with(ignored -> log.info(
+                        "Listening for cache invalidations on {}", SchemaObjectsInstaller.CACHE_INVALIDATION_CHANNEL));
+    }
+
+    void stop(@Observes ShutdownEvent event) {
+        if (invalidations != null) {
+            invalidations.cancel();
+        }
+        if (subscriber != null) {
+            subscriber.closeAndForget();
+        }
+    }
+
+    /**
+     * Advance the replay start while connected, to what the log held one checkpoint ago.
+     */
+    @Scheduled(
+            identity = "cache-invalidation-checkpoint",
+            every = "${cache-invalidation.listener.checkpoint-every:30s}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    Uni<Void> advanceCheckpoint() {
+        if (subscriber == null || subscriber.actualConnection() == null) {
+            return Uni.createFrom().voidItem();
+        }
+        return entityDeviceChangeRepository
+                .latestHead()
+                .invoke(head -> {
+                    ChangeToken previous = nextCheckpoint.getAndSet(head);
+                    if (previous != null) {
+                        checkpoint.set(previous);
+                    }
+                })
+                .onFailure()
+                .invoke(failure -> log.debug("Cannot checkpoint the device change log: {}", failure.getMessage()))
+                .onFailure()
+                .recoverWithNull()
+                .replaceWithVoid();
+    }
+
+    /**
+     * Called on the first subscription and again after each reconnection.
+     */
+    private void onSubscribed() {
+        if (!subscribedBefore.compareAndSet(false, true)) {
+            reconnectionsCounter.increment();
+            catchUp()
+                    .subscribe()
+                    .with(
+                            ignored -> log.info("Cache invalidation listener reconnected and caught up"),
+                            failure -> log.warn("Cache invalidation catch-up failed", failure));
+            return;
+        }
+        entityDeviceChangeRepository
+                .latestHead()
+                .subscribe()
+                .with(
+                        head -> checkpoint.compareAndSet(null, head != null ? head : ChangeToken.origin()),
+                        failure -> log.warn("Cannot read the device change log head: {}", failure.getMessage()));
+    }
+
+    private Uni<Void> catchUp() {
+        ChangeToken since = checkpoint.get();
+        int limit = ConfigsProvider.CACHE_LISTENER_CATCH_UP_LIMIT;
+        Uni<Void> devices = since == null
+                ? cacheInvalidationUseCase.invalidateAllDevices()
+                : entityDeviceChangeRepository.findLatestAfter(since, limit + 1).flatMap(changes -> {
+                    if (changes.size() > limit) {
+                        return cacheInvalidationUseCase.invalidateAllDevices();
+                    }
+                    Set<UUID> deviceIds = new LinkedHashSet<>();
+                    changes.forEach(change -> deviceIds.add(change.deviceId()));
+                    return cacheInvalidationUseCase.invalidateDevices(deviceIds);
+                });
+        return Uni.join()
+                .all(devices, cacheInvalidationUseCase.invalidateAllMediaFiles())
+                .andCollectFailures()
+                .replaceWithVoid();
+    }
+
+    private Uni<Void> invalidate(List<String> payloads) {
+        notificationsCounter.increment(payloads.size());
+        Set<UUID> deviceIds = new LinkedHashSet<>();
+        Set<MediaObject> mediaObjects = new LinkedHashSet<>();
+        for (String payload : payloads) {
+            try {
+                JsonObject notification = new JsonObject(payload);
+                switch (notification.getString("table", "")) {
+                    case TABLE_ENTITY_DEVICE -> deviceIds.add(UUID.fromString(notification.getString("id")));
+                    case TABLE_MEDIA_FILES -> mediaObjects.add(
+                            new MediaObject(notification.getString("bucket"), notification.getString("object")));
+                    default -> log.debug("Ignoring notification {}", payload);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Malformed cache invalidation notification: {}", payload);
+            }
+        }
+
+        return Uni.join()
+                .all(
+                        cacheInvalidationUseCase.invalidateDevices(deviceIds),
+                        cacheInvalidationUseCase.invalidateMediaFiles(mediaObjects))
+                .andCollectFailures()
+                .onFailure()
+                .retry()
+                .withBackOff(Duration.ofMillis(100))
+                .atMost(3)
+                .onFailure()
+                .invoke(failure -> log.warn("Dropped {} cache invalidations", payloads.size(), failure))
+                .onFailure()
+                .recoverWithNull()
+                .replaceWithVoid();
+    }
+
+    /**
+     * Same server and credentials as the primary pool. The query string (JDBC-style options) is dropped, the
+     * listener only runs LISTEN and would pass unknown options as startup parameters.
+     */
+    private static PgConnectOptions connectOptions() {
+        String url = ConfigsProvider.DATABASE_URL;
+        if (url.startsWith(URL_PREFIX)) {
+            url = url.substring(URL_PREFIX.length());
+        }
+        int query = url.indexOf('?');
+        if (query >= 0) {
+            url = url.substring(0, query);
+        }
+        return PgConnectOptions.fromUri(url)
+                .setUser(ConfigsProvider.DATABASE_USERNAME)
+                .setPassword(ConfigsProvider.DATABASE_PASSWORD)
+                .addProperty("application_name", ConfigsProvider.APP_NAME + "-cache-listener");
+    }
+}
@@ -1,17 +1,33 @@
 package com.github.kaivu.adapter.in.rest;
 
+import com.github.kaivu.adapter.in.filter.ClientDisconnectGuard;
+import com.github.kaivu.adapter.in.rest.dto.request.BatchEntityDevicesDTO;
 import com.github.kaivu.adapter.in.rest.dto.request.CreateEntityDTO;
 import com.github.kaivu.adapter.in.rest.dto.request.EntityDeviceFilters;
 import com.github.kaivu.adapter.in.rest.dto.request.UpdateEntityDTO;
+import com.github.kaivu.adapter.in.rest.dto.vm.BatchResultVM;
+import com.github.kaivu.adapter.in.rest.dto.vm.EntityDeviceChangesVM;
 import com.github.kaivu.adapter.in.rest.dto.vm.EntityDeviceDetailsVM;
+import com.github.kaivu.adapter.in.rest.dto.vm.EntityDeviceStatsVM;
 import com.github.kaivu.adapter.in.rest.dto.vm.EntityDeviceVM;
+import com.github.kaivu.adapter.in.rest.dto.vm.ImportJobVM;
 import com.github.kaivu.adapter.in.rest.dto.vm.PageResponse;
+import com.github.kaivu.application.usecase.EntityDeviceChangesUseCase;
+import com.github.kaivu.application.usecase.EntityDeviceImportUseCase;
+import com.github.kaivu.application.usecase.EntityDeviceStatsUseCase;
 import com.github.kaivu.application.usecase.EntityDeviceUseCase;
+import com.github.kaivu.common.utils.ETagUtil;
+import com.github.kaivu.config.ConfigsProvider;
 import com.github.kaivu.config.handler.ErrorResponse;
 import com.github.kaivu.domain.EntityDevice;
+import io.smallrye.common.annotation.Blocking;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
+import io.vertx.core.http.HttpServerRequest;
 import jakarta.inject.Inject;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.*;
 import lombok.extern.slf4j.Slf4j;
@@ -24,7 +40,10 @@ import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.eclipse.microprofile.openapi.annotations.security.SecurityRequirement;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 import org.jboss.resteasy.reactive.RestResponse;
+import org.jboss.resteasy.reactive.RestStreamElementType;
+import org.jboss.resteasy.reactive.common.util.RestMediaType;
 
+import java.io.InputStream;
 import java.net.URI;
 import java.util.UUID;
 
@@ -34,9 +53,23 @@ import java.util.UUID;
 @Tag(name = "Entity Devices", description = "Entity Devices Resource")
 public class EntityDevicesResource {
 
+    private static final String TEXT_CSV = "text/csv";
+
     @Inject
     EntityDeviceUseCase entityDeviceUseCase;
 
+    @Inject
+    EntityDeviceImportUseCase entityDeviceImportUseCase;
+
+    @Inject
+    EntityDeviceStatsUseCase entityDeviceStatsUseCase;
+
+    @Inject
+    EntityDeviceChangesUseCase entityDeviceChangesUseCase;
+
+    @Inject
+    ClientDisconnectGuard clientDisconnectGuard;
+
     @POST
     @Operation(operationId = "createEntityDevice", summary = "Create a new Entity Device")
     @APIResponse(responseCode = "201", content = @Content(mediaType = MediaType.APPLICATION_JSON))
@@ -62,6 +95,30 @@ public class EntityDevicesResource {
         });
     }
 
+    @POST
+    @Path("/batch")
+    @Operation(operationId = "batchEntityDevices", summary = "Create or upsert many Entity Devices at once")
+    @APIResponse(
+            responseCode = "200",
+            content =
+                    @Content(
+                            mediaType = MediaType.APPLICATION_JSON,
+                            schema = @Schema(implementation = BatchResultVM.class)))
+    @APIResponse(
+            responseCode = "500",
+            content =
+                    @Content(
+                            mediaType = MediaType.APPLICATION_JSON,
+                            schema = @Schema(implementation = ErrorResponse.class)))
+    public Uni<RestResponse<BatchResultVM>> batch(
+            @RequestBody(
+                            description = "Entity Devices to create, per-item failures are reported in the result",
+                            content = @Content(schema = @Schema(implementation = BatchEntityDevicesDTO.class)))
+                    @Valid
+                    BatchEntityDevicesDTO dto) {
+        return entityDeviceUseCase.batch(dto).map(RestResponse::ok);
+    }
+
     @PUT
     @Path("/{id}")
     @Operation(operationId = "updateEntityDevice", summary = "Update a Entity Device by ID")
@@ -71,6 +128,12 @@ public class EntityDevicesResource {
                     @Content(
                             mediaType = MediaType.APPLICATION_JSON,
                             schema = @Schema(implementation = EntityDeviceVM.class, type = SchemaType.OBJECT)))
+    @APIResponse(
+            responseCode = "412",
+            content =
+                    @Content(
+                            mediaType = MediaType.APPLICATION_JSON,
+                            schema = @Schema(implementation = ErrorResponse.class)))
     @APIResponse(
             responseCode = "500",
             content =
@@ -79,13 +142,81 @@ public class EntityDevicesResource {
                             schema = @Schema(implementation = ErrorResponse.class)))
     public Uni<RestResponse<EntityDeviceVM>> update(
             @PathParam("id") UUID id,
+            @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch,
             @RequestBody(
                             description = "Entity Device to update",
                             content = @Content(schema = @Schema(implementation = UpdateEntityDTO.class)))
                     @Valid
                     UpdateEntityDTO dto) {
 
-        return entityDeviceUseCase.update(id, dto).map(RestResponse::ok);
+        return entityDeviceUseCase
+                .update(id, dto, ETagUtil.parseIfMatch(ifMatch))
+                .map(device -> RestResponse.ResponseBuilder.ok(device)
+                        .tag(ETagUtil.toEntityTag(device.getVersion()))
+                        .build());
+    }
+
+    @PATCH
+    @Path("/{id}/metadata")
+    @Consumes(MediaType.APPLICATION_MERGE_PATCH_JSON)
+    @Operation(operationId = "mergePatchEntityDeviceMetadata", summary = "Apply a JSON Merge Patch to the metadata")
+    @APIResponse(
+            responseCode = "200",
+            content =
+                    @Content(
+                            mediaType = MediaType.APPLICATION_JSON,
+                            schema = @Schema(implementation = EntityDeviceDetailsVM.class)))
+    @APIResponse(
+            responseCode = "400",
+            content =
+                    @Content(
+                            mediaType = MediaType.APPLICATION_JSON,
+                            schema = @Schema(implementation = ErrorResponse.class)))
+    @APIResponse(
+            responseCode = "412",
+            content =
+                    @Content(
+                            mediaType = MediaType.APPLICATION_JSON,
+                            schema = @Schema(implementation = ErrorResponse.class)))
+    public Uni<RestResponse<EntityDeviceDetailsVM>> mergePatchMetadata(
+            @PathParam("id") UUID id, @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch, String patch) {
+        return entityDeviceUseCase
+                .mergePatchMetadata(id, patch, ETagUtil.parseIfMatch(ifMatch))
+                .map(device -> RestResponse.ResponseBuilder.ok(device)
+                        .tag(ETagUtil.toEntityTag(device.getVersion()))
+                        .build());
+    }
+
+    @PATCH
+    @Path("/{id}/metadata")
+    @Consumes(MediaType.APPLICATION_JSON_PATCH_JSON)
+    @Operation(operationId = "jsonPatchEntityDeviceMetadata", summary = "Apply a JSON Patch to the metadata")
+    @APIResponse(
+            responseCode = "200",
+            content =
+                    @Content(
+                            mediaType = MediaType.APPLICATION_JSON,
+                            schema = @Schema(implementation = EntityDeviceDetailsVM.class)))
+    @APIResponse(
+            responseCode = "409",
+            description = "A test operation failed or a path does not fit the document",
+            content =
+                    @Content(
+                            mediaType = MediaType.APPLICATION_JSON,
+                            schema = @Schema(implementation = ErrorResponse.class)))
+    @APIResponse(
+            responseCode = "412",
+            content =
+                    @Content(
+                            mediaType = MediaType.APPLICATION_JSON,
+                            schema = @Schema(implementation = ErrorResponse.class)))
+    public Uni<RestResponse<EntityDeviceDetailsVM>> jsonPatchMetadata(
+            @PathParam("id") UUID id, @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch, String patch) {
+        return entityDeviceUseCase
+                .jsonPatchMetadata(id, patch, ETagUtil.parseIfMatch(ifMatch))
+                .map(device -> RestResponse.ResponseBuilder.ok(device)
+                        .tag(ETagUtil.toEntityTag(device.getVersion()))
+                        .build());
     }
 
     @GET
@@ -97,14 +228,30 @@ public class EntityDevicesResource {
                     @Content(
                             mediaType = MediaType.APPLICATION_JSON,
                             schema = @Schema(implementation = EntityDeviceDetailsVM.class)))
+    @APIResponse(responseCode = "304")
     @APIResponse(
             responseCode = "500",
             content =
                     @Content(
                             mediaType = MediaType.APPLICATION_JSON,
                             schema = @Schema(implementation = ErrorResponse.class)))
-    public Uni<RestResponse<EntityDeviceDetailsVM>> details(@PathParam("id") UUID id) {
-        return entityDeviceUseCase.details(id).map(RestResponse::ok);
+    public Uni<RestResponse<EntityDeviceDetailsVM>> details(
+            @Context HttpServerRequest request,
+            @PathParam("id") UUID id,
+            @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) {
+        // The version travels with the cached details, revalidation never reaches the database
+        return clientDisconnectGuard
+                .cancelOnDisconnect(request, "entity-devices.details", entityDeviceUseCase.details(id))
+                .map(device -> {
+                    EntityTag tag = ETagUtil.toEntityTag(device.getVersion());
+                    if (ETagUtil.matchesNoneMatch(ifNoneMatch, device.getVersion())) {
+                        return RestResponse.ResponseBuilder.<EntityDeviceDetailsVM>create(
+                                        RestResponse.Status.NOT_MODIFIED)
+                                .tag(tag)
+                                .build();
+                    }
+                    return RestResponse.ResponseBuilder.ok(device).tag(tag).build();
+                });
     }
 
     @GET
@@ -121,8 +268,142 @@ public class EntityDevicesResource {
                     @Content(
                             mediaType = MediaType.APPLICATION_JSON,
                             schema = @Schema(implementation = ErrorResponse.class)))
-    public Uni<RestResponse<PageResponse<EntityDeviceVM>>> pageable(@BeanParam EntityDeviceFilters filters) {
-        return entityDeviceUseCase.pageable(filters).map(RestResponse::ok);
+    public Uni<RestResponse<PageResponse<EntityDeviceVM>>> pageable(
+            @Context HttpServerRequest request, @BeanParam EntityDeviceFilters filters) {
+        return clientDisconnectGuard
+                .cancelOnDisconnect(request, "entity-devices.pageable", entityDeviceUseCase.pageable(filters))
+                .map(RestResponse::ok);
+    }
+
+    @GET
+    @Path("/stats")
+    @Operation(
+            operationId = "entityDeviceStats",
+            summary = "Counts of Entity Devices by status and created per day, without counting the table")
+    @APIResponse(
+            responseCode = "200",
+            content =
+                    @Content(
+                            mediaType = MediaType.APPLICATION_JSON,
+                            schema = @Schema(implementation = EntityDeviceStatsVM.class)))
+    public Uni<RestResponse<EntityDeviceStatsVM>> stats(@QueryParam("days") @DefaultValue("30") int days) {
+        int histogramDays = Math.clamp(days, 1, ConfigsProvider.ENTITY_DEVICE_STATS_HISTOGRAM_DAYS);
+        return entityDeviceStatsUseCase.stats(histogramDays).map(RestResponse::ok);
+    }
+
+    /**
+     * Without {@code since} only the current token is returned: take it, run a full export, then poll from it.
+     */
+    @GET
+    @Path("/changes")
+    @Operation(operationId = "entityDeviceChanges", summary = "Entity Device changes since a token, deletes included")
+    @APIResponse(
+            responseCode = "200",
+            content =
+                    @Content(
+                            mediaType = MediaType.APPLICATION_JSON,
+                            schema = @Schema(implementation = EntityDeviceChangesVM.class)))
+    @APIResponse(
+            responseCode = "400",
+            content =
+                    @Content(
+                            mediaType = MediaType.APPLICATION_JSON,
+                            schema = @Schema(implementation = ErrorResponse.class)))
+    @APIResponse(
+            responseCode = "410",
+            description = "The token is older than the change log retention, a full resynchronization is required",
+            content =
+                    @Content(
+                            mediaType = MediaType.APPLICATION_JSON,
+                            schema = @Schema(implementation = ErrorResponse.class)))
+    public Uni<RestResponse<EntityDeviceChangesVM>> changes(
+            @Context HttpServerRequest request,
+            @QueryParam("since") String since,
+            @QueryParam("limit") @DefaultValue("500") int limit) {
+        int pageLimit = Math.clamp(limit, 1, ConfigsProvider.ENTITY_DEVICE_CHANGES_MAX_LIMIT);
+        return clientDisconnectGuard
+                .cancelOnDisconnect(
+                        request, "entity-devices.changes", entityDeviceChangesUseCase.changes(since, pageLimit))
+                .map(RestResponse::ok);
+    }
+
+    @GET
+    @Path("/export")
+    @Produces(RestMediaType.APPLICATION_NDJSON)
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    @Operation(operationId = "exportEntityDevices", summary = "Stream all Entity Devices as NDJSON")
+    @APIResponse(
+            responseCode = "200",
+            content =
+                    @Content(
+                            mediaType = RestMediaType.APPLICATION_NDJSON,
+                            schema = @Schema(implementation = EntityDeviceDetailsVM.class)))
+    public Multi<EntityDeviceDetailsVM> export(@BeanParam EntityDeviceFilters filters) {
+        return entityDeviceUseCase.export(filters);
+    }
+
+    @GET
+    @Path("/export")
+    @Produces(TEXT_CSV)
+    @Operation(operationId = "exportEntityDevicesCsv", summary = "Stream all Entity Devices as CSV")
+    @APIResponse(responseCode = "200", content = @Content(mediaType = TEXT_CSV))
+    public Multi<String> exportCsv(@BeanParam EntityDeviceFilters filters) {
+        return entityDeviceUseCase.exportCsv(filters);
+    }
+
+    /**
+     * Blocking so the body is consumed as a lazy stream instead of being buffered in memory.
+     * The job id is required so the client can poll and resume the job even if the upload fails.
+     */
+    @POST
+    @Path("/import")
+    @Blocking
+    @Consumes({RestMediaType.APPLICATION_NDJSON, TEXT_CSV})
+    @Operation(operationId = "importEntityDevices", summary = "Import Entity Devices from an NDJSON or CSV upload")
+    @APIResponse(
+            responseCode = "200",
+            content =
+                    @Content(
+                            mediaType = MediaType.APPLICATION_JSON,
+                            schema = @Schema(implementation = ImportJobVM.class)))
+    @APIResponse(
+            responseCode = "400",
+            content =
+                    @Content(
+                            mediaType = MediaType.APPLICATION_JSON,
+                            schema = @Schema(implementation = ErrorResponse.class)))
+    @APIResponse(
+            responseCode = "409",
+            content =
+                    @Content(
+                            mediaType = MediaType.APPLICATION_JSON,
+                            schema = @Schema(implementation = ErrorResponse.class)))
+    public Uni<RestResponse<ImportJobVM>> importDevices(
+            @HeaderParam(HttpHeaders.CONTENT_TYPE) String contentType,
+            @QueryParam("jobId") @NotBlank @Size(max = 100) String jobId,
+            @QueryParam("upsert") boolean upsert,
+            InputStream body) {
+        boolean csv = contentType != null && contentType.startsWith(TEXT_CSV);
+        return entityDeviceImportUseCase.importDevices(body, csv, jobId, upsert).map(RestResponse::ok);
+    }
+
+    @GET
+    @Path("/import/{jobId}")
+    @Operation(operationId = "getEntityDeviceImport", summary = "Get the progress of an import job")
+    @APIResponse(
+            responseCode = "200",
+            content =
+                    @Content(
+                            mediaType = MediaType.APPLICATION_JSON,
+                            schema = @Schema(implementation = ImportJobVM.class)))
+    @APIResponse(
+            responseCode = "404",
+            content =
+                    @Content(
+                            mediaType = MediaType.APPLICATION_JSON,
+                            schema = @Schema(implementation = ErrorResponse.class)))
+    public Uni<RestResponse<ImportJobVM>> importStatus(@PathParam("jobId") String jobId) {
+        return entityDeviceImportUseCase.status(jobId).map(RestResponse::ok);
     }
 
     @DELETE
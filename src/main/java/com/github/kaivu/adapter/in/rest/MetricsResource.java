@@ -109,7 +109,9 @@ public class MetricsResource {
                                                     "active", dbStats.activeConnections(),
                                                     "waiting", dbStats.waitingConnections(),
                                                     "events", dbStats.connectionEvents()),
+                                    "statements", Map.of("cancelled", dbStats.cancelledQueries()),
                                     "health", Map.of("healthy", dbStats.healthy())),
+                    "requests", Map.of("abandoned", simpleMetrics.getAbandonedRequests()),
                     "system", Map.of("timestamp", System.currentTimeMillis()));
         });
     }
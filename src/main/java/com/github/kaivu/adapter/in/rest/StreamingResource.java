@@ -1,13 +1,17 @@
 package com.github.kaivu.adapter.in.rest;
 
+import com.github.kaivu.adapter.in.filter.ClientDisconnectGuard;
 import com.github.kaivu.adapter.in.rest.dto.vm.RangeInfo;
 import com.github.kaivu.adapter.in.rest.dto.vm.StreamingResponse;
 import com.github.kaivu.application.usecase.MediaStreamingService;
+import com.github.kaivu.common.utils.ETagUtil;
 import com.github.kaivu.config.handler.ErrorResponse;
 import com.google.common.net.HttpHeaders;
 import io.micrometer.core.annotation.Counted;
 import io.micrometer.core.annotation.Timed;
-import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.Multi;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerRequest;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.inject.Inject;
 import jakarta.validation.constraints.NotBlank;
@@ -17,13 +21,22 @@ import jakarta.ws.rs.GET;
 import jakarta.ws.rs.HeaderParam;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.SecurityContext;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.microprofile.openapi.annotations.media.Content;
 import org.eclipse.microprofile.openapi.annotations.media.Schema;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+import org.jboss.resteasy.reactive.RestMulti;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * REST controller for Streaming using MinioManager with annotation profile selection.
@@ -35,16 +48,34 @@ import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 @RolesAllowed({"USER", "ADMIN"})
 public class StreamingResource {
 
+    private static final String MULTIPART_BYTERANGES = "multipart/byteranges";
+
     private final MediaStreamingService mediaStreamingService;
+    private final ClientDisconnectGuard clientDisconnectGuard;
 
     @Inject
-    public StreamingResource(MediaStreamingService mediaStreamingService) {
+    public StreamingResource(MediaStreamingService mediaStreamingService, ClientDisconnectGuard clientDisconnectGuard) {
         this.mediaStreamingService = mediaStreamingService;
+        this.clientDisconnectGuard = clientDisconnectGuard;
     }
 
+    /**
+     * The body is written chunk by chunk straight from pooled direct memory, the next chunk is only read from MinIO
+     * once the previous one is written, so a slow client slows the reads instead of buffering the object.
+     * With {@code redirect=true}, when the mode is enabled, the client is sent to a presigned MinIO URL instead and
+     * the bytes do not go through the application.
+     */
     @GET
     @Path("/{bucketName}/{objectName}")
-    @APIResponse(responseCode = "206", description = "Partial content")
+    @Produces(MediaType.APPLICATION_OCTET_STREAM)
+    @APIResponse(responseCode = "200", description = "Whole file, when no valid byte range is requested")
+    @APIResponse(
+            responseCode = "206",
+            description = "Partial content, as multipart/byteranges when several ranges are requested")
+    @APIResponse(
+            responseCode = "302",
+            description = "Redirect to a short-lived presigned URL of the file, when asked for and enabled")
+    @APIResponse(responseCode = "304", description = "Not modified, the client copy is still current")
     @APIResponse(responseCode = "404", description = "Media file not found")
     @APIResponse(responseCode = "416", description = "Range not satisfiable")
     @APIResponse(
@@ -55,28 +86,98 @@ public class StreamingResource {
                             schema = @Schema(implementation = ErrorResponse.class)))
     @Counted(value = "streaming_requests_total", description = "Total streaming requests")
     @Timed(value = "streaming_request_duration", description = "Streaming request duration")
-    public Uni<Response> streamVideo(
+    public Multi<Buffer> streamVideo(
+            @Context HttpServerRequest request,
+            @Context SecurityContext securityContext,
             @PathParam("bucketName") @Pattern(regexp = "^[a-z0-9][a-z0-9.-]*[a-z0-9]$") String bucketName,
             @PathParam("objectName") @NotBlank @Size(max = 255) String objectName,
-            @HeaderParam(HttpHeaders.RANGE) String rangeHeader) {
+            @HeaderParam(HttpHeaders.RANGE) String rangeHeader,
+            @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch,
+            @HeaderParam(HttpHeaders.IF_MODIFIED_SINCE) String ifModifiedSince,
+            @HeaderParam(HttpHeaders.IF_RANGE) String ifRange,
+            @QueryParam("redirect") boolean redirect) {
+
+        // A seek in the player drops the previous range request, stop the lookup; once streaming, the writer
+        // cancels the body itself and the MinIO stream is closed
+        return RestMulti.fromUniResponse(
+                clientDisconnectGuard.cancelOnDisconnect(
+                        request,
+                        "stream",
+                        mediaStreamingService.prepareStreamingResponse(
+                                bucketName,
+                                objectName,
+                                rangeHeader,
+                                ifNoneMatch,
+                                ifModifiedSince,
+                                ifRange,
+                                client(request, securityContext),
+                                redirect)),
+                StreamingResponse::body,
+                this::buildStreamingHeaders,
+                this::status);
+    }
+
+    /**
+     * Identifies the client session for read-ahead: several players of one user on one host share it, which only
+     * costs prefetches when they read the same object at once.
+     */
+    private String client(HttpServerRequest request, SecurityContext securityContext) {
+        if (request.remoteAddress() == null || securityContext.getUserPrincipal() == null) {
+            return null;
+        }
+        return securityContext.getUserPrincipal().getName() + "@" + request.remoteAddress().hostAddress();
+    }
 
-        return mediaStreamingService
-                .prepareStreamingResponse(bucketName, objectName, rangeHeader)
-                .map(this::buildStreamingResponse);
+    private int status(StreamingResponse streamingResponse) {
+        if (streamingResponse.location() != null) {
+            return Response.Status.FOUND.getStatusCode();
+        }
+        if (streamingResponse.notModified()) {
+            return Response.Status.NOT_MODIFIED.getStatusCode();
+        }
+        return streamingResponse.ranges().isEmpty()
+                ? Response.Status.OK.getStatusCode()
+                : Response.Status.PARTIAL_CONTENT.getStatusCode();
     }
 
-    private Response buildStreamingResponse(StreamingResponse streamingResponse) {
-        RangeInfo range = streamingResponse.rangeInfo();
+    /**
+     * The body is sent chunked, so no Content-Length: the length of a range is given by Content-Range, in the
+     * headers of each part for several ranges.
+     */
+    private Map<String, List<String>> buildStreamingHeaders(StreamingResponse streamingResponse) {
+        List<RangeInfo> ranges = streamingResponse.ranges();
         long fileSize = streamingResponse.fileSize();
 
-        return Response.status(Response.Status.PARTIAL_CONTENT)
-                .header("Content-Type", streamingResponse.contentType())
-                .header("Content-Range", String.format("bytes %d-%d/%d", range.startByte(), range.endByte(), fileSize))
-                .header("Accept-Ranges", "bytes")
-                .header("Content-Length", range.endByte() - range.startByte() + 1)
-                .header("Cache-Control", "public, max-age=86400")
-                .header("ETag", "\"" + streamingResponse.etag() + "\"")
-                .entity(streamingResponse.inputStream())
-                .build();
+        Map<String, List<String>> headers = new HashMap<>();
+        if (streamingResponse.location() != null) {
+            headers.put(HttpHeaders.LOCATION, List.of(streamingResponse.location()));
+            // The presigned URL expires, the redirect must not outlive it in a cache
+            headers.put(HttpHeaders.CACHE_CONTROL, List.of("no-store"));
+            return headers;
+        }
+        headers.put(HttpHeaders.ACCEPT_RANGES, List.of("bytes"));
+        headers.put(HttpHeaders.CACHE_CONTROL, List.of("public, max-age=86400"));
+        headers.put(HttpHeaders.ETAG, List.of("\"" + streamingResponse.etag() + "\""));
+        if (streamingResponse.lastModified() != null) {
+            headers.put(HttpHeaders.LAST_MODIFIED, List.of(ETagUtil.formatHttpDate(streamingResponse.lastModified())));
+        }
+        if (streamingResponse.notModified()) {
+            // A 304 carries the validators only, the client keeps its own copy
+            return headers;
+        }
+        if (ranges.size() > 1) {
+            headers.put(
+                    HttpHeaders.CONTENT_TYPE,
+                    List.of(MULTIPART_BYTERANGES + "; boundary=" + streamingResponse.boundary()));
+            return headers;
+        }
+        headers.put(HttpHeaders.CONTENT_TYPE, List.of(streamingResponse.contentType()));
+        if (ranges.size() == 1) {
+            RangeInfo range = ranges.getFirst();
+            headers.put(
+                    HttpHeaders.CONTENT_RANGE,
+                    List.of(String.format("bytes %d-%d/%d", range.startByte(), range.endByte(), fileSize)));
+        }
+        return headers;
     }
 }
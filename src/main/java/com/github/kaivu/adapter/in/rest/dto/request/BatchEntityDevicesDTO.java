@@ -0,0 +1,16 @@
+package com.github.kaivu.adapter.in.rest.dto.request;
+
+import com.github.kaivu.common.constant.AppConstant;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * Items are validated one by one so a single bad record is reported instead of rejecting the whole batch.
+ *
+ * @param items  devices to write, at most {@link AppConstant#BATCH_MAX_SIZE}
+ * @param upsert update the description of devices whose name already exists instead of reporting a conflict
+ */
+public record BatchEntityDevicesDTO(
+        @NotEmpty @Size(max = AppConstant.BATCH_MAX_SIZE) List<CreateEntityDTO> items, boolean upsert) {}
@@ -12,6 +12,8 @@ import org.hibernate.query.Order;
 
 import java.io.Serializable;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * Created by Khoa Vu.
@@ -69,4 +71,32 @@ public abstract class PageableRequest implements Serializable {
                 })
                 .toList();
     }
+
+    /**
+     * Build an ORDER BY clause for projections and native queries, where {@link Order} does not apply.
+     * Only whitelisted attributes are accepted since the clause is concatenated into the query.
+     *
+     * @param fallback the sort used when none is requested
+     * @param sortable the sortable attributes, mapped to their expression in the query
+     */
+    public String toOrderByClause(String fallback, Map<String, String> sortable) {
+        String sortStr = (sort == null || sort.isBlank()) ? fallback : sort;
+
+        return " ORDER BY "
+                + List.of(sortStr.split("[\s]*,[\s]*")).stream()
+                        .map(order -> {
+                            String[] parts = order.strip().split("\\s+");
+                            if (parts.length > 2 || !sortable.containsKey(parts[0])) {
+                                throw new ServiceException(ErrorsEnum.SYSTEM_INVALID_SORT_PARAMETER);
+                            }
+                            if (parts.length == 2
+                                    && !parts[1].equalsIgnoreCase("asc")
+                                    && !parts[1].equalsIgnoreCase("desc")) {
+                                throw new ServiceException(ErrorsEnum.SYSTEM_INVALID_SORT_ORDER);
+                            }
+                            String direction = parts.length == 2 && parts[1].equalsIgnoreCase("desc") ? "DESC" : "ASC";
+                            return sortable.get(parts[0]) + " " + direction;
+                        })
+                        .collect(Collectors.joining(", "));
+    }
 }
@@ -0,0 +1,16 @@
+package com.github.kaivu.adapter.in.rest.dto.vm;
+
+import java.util.UUID;
+
+/**
+ * Outcome of one item of a batch write, {@code index} is the position of the item in the request.
+ */
+public record BatchItemResultVM(int index, UUID id, String name, Long version, Status status, String message) {
+
+    public enum Status {
+        CREATED,
+        UPDATED,
+        CONFLICT,
+        INVALID,
+    }
+}
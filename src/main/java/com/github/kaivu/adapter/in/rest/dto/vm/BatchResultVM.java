@@ -0,0 +1,19 @@
+package com.github.kaivu.adapter.in.rest.dto.vm;
+
+import java.util.List;
+
+public record BatchResultVM(long created, long updated, long conflicted, long invalid, List<BatchItemResultVM> items) {
+
+    public static BatchResultVM of(List<BatchItemResultVM> items) {
+        return new BatchResultVM(
+                count(items, BatchItemResultVM.Status.CREATED),
+                count(items, BatchItemResultVM.Status.UPDATED),
+                count(items, BatchItemResultVM.Status.CONFLICT),
+                count(items, BatchItemResultVM.Status.INVALID),
+                items);
+    }
+
+    private static long count(List<BatchItemResultVM> items, BatchItemResultVM.Status status) {
+        return items.stream().filter(item -> item.status() == status).count();
+    }
+}
@@ -0,0 +1,5 @@
+package com.github.kaivu.adapter.in.rest.dto.vm;
+
+import java.time.LocalDate;
+
+public record DailyCountVM(LocalDate day, long count) {}
@@ -0,0 +1,14 @@
+package com.github.kaivu.adapter.in.rest.dto.vm;
+
+import com.github.kaivu.domain.enumeration.ChangeOperation;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * One device change of the feed. Applying the device as an upsert, or removing it on {@code DELETE}, is idempotent.
+ *
+ * @param device current state of the device, absent for a delete or when the device was deleted since
+ */
+public record EntityDeviceChangeVM(
+        UUID id, ChangeOperation operation, Long version, Instant changedAt, EntityDeviceDetailsVM device) {}
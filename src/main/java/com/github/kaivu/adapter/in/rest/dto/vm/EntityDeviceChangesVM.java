@@ -0,0 +1,11 @@
+package com.github.kaivu.adapter.in.rest.dto.vm;
+
+import java.util.List;
+
+/**
+ * A page of the device change feed.
+ *
+ * @param nextToken position after the last change, to pass as {@code since} on the next call
+ * @param hasMore   whether more changes are readable right away
+ */
+public record EntityDeviceChangesVM(List<EntityDeviceChangeVM> changes, String nextToken, boolean hasMore) {}
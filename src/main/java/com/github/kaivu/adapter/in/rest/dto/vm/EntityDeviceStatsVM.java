@@ -0,0 +1,14 @@
+package com.github.kaivu.adapter.in.rest.dto.vm;
+
+import com.github.kaivu.domain.enumeration.ActionStatus;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Device counts served from incrementally maintained counters, every status is present.
+ *
+ * @param total         devices present, soft deleted ones excluded
+ * @param createdPerDay devices created per day (UTC) and still present, oldest first, days without any omitted
+ */
+public record EntityDeviceStatsVM(long total, Map<ActionStatus, Long> byStatus, List<DailyCountVM> createdPerDay) {}
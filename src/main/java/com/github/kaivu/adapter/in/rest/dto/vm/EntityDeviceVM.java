@@ -25,4 +25,6 @@ public class EntityDeviceVM extends BaseAuditVM implements Serializable {
     private UUID id;
 
     private String name;
+
+    private Long version;
 }
@@ -0,0 +1,53 @@
+package com.github.kaivu.adapter.in.rest.dto.vm;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Progress of a device import. Every line up to {@code committedLines} is durably processed,
+ * so re-uploading the same file with the same job id resumes right after it.
+ */
+@Getter
+@Setter
+@ToString
+public class ImportJobVM implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private String jobId;
+
+    private Status status;
+
+    private long committedLines;
+
+    private long created;
+
+    private long updated;
+
+    private long conflicted;
+
+    private long invalid;
+
+    private boolean errorsTruncated;
+
+    @ToString.Exclude
+    private List<ImportLineErrorVM> errors = new ArrayList<>();
+
+    private Instant startedAt;
+
+    private Instant updatedAt;
+
+    public enum Status {
+        RUNNING,
+        COMPLETED,
+        FAILED,
+    }
+}
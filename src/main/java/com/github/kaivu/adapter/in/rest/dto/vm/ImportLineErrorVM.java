@@ -0,0 +1,6 @@
+package com.github.kaivu.adapter.in.rest.dto.vm;
+
+/**
+ * A rejected line of an import, {@code line} is the 1-based line number in the uploaded file.
+ */
+public record ImportLineErrorVM(long line, String name, String message) {}
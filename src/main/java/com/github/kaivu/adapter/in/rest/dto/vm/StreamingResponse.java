@@ -1,12 +1,38 @@
 package com.github.kaivu.adapter.in.rest.dto.vm;
 
-import java.io.InputStream;
+import io.smallrye.mutiny.Multi;
+import io.vertx.core.buffer.Buffer;
+
+import java.time.Instant;
+import java.util.List;
 
 /**
  * Created by Khoa Vu.
  * Mail: khoavd12@fpt.com
  * Date: 7/27/25
  * Time: 2:20 AM
+ *
+ * ranges is empty when the whole file is sent, boundary is only set for a multipart/byteranges body,
+ * notModified answers a conditional request whose copy is still current, with an empty body,
+ * location redirects the client to a presigned URL of the object, with an empty body
  */
 public record StreamingResponse(
-        RangeInfo rangeInfo, long fileSize, String contentType, String etag, InputStream inputStream) {}
+        List<RangeInfo> ranges,
+        long fileSize,
+        String contentType,
+        String etag,
+        Instant lastModified,
+        String boundary,
+        boolean notModified,
+        String location,
+        Multi<Buffer> body) {
+
+    public static StreamingResponse notModified(String etag, Instant lastModified) {
+        return new StreamingResponse(
+                List.of(), 0, null, etag, lastModified, null, true, null, Multi.createFrom().empty());
+    }
+
+    public static StreamingResponse redirect(String location) {
+        return new StreamingResponse(List.of(), 0, null, null, null, null, false, location, Multi.createFrom().empty());
+    }
+}
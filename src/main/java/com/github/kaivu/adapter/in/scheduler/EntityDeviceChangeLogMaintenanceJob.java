@@ -0,0 +1,52 @@
+package com.github.kaivu.adapter.in.scheduler;
+
+import com.github.kaivu.application.usecase.EntityDeviceChangesUseCase;
+import io.quarkus.scheduler.Scheduled;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps the device change log bounded: superseded changes are compacted and expired ones purged, so the log grows
+ * with the number of changed devices rather than the number of writes. Also samples how far the feed lags behind.
+ */
+@Slf4j
+@ApplicationScoped
+public class EntityDeviceChangeLogMaintenanceJob {
+
+    private final EntityDeviceChangesUseCase entityDeviceChangesUseCase;
+
+    @Inject
+    public EntityDeviceChangeLogMaintenanceJob(EntityDeviceChangesUseCase entityDeviceChangesUseCase) {
+        this.entityDeviceChangesUseCase = entityDeviceChangesUseCase;
+    }
+
+    @Scheduled(
+            identity = "entity-device-change-log-maintenance",
+            every = "${entity-device.changes.maintain-every:1h}",
+            delayed = "1m",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    Uni<Void> maintain() {
+        return entityDeviceChangesUseCase
+                .maintain()
+                .onFailure()
+                .invoke(failure -> log.warn("Entity device change log maintenance failed", failure))
+                .onFailure()
+                .recoverWithNull();
+    }
+
+    @Scheduled(
+            identity = "entity-device-change-log-lag",
+            every = "${entity-device.changes.lag-sample-every:30s}",
+            delayed = "30s",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    Uni<Void> refreshLag() {
+        return entityDeviceChangesUseCase
+                .refreshLag()
+                .onFailure()
+                .invoke(failure -> log.warn("Entity device change log lag sampling failed", failure))
+                .onFailure()
+                .recoverWithNull();
+    }
+}
@@ -0,0 +1,37 @@
+package com.github.kaivu.adapter.in.scheduler;
+
+import com.github.kaivu.application.usecase.EntityDeviceOutboxUseCase;
+import io.quarkus.scheduler.Scheduled;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Drains the device outbox. Several instances may run it at once, each claims different events.
+ */
+@Slf4j
+@ApplicationScoped
+public class EntityDeviceOutboxRelayJob {
+
+    private final EntityDeviceOutboxUseCase entityDeviceOutboxUseCase;
+
+    @Inject
+    public EntityDeviceOutboxRelayJob(EntityDeviceOutboxUseCase entityDeviceOutboxUseCase) {
+        this.entityDeviceOutboxUseCase = entityDeviceOutboxUseCase;
+    }
+
+    @Scheduled(
+            identity = "entity-device-outbox-relay",
+            every = "${entity-device.outbox.relay-every:1s}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    Uni<Void> relay() {
+        return entityDeviceOutboxUseCase
+                .relay()
+                .onFailure()
+                .invoke(failure -> log.warn("Entity device outbox relay failed", failure))
+                .onFailure()
+                .recoverWithNull()
+                .replaceWithVoid();
+    }
+}
@@ -0,0 +1,38 @@
+package com.github.kaivu.adapter.in.scheduler;
+
+import com.github.kaivu.application.usecase.EntityDeviceStatsUseCase;
+import io.quarkus.scheduler.Scheduled;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Rebuilds the device statistics counters from the table, correcting the drift left by crashes between a write and
+ * its counter update, or by rows changed outside the service.
+ */
+@Slf4j
+@ApplicationScoped
+public class EntityDeviceStatsReconcileJob {
+
+    private final EntityDeviceStatsUseCase entityDeviceStatsUseCase;
+
+    @Inject
+    public EntityDeviceStatsReconcileJob(EntityDeviceStatsUseCase entityDeviceStatsUseCase) {
+        this.entityDeviceStatsUseCase = entityDeviceStatsUseCase;
+    }
+
+    @Scheduled(
+            identity = "entity-device-stats-reconcile",
+            every = "${entity-device.stats.reconcile-every:15m}",
+            delayed = "30s",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    Uni<Void> reconcile() {
+        return entityDeviceStatsUseCase
+                .reconcile()
+                .onFailure()
+                .invoke(failure -> log.warn("Entity device statistics reconciliation failed", failure))
+                .onFailure()
+                .recoverWithNull();
+    }
+}
@@ -0,0 +1,256 @@
+package com.github.kaivu.adapter.out.cache;
+
+import com.github.kaivu.adapter.out.cache.MediaSegmentCache.SegmentKey;
+import com.github.kaivu.config.ConfigsProvider;
+import com.github.kaivu.config.minio.MinioManager;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.Cancellable;
+import io.vertx.core.buffer.Buffer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight reads of aligned chunks from MinIO: concurrent requests for the same chunk of the same object
+ * version share one fetch instead of each opening its own. The chunk is loaded into pooled direct memory, reference
+ * counted by the requests that joined it; a request arriving while the chunk is still held joins as well, and the
+ * memory is released when the last one is done. A failed fetch is forgotten at once, the next request tries again.
+ * The chunks held share a budget of {@code media.segment-cache.flight-max-memory} bytes, a fetch that would exceed it
+ * is not started and the caller reads on its own.
+ * This is NOT a CDI bean - the instance is owned by MediaSegmentCache
+ */
+@Slf4j
+final class ChunkFlights {
+
+    private final MinioManager minioManager;
+    private final long maxMemory = ConfigsProvider.MEDIA_SEGMENT_CACHE_FLIGHT_MAX_MEMORY;
+    private final Counter fetchesCounter;
+    private final Counter joinsCounter;
+    private final Counter bypassedCounter;
+
+    // Guarded by itself, a flight stays while it has references
+    private final Map<SegmentKey, Flight> flights = new HashMap<>();
+    // Guarded by flights, bytes of the flights not released yet
+    private long heldBytes;
+
+    ChunkFlights(MinioManager minioManager, MeterRegistry meterRegistry) {
+        this.minioManager = minioManager;
+        this.fetchesCounter = Counter.builder("media.origin.chunk_requests")
+                .description("Requests for a chunk from MinIO, by whether they started a fetch or joined one")
+                .tag("result", "fetched")
+                .register(meterRegistry);
+        this.joinsCounter = Counter.builder("media.origin.chunk_requests")
+                .description("Requests for a chunk from MinIO, by whether they started a fetch or joined one")
+                .tag("result", "coalesced")
+                .register(meterRegistry);
+        this.bypassedCounter = Counter.builder("media.origin.chunk_requests")
+                .description("Requests for a chunk from MinIO, by whether they started a fetch or joined one")
+                .tag("result", "bypassed")
+                .register(meterRegistry);
+        Gauge.builder("media.origin.chunks_held", this, ChunkFlights::size)
+                .description("Chunks fetched from MinIO or being fetched, held for the requests sharing them")
+                .register(meterRegistry);
+        Gauge.builder("media.origin.chunks_held_bytes", this, ChunkFlights::heldBytes)
+                .description("Pooled direct memory held by the chunks fetched from MinIO")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Run work on the bytes of a chunk, fetched once for every concurrent caller. The bytes are only valid until the
+     * stream returned by the work terminates.
+     *
+     * @param key         the chunk
+     * @param bucketName  the bucket name
+     * @param objectName  the object name
+     * @param chunkStart  the offset of the chunk in the object
+     * @param chunkLength the length of the chunk, shorter for the last one
+     * @param work        reads the loaded chunk, the buffer must not be released nor kept
+     * @param start       whether to start a fetch when none is in flight, joining one is always preferred
+     * @param otherwise   the stream returned instead when no fetch is joined nor started, within the budget
+     */
+    <T> Multi<T> withChunk(
+            SegmentKey key,
+            String bucketName,
+            String objectName,
+            long chunkStart,
+            int chunkLength,
+            Function<ByteBuf, Multi<T>> work,
+            boolean start,
+            Supplier<Multi<T>> otherwise) {
+        return Multi.createFrom().deferred(() -> {
+            Flight flight;
+            boolean leader;
+            synchronized (flights) {
+                flight = flights.get(key);
+                leader = flight == null;
+                if (leader) {
+                    if (!start || heldBytes + chunkLength > maxMemory) {
+                        flight = null;
+                    } else {
+                        flight = new Flight(key, chunkLength);
+                        flights.put(key, flight);
+                        heldBytes += chunkLength;
+                    }
+                }
+                if (flight != null) {
+                    flight.references++;
+                }
+            }
+            if (flight == null) {
+                bypassedCounter.increment();
+                return otherwise.get();
+            }
+            if (leader) {
+                fetchesCounter.increment();
+                flight.load(bucketName, objectName, chunkStart);
+            } else {
+                joinsCounter.increment();
+            }
+
+            Flight joined = flight;
+            // A stage that cannot be cancelled, a request going away must not fail the others
+            return Uni.createFrom()
+                    .completionStage(joined.loaded.minimalCompletionStage())
+                    .onItem()
+                    .transformToMulti(ignored -> work.apply(joined.buffer))
+                    .onTermination()
+                    .invoke(() -> leave(joined));
+        });
+    }
+
+    /**
+     * A single buffer, completed only once it is written: the sentinel is asked for after the write, so the owner
+     * of the buffer can release it on termination.
+     */
+    static Multi<Buffer> once(Buffer buffer) {
+        AtomicBoolean sent = new AtomicBoolean();
+        return Multi.createBy()
+                .repeating()
+                .supplier(() -> sent.getAndSet(true) ? Buffer.buffer() : buffer)
+                .until(chunk -> chunk.length() == 0);
+    }
+
+    private void leave(Flight flight) {
+        boolean last;
+        synchronized (flights) {
+            last = --flight.references == 0;
+            if (last) {
+                flights.remove(flight.key, flight);
+                heldBytes -= flight.length;
+            }
+        }
+        if (last) {
+            flight.release();
+        }
+    }
+
+    private int size() {
+        synchronized (flights) {
+            return flights.size();
+        }
+    }
+
+    private long heldBytes() {
+        synchronized (flights) {
+            return heldBytes;
+        }
+    }
+
+    /**
+     * One fetch of a chunk. References are guarded by the flights map, the buffer by this.
+     */
+    private final class Flight {
+
+        private final SegmentKey key;
+        private final int length;
+        private final ByteBuf buffer;
+        private final CompletableFuture<Void> loaded = new CompletableFuture<>();
+        private int references;
+        private Cancellable loading;
+        private boolean released;
+
+        Flight(SegmentKey key, int chunkLength) {
+            this.key = key;
+            this.length = chunkLength;
+            this.buffer = PooledByteBufAllocator.DEFAULT.directBuffer(chunkLength, chunkLength);
+        }
+
+        void load(String bucketName, String objectName, long chunkStart) {
+            Cancellable subscription = minioManager
+                    .getObjectChunks(
+                            bucketName,
+                            objectName,
+                            chunkStart,
+                            length,
+                            ConfigsProvider.MEDIA_STREAM_CHUNK_SIZE)
+                    .subscribe()
+                    .with(this::append, this::fail, this::complete);
+            boolean cancel;
+            synchronized (this) {
+                loading = subscription;
+                cancel = released;
+            }
+            if (cancel) {
+                subscription.cancel();
+            }
+        }
+
+        synchronized void append(Buffer chunk) {
+            if (!released) {
+                buffer.writeBytes(chunk.getByteBuf());
+            }
+        }
+
+        void complete() {
+            int written;
+            synchronized (this) {
+                if (released) {
+                    return;
+                }
+                written = buffer.writerIndex();
+            }
+            if (written != length) {
+                fail(new IOException("Chunk truncated: " + written + " of " + length + " bytes"));
+                return;
+            }
+            loaded.complete(null);
+        }
+
+        void fail(Throwable failure) {
+            log.debug("Cannot fetch chunk {}: {}", key.index(), failure.getMessage());
+            synchronized (flights) {
+                // Requests already joined fail with it, the next ones start a new fetch
+                flights.remove(key, this);
+            }
+            loaded.completeExceptionally(failure);
+        }
+
+        void release() {
+            Cancellable toCancel;
+            synchronized (this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+                toCancel = loading;
+                buffer.release();
+            }
+            if (toCancel != null) {
+                toCancel.cancel();
+            }
+        }
+    }
+}
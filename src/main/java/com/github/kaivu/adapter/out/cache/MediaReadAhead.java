@@ -0,0 +1,362 @@
+package com.github.kaivu.adapter.out.cache;
+
+import com.github.kaivu.adapter.in.rest.dto.vm.RangeInfo;
+import com.github.kaivu.config.ConfigsProvider;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.scheduler.Scheduled;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.Cancellable;
+import io.vertx.core.buffer.Buffer;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-ahead for players reading an object range after range. The ranges of each client session are tracked per
+ * object; once a range starts where the previous one ended, the bytes that follow it are read into pooled direct
+ * memory while the current range is written, so the next request does not wait for MinIO. A request only partly
+ * covered by the prefetch gets the rest from the segment cache.
+ * Memory is bounded per node by {@code media.read-ahead.max-memory}: a prefetch that does not fit is skipped, and
+ * prefetches not claimed within {@code idle-timeout} are dropped with their session.
+ */
+@Slf4j
+@ApplicationScoped
+public class MediaReadAhead {
+
+    private final MediaSegmentCache mediaSegmentCache;
+    private final Counter hitsCounter;
+    private final Counter wastedCounter;
+    private final Counter skippedCounter;
+
+    private final boolean enabled = Boolean.TRUE.equals(ConfigsProvider.MEDIA_READ_AHEAD_ENABLED);
+    private final long readAheadSize = ConfigsProvider.MEDIA_READ_AHEAD_SIZE;
+    private final long maxMemory = ConfigsProvider.MEDIA_READ_AHEAD_MAX_MEMORY;
+    private final long idleTimeoutNanos = ConfigsProvider.MEDIA_READ_AHEAD_IDLE_TIMEOUT.toNanos();
+    private final AtomicLong reserved = new AtomicLong();
+
+    // Guarded by itself, access ordered so the least recently active session is the eldest
+    private final LinkedHashMap<SessionKey, Session> sessions = new LinkedHashMap<>(256, 0.75f, true);
+
+    /**
+     * One object read by one client.
+     *
+     * @param client the user and address of the client
+     */
+    record SessionKey(String client, String bucketName, String objectName) {}
+
+    /**
+     * Reads of a session, guarded by the sessions map.
+     */
+    private static final class Session {
+
+        private final String etag;
+        private long nextStart = -1;
+        private int sequential;
+        private long lastAccess;
+        private Prefetch prefetch;
+
+        Session(String etag) {
+            this.etag = etag;
+        }
+    }
+
+    @Inject
+    public MediaReadAhead(MediaSegmentCache mediaSegmentCache, MeterRegistry meterRegistry) {
+        this.mediaSegmentCache = mediaSegmentCache;
+        this.hitsCounter = Counter.builder("media.read_ahead.prefetches")
+                .description("Prefetched ranges, by whether the next request of the session used them")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.wastedCounter = Counter.builder("media.read_ahead.prefetches")
+                .description("Prefetched ranges, by whether the next request of the session used them")
+                .tag("result", "wasted")
+                .register(meterRegistry);
+        this.skippedCounter = Counter.builder("media.read_ahead.skipped")
+                .description("Prefetches not started because the read-ahead memory of the node was in use")
+                .register(meterRegistry);
+        Gauge.builder("media.read_ahead.memory", reserved, AtomicLong::get)
+                .description("Pooled direct memory held by prefetched ranges")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("media.read_ahead.sessions", this, MediaReadAhead::sessionCount)
+                .description("Client sessions tracked for sequential access")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Stream a byte range of an object for a client session, from the prefetch of the session when it starts there.
+     * The session is only looked up on subscription, a response never written claims nothing.
+     *
+     * @param client     the user and address of the client, null to read without read-ahead
+     * @param bucketName the bucket name
+     * @param objectName the object name
+     * @param etag       the etag of the version served, a new version starts a new session
+     * @param fileSize   the size of the object
+     * @param range      the bytes to stream, within the object
+     */
+    public Multi<Buffer> read(
+            String client, String bucketName, String objectName, String etag, long fileSize, RangeInfo range) {
+        if (!enabled || client == null || etag == null) {
+            return mediaSegmentCache.read(bucketName, objectName, etag, fileSize, range);
+        }
+        return Multi.createFrom().deferred(() -> open(client, bucketName, objectName, etag, fileSize, range));
+    }
+
+    private Multi<Buffer> open(
+            String client, String bucketName, String objectName, String etag, long fileSize, RangeInfo range) {
+        SessionKey key = new SessionKey(client, bucketName, objectName);
+        List<Prefetch> dropped = new ArrayList<>();
+        Prefetch claimed = null;
+        Prefetch started = null;
+        synchronized (sessions) {
+            Session session = sessions.get(key);
+            if (session == null || !etag.equals(session.etag)) {
+                if (session != null && session.prefetch != null) {
+                    dropped.add(session.prefetch);
+                }
+                session = new Session(etag);
+                sessions.put(key, session);
+            }
+            if (session.prefetch != null) {
+                if (session.prefetch.covers(range.startByte())) {
+                    claimed = session.prefetch;
+                } else {
+                    // The player sought elsewhere
+                    dropped.add(session.prefetch);
+                }
+                session.prefetch = null;
+            }
+
+            boolean sequential = claimed != null || range.startByte() == session.nextStart;
+            session.sequential = sequential ? session.sequential + 1 : 0;
+            session.nextStart = range.endByte() + 1;
+            session.lastAccess = System.nanoTime();
+            if (session.sequential > 0 && session.nextStart < fileSize) {
+                long end = Math.min(fileSize, session.nextStart + readAheadSize) - 1;
+                if (reserve(end - session.nextStart + 1)) {
+                    started = new Prefetch(session.nextStart, end);
+                    session.prefetch = started;
+                } else {
+                    skippedCounter.increment();
+                }
+            }
+            evictOverLimit(dropped);
+        }
+
+        dropped.forEach(Prefetch::release);
+        wastedCounter.increment(dropped.size());
+        if (started != null) {
+            load(started, bucketName, objectName, etag, fileSize);
+        }
+        if (claimed == null) {
+            return mediaSegmentCache.read(bucketName, objectName, etag, fileSize, range);
+        }
+        hitsCounter.increment();
+        return fromPrefetch(claimed, bucketName, objectName, etag, fileSize, range);
+    }
+
+    /**
+     * Drop the sessions idle for longer than the idle timeout, with their prefetch.
+     */
+    @Scheduled(
+            identity = "media-read-ahead-sweep",
+            every = "${media.read-ahead.sweep-every:10s}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void sweep() {
+        List<Prefetch> dropped = new ArrayList<>();
+        long now = System.nanoTime();
+        synchronized (sessions) {
+            Iterator<Session> eldest = sessions.values().iterator();
+            while (eldest.hasNext()) {
+                Session session = eldest.next();
+                if (now - session.lastAccess < idleTimeoutNanos) {
+                    // Access ordered, the others are more recent
+                    break;
+                }
+                if (session.prefetch != null) {
+                    dropped.add(session.prefetch);
+                }
+                eldest.remove();
+            }
+        }
+        dropped.forEach(Prefetch::release);
+        wastedCounter.increment(dropped.size());
+    }
+
+    void stop(@Observes ShutdownEvent event) {
+        List<Prefetch> dropped = new ArrayList<>();
+        synchronized (sessions) {
+            sessions.values().stream()
+                    .filter(session -> session.prefetch != null)
+                    .forEach(session -> dropped.add(session.prefetch));
+            sessions.clear();
+        }
+        dropped.forEach(Prefetch::release);
+    }
+
+    private void load(Prefetch prefetch, String bucketName, String objectName, String etag, long fileSize) {
+        Cancellable loading = mediaSegmentCache
+                .read(bucketName, objectName, etag, fileSize, new RangeInfo(prefetch.start, prefetch.end))
+                .subscribe()
+                .with(prefetch::append, prefetch::fail, prefetch::complete);
+        prefetch.loading(loading);
+    }
+
+    /**
+     * Serve a range from a claimed prefetch, waiting for it if still loading. The range falls back to the segment
+     * cache if the prefetch failed, and continues there past the end of the prefetch.
+     */
+    private Multi<Buffer> fromPrefetch(
+            Prefetch prefetch, String bucketName, String objectName, String etag, long fileSize, RangeInfo range) {
+        long end = Math.min(range.endByte(), prefetch.end);
+        return Uni.createFrom()
+                .completionStage(prefetch.loaded.minimalCompletionStage())
+                .onItem()
+                .transformToMulti(loaded -> {
+                    if (!loaded) {
+                        return mediaSegmentCache.read(bucketName, objectName, etag, fileSize, range);
+                    }
+                    Multi<Buffer> prefetched = ChunkFlights.once(prefetch.slice(range.startByte(), end));
+                    if (end == range.endByte()) {
+                        return prefetched;
+                    }
+                    return Multi.createBy()
+                            .concatenating()
+                            .streams(
+                                    prefetched,
+                                    mediaSegmentCache.read(
+                                            bucketName,
+                                            objectName,
+                                            etag,
+                                            fileSize,
+                                            new RangeInfo(end + 1, range.endByte())));
+                })
+                .onTermination()
+                .invoke(prefetch::release);
+    }
+
+    /**
+     * Only called under the sessions lock.
+     */
+    private void evictOverLimit(List<Prefetch> dropped) {
+        Iterator<Session> eldest = sessions.values().iterator();
+        while (sessions.size() > ConfigsProvider.MEDIA_READ_AHEAD_MAX_SESSIONS && eldest.hasNext()) {
+            Session session = eldest.next();
+            if (session.prefetch != null) {
+                dropped.add(session.prefetch);
+            }
+            eldest.remove();
+        }
+    }
+
+    private boolean reserve(long bytes) {
+        long current;
+        do {
+            current = reserved.get();
+            if (current + bytes > maxMemory) {
+                return false;
+            }
+        } while (!reserved.compareAndSet(current, current + bytes));
+        return true;
+    }
+
+    private int sessionCount() {
+        synchronized (sessions) {
+            return sessions.size();
+        }
+    }
+
+    /**
+     * The bytes following the last range of a session, in pooled direct memory reserved from the node budget.
+     * Written by the loading stream, guarded by this; released once, by the request serving it or when dropped.
+     */
+    private final class Prefetch {
+
+        private final long start;
+        private final long end;
+        private final ByteBuf buffer;
+        // True once every byte is loaded, false if the load failed or was abandoned
+        private final CompletableFuture<Boolean> loaded = new CompletableFuture<>();
+        private Cancellable loading;
+        private boolean released;
+
+        Prefetch(long start, long end) {
+            this.start = start;
+            this.end = end;
+            int length = (int) (end - start + 1);
+            this.buffer = PooledByteBufAllocator.DEFAULT.directBuffer(length, length);
+        }
+
+        boolean covers(long offset) {
+            return offset >= start && offset <= end;
+        }
+
+        synchronized void append(Buffer chunk) {
+            if (!released) {
+                buffer.writeBytes(chunk.getByteBuf());
+            }
+        }
+
+        void complete() {
+            boolean full;
+            synchronized (this) {
+                full = !released && buffer.writerIndex() == buffer.capacity();
+            }
+            loaded.complete(full);
+        }
+
+        void fail(Throwable failure) {
+            log.debug("Read-ahead of bytes {}-{} failed: {}", start, end, failure.getMessage());
+            loaded.complete(false);
+        }
+
+        void loading(Cancellable loading) {
+            boolean cancel;
+            synchronized (this) {
+                this.loading = loading;
+                cancel = released;
+            }
+            if (cancel) {
+                loading.cancel();
+            }
+        }
+
+        /**
+         * Only read once loaded, the slice lives until the prefetch is released.
+         */
+        Buffer slice(long from, long to) {
+            return Buffer.buffer(buffer.slice((int) (from - start), (int) (to - from + 1)));
+        }
+
+        void release() {
+            Cancellable toCancel;
+            synchronized (this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+                toCancel = loading;
+                buffer.release();
+            }
+            reserved.addAndGet(-(end - start + 1));
+            loaded.complete(false);
+            if (toCancel != null) {
+                toCancel.cancel();
+            }
+        }
+    }
+}
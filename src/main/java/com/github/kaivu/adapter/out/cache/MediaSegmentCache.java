@@ -0,0 +1,416 @@
+package com.github.kaivu.adapter.out.cache;
+
+import com.github.kaivu.adapter.in.rest.dto.vm.RangeInfo;
+import com.github.kaivu.config.ConfigsProvider;
+import com.github.kaivu.config.minio.MinioManager;
+import com.github.kaivu.config.minio.MinioProfile;
+import com.github.kaivu.config.minio.MinioProfileType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import io.vertx.core.buffer.Buffer;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Node-local cache of media bytes on disk, so popular objects are not fetched from MinIO again and again.
+ * Objects are split in aligned chunks of {@code media.segment-cache.chunk-size} bytes, each stored in its own file
+ * named after the bucket, object, etag and chunk index: a new version of an object (new etag) never hits stale
+ * chunks. A range is served by stitching memory-mapped cached chunks with MinIO reads for the chunks missing; the
+ * reads of a missing chunk are shared by the requests wanting it at the same time, see {@link ChunkFlights}. A part
+ * far smaller than its chunk is read alone unless the chunk is already in flight, so a few bytes never cost a chunk
+ * fetch, and so is every range while the cache is disabled.
+ * A chunk is only stored once it missed {@code admit-after} times, so one-off reads do not flush popular chunks.
+ * Eviction is LRU by bytes. The index is rebuilt from the directory on startup, ordered by file time since access
+ * order is not persisted.
+ */
+@Slf4j
+@ApplicationScoped
+public class MediaSegmentCache {
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int MAX_TRACKED_MISSES = 10_000;
+
+    private final MinioManager minioManager;
+    private final ChunkFlights chunkFlights;
+    private final Counter hitsCounter;
+    private final Counter missesCounter;
+    private final Counter fillsCounter;
+    private final Counter evictionsCounter;
+
+    private final boolean enabled = Boolean.TRUE.equals(ConfigsProvider.MEDIA_SEGMENT_CACHE_ENABLED);
+    private final Path directory = Path.of(ConfigsProvider.MEDIA_SEGMENT_CACHE_DIRECTORY);
+    private final long chunkSize = ConfigsProvider.MEDIA_SEGMENT_CACHE_CHUNK_SIZE;
+    // Parts shorter than this are read alone rather than through a chunk fetch
+    private final long directReadBelow = chunkSize / 4;
+    private final long maxSize = ConfigsProvider.MEDIA_SEGMENT_CACHE_MAX_SIZE;
+    // Set once the directory is usable
+    private volatile boolean ready;
+
+    // Guarded by segments, access ordered so the eldest entry is the least recently used
+    private final LinkedHashMap<SegmentKey, Long> segments = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+
+    // Guarded by itself, misses of chunks not admitted yet
+    private final Map<SegmentKey, Integer> misses = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<SegmentKey, Integer> eldest) {
+            return size() > MAX_TRACKED_MISSES;
+        }
+    };
+    private final Set<SegmentKey> filling = ConcurrentHashMap.newKeySet();
+
+    /**
+     * A chunk of one version of an object.
+     *
+     * @param objectId digest of the bucket, object, etag and chunk size, safe to use in file names
+     * @param index    position of the chunk in the object, in chunk sizes
+     */
+    record SegmentKey(String objectId, long index) {
+
+        String fileName() {
+            return objectId + "." + index + SEGMENT_SUFFIX;
+        }
+
+        static SegmentKey fromFileName(String fileName) {
+            String name = fileName.substring(0, fileName.length() - SEGMENT_SUFFIX.length());
+            int dot = name.lastIndexOf('.');
+            return new SegmentKey(name.substring(0, dot), Long.parseLong(name.substring(dot + 1)));
+        }
+    }
+
+    @Inject
+    public MediaSegmentCache(
+            @MinioProfile(MinioProfileType.MEDIA) MinioManager minioManager, MeterRegistry meterRegistry) {
+        this.minioManager = minioManager;
+        this.chunkFlights = new ChunkFlights(minioManager, meterRegistry);
+        this.hitsCounter = Counter.builder("media.segment_cache.requests")
+                .description("Chunks looked up in the segment cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.missesCounter = Counter.builder("media.segment_cache.requests")
+                .description("Chunks looked up in the segment cache")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.fillsCounter = Counter.builder("media.segment_cache.fills")
+                .description("Chunks stored in the segment cache")
+                .register(meterRegistry);
+        this.evictionsCounter = Counter.builder("media.segment_cache.evictions")
+                .description("Chunks evicted from the segment cache")
+                .register(meterRegistry);
+        Gauge.builder("media.segment_cache.size", this, MediaSegmentCache::size)
+                .description("Bytes held by the segment cache")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Rebuild the index from the segments left on disk by a previous run.
+     */
+    void rebuild(@Observes StartupEvent event) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            List<Path> files;
+            try (Stream<Path> listing = Files.list(directory)) {
+                files = listing.toList();
+            }
+            List<Path> stored = new ArrayList<>();
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TEMP_SUFFIX)) {
+                    // Fill interrupted by the shutdown
+                    Files.deleteIfExists(file);
+                } else if (name.endsWith(SEGMENT_SUFFIX)) {
+                    stored.add(file);
+                }
+            }
+            stored.sort(Comparator.comparing(MediaSegmentCache::lastModified));
+            for (Path file : stored) {
+                try {
+                    register(SegmentKey.fromFileName(file.getFileName().toString()), Files.size(file));
+                } catch (RuntimeException e) {
+                    log.warn("Removing unrecognized segment file {}", file);
+                    Files.deleteIfExists(file);
+                }
+            }
+            evictOverBudget();
+            ready = true;
+            log.info("Media segment cache at {}: {} segments, {} bytes", directory, segments.size(), totalBytes);
+        } catch (IOException e) {
+            log.error("Cannot open media segment cache at {}, serving from MinIO only", directory, e);
+        }
+    }
+
+    /**
+     * Stream a byte range of an object, from cached chunks where possible and from MinIO for the others. A missing
+     * chunk is fetched whole, so that every request wanting it at the time shares the fetch, unless the part wanted
+     * is small or the memory of the shared fetches is used up.
+     *
+     * @param bucketName the bucket name
+     * @param objectName the object name
+     * @param etag       the etag of the version served, part of the cache key
+     * @param fileSize   the size of the object
+     * @param range      the bytes to stream, within the object
+     */
+    public Multi<Buffer> read(String bucketName, String objectName, String etag, long fileSize, RangeInfo range) {
+        if (etag == null || !ready) {
+            return fromOrigin(bucketName, objectName, range.startByte(), range.endByte());
+        }
+
+        String objectId = objectId(bucketName, objectName, etag, chunkSize);
+        List<Multi<Buffer>> parts = new ArrayList<>();
+        for (long index = range.startByte() / chunkSize; index <= range.endByte() / chunkSize; index++) {
+            long chunkStart = index * chunkSize;
+            long chunkLength = Math.min(chunkSize, fileSize - chunkStart);
+            long from = Math.max(range.startByte(), chunkStart);
+            long to = Math.min(range.endByte(), chunkStart + chunkLength - 1);
+            SegmentKey key = new SegmentKey(objectId, index);
+
+            if (lookup(key, chunkLength)) {
+                hitsCounter.increment();
+                parts.add(fromSegment(key, from - chunkStart, to - from + 1)
+                        .onFailure()
+                        .recoverWithMulti(fromFlight(key, bucketName, objectName, chunkStart, chunkLength, from, to)));
+            } else {
+                missesCounter.increment();
+                if (admit(key)) {
+                    fill(key, bucketName, objectName, chunkStart, chunkLength);
+                }
+                parts.add(fromFlight(key, bucketName, objectName, chunkStart, chunkLength, from, to));
+            }
+        }
+        return parts.size() == 1 ? parts.getFirst() : Multi.createBy().concatenating().streams(parts);
+    }
+
+    private Multi<Buffer> fromOrigin(String bucketName, String objectName, long start, long end) {
+        return minioManager.getObjectChunks(
+                bucketName, objectName, start, end - start + 1, ConfigsProvider.MEDIA_STREAM_CHUNK_SIZE);
+    }
+
+    /**
+     * Read the part of a chunk from MinIO, joining the fetch of the whole chunk by other requests if there is one.
+     * Otherwise the whole chunk is fetched for a large part, the part alone is read for a small one or when the
+     * shared fetches are out of memory.
+     */
+    private Multi<Buffer> fromFlight(
+            SegmentKey key,
+            String bucketName,
+            String objectName,
+            long chunkStart,
+            long chunkLength,
+            long from,
+            long to) {
+        return chunkFlights.withChunk(
+                key,
+                bucketName,
+                objectName,
+                chunkStart,
+                (int) chunkLength,
+                chunk -> ChunkFlights.once(
+                        Buffer.buffer(chunk.slice((int) (from - chunkStart), (int) (to - from + 1)))),
+                to - from + 1 >= directReadBelow,
+                () -> fromOrigin(bucketName, objectName, from, to));
+    }
+
+    /**
+     * Map the part of a cached chunk on a worker thread, loading its pages there so writing it to the socket does
+     * not fault on the event loop. The mapping outlives the channel and is released by the GC.
+     */
+    private Multi<Buffer> fromSegment(SegmentKey key, long offset, long length) {
+        return Uni.createFrom()
+                .item(() -> {
+                    try (FileChannel channel = FileChannel.open(directory.resolve(key.fileName()))) {
+                        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+                        mapped.load();
+                        return Buffer.buffer(Unpooled.wrappedBuffer(mapped));
+                    } catch (IOException e) {
+                        // Evicted since the lookup, or damaged
+                        forget(key);
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                .runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
+                .toMulti();
+    }
+
+    /**
+     * Read a whole chunk from MinIO in the background and store it, once per chunk at a time. The read is shared
+     * with the requests streaming the chunk.
+     */
+    private void fill(SegmentKey key, String bucketName, String objectName, long chunkStart, long chunkLength) {
+        if (filling.size() >= ConfigsProvider.MEDIA_SEGMENT_CACHE_MAX_FILLS || !filling.add(key)) {
+            return;
+        }
+        chunkFlights
+                .withChunk(
+                        key,
+                        bucketName,
+                        objectName,
+                        chunkStart,
+                        (int) chunkLength,
+                        chunk -> Uni.createFrom()
+                                .item(() -> store(key, chunk))
+                                .runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
+                                .toMulti(),
+                        true,
+                        // Out of memory for fetches, the miss is not stored
+                        () -> Multi.createFrom().empty())
+                .onTermination()
+                .invoke(() -> filling.remove(key))
+                .subscribe()
+                .with(
+                        stored -> fillsCounter.increment(),
+                        failure -> log.debug("Cannot cache chunk {} of {}: {}", key.index(), objectName, failure));
+    }
+
+    private Long store(SegmentKey key, ByteBuf chunk) {
+        Path target = directory.resolve(key.fileName());
+        Path temp = directory.resolve(key.fileName() + TEMP_SUFFIX);
+        long chunkLength = chunk.readableBytes();
+        try (FileChannel channel = FileChannel.open(
+                temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer bytes = chunk.nioBuffer();
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            throw new UncheckedIOException(e);
+        }
+        try {
+            // Readers only ever see complete chunks
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            throw new UncheckedIOException(e);
+        }
+        register(key, chunkLength);
+        evictOverBudget();
+        return chunkLength;
+    }
+
+    private boolean lookup(SegmentKey key, long chunkLength) {
+        synchronized (segments) {
+            Long size = segments.get(key);
+            return size != null && size == chunkLength;
+        }
+    }
+
+    /**
+     * Count a miss, true once the chunk missed often enough to be stored.
+     */
+    private boolean admit(SegmentKey key) {
+        synchronized (misses) {
+            int count = misses.merge(key, 1, Integer::sum);
+            if (count < ConfigsProvider.MEDIA_SEGMENT_CACHE_ADMIT_AFTER) {
+                return false;
+            }
+            misses.remove(key);
+            return true;
+        }
+    }
+
+    private void register(SegmentKey key, long size) {
+        synchronized (segments) {
+            Long previous = segments.put(key, size);
+            totalBytes += size - (previous != null ? previous : 0L);
+        }
+    }
+
+    private void forget(SegmentKey key) {
+        synchronized (segments) {
+            Long size = segments.remove(key);
+            if (size != null) {
+                totalBytes -= size;
+            }
+        }
+    }
+
+    private void evictOverBudget() {
+        List<SegmentKey> evicted = new ArrayList<>();
+        synchronized (segments) {
+            Iterator<Map.Entry<SegmentKey, Long>> eldest = segments.entrySet().iterator();
+            while (totalBytes > maxSize && eldest.hasNext()) {
+                Map.Entry<SegmentKey, Long> entry = eldest.next();
+                totalBytes -= entry.getValue();
+                evicted.add(entry.getKey());
+                eldest.remove();
+            }
+        }
+        // Readers holding a mapping keep their pages, the file is gone once they release it
+        evicted.forEach(key -> deleteQuietly(directory.resolve(key.fileName())));
+        evictionsCounter.increment(evicted.size());
+    }
+
+    private long size() {
+        synchronized (segments) {
+            return totalBytes;
+        }
+    }
+
+    /**
+     * The chunk size is part of the digest, chunks stored before a change of size are never read and age out.
+     */
+    private static String objectId(String bucketName, String objectName, String etag, long chunkSize) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            String identity = bucketName + '\0' + objectName + '\0' + etag + '\0' + chunkSize;
+            byte[] hash = digest.digest(identity.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0L);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.debug("Cannot delete segment file {}: {}", file, e.getMessage());
+        }
+    }
+}
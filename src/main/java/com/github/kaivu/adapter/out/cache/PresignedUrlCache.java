@@ -0,0 +1,84 @@
+package com.github.kaivu.adapter.out.cache;
+
+import com.github.kaivu.config.ConfigsProvider;
+import com.github.kaivu.config.minio.MinioManager;
+import com.github.kaivu.config.minio.MinioProfile;
+import com.github.kaivu.config.minio.MinioProfileType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Presigned GET URLs of media objects, reused until {@code media.stream.redirect.refresh-before} their expiry so a
+ * client following the redirect always has at least that long to use it. Signing is local and cheap, the cache
+ * mostly keeps the redirect of a popular object stable for browsers and intermediaries.
+ */
+@ApplicationScoped
+public class PresignedUrlCache {
+
+    private static final int MAX_ENTRIES = 10_000;
+
+    private final MinioManager minioManager;
+    private final Counter hitsCounter;
+    private final Counter missesCounter;
+
+    private final Duration expiry = ConfigsProvider.MEDIA_STREAM_REDIRECT_EXPIRY;
+    private final Duration refreshBefore = ConfigsProvider.MEDIA_STREAM_REDIRECT_REFRESH_BEFORE;
+
+    // Guarded by itself, access ordered so the least recently redirected object is dropped first
+    private final Map<ObjectKey, PresignedUrl> urls = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ObjectKey, PresignedUrl> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    record ObjectKey(String bucketName, String objectName) {}
+
+    private record PresignedUrl(String url, Instant refreshAt) {}
+
+    @Inject
+    public PresignedUrlCache(
+            @MinioProfile(MinioProfileType.MEDIA) MinioManager minioManager, MeterRegistry meterRegistry) {
+        this.minioManager = minioManager;
+        this.hitsCounter = Counter.builder("media.presigned_url.requests")
+                .description("Presigned URLs looked up for a redirect")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.missesCounter = Counter.builder("media.presigned_url.requests")
+                .description("Presigned URLs looked up for a redirect")
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    /**
+     * A presigned GET URL of an object, valid for at least the refresh margin.
+     *
+     * @param bucketName the bucket name
+     * @param objectName the object name
+     */
+    public Uni<String> get(String bucketName, String objectName) {
+        ObjectKey key = new ObjectKey(bucketName, objectName);
+        Instant now = Instant.now();
+        synchronized (urls) {
+            PresignedUrl cached = urls.get(key);
+            if (cached != null && now.isBefore(cached.refreshAt())) {
+                hitsCounter.increment();
+                return Uni.createFrom().item(cached.url());
+            }
+        }
+        missesCounter.increment();
+        return minioManager.getPresignedObjectUrl(bucketName, objectName, expiry).invoke(url -> {
+            synchronized (urls) {
+                urls.put(key, new PresignedUrl(url, now.plus(expiry).minus(refreshBefore)));
+            }
+        });
+    }
+}
@@ -1,8 +1,11 @@
 package com.github.kaivu.adapter.out.client;
 
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
+import io.vertx.core.buffer.Buffer;
 
 import java.io.InputStream;
+import java.time.Duration;
 
 /**
  * MinIO Helper providing high-level storage operations with profile flexibility
@@ -25,6 +28,19 @@ public interface MinioHelper {
      */
     Uni<InputStream> getObject(String bucketName, String objectName, long offset, long length);
 
+    /**
+     * Stream a byte range of an object from MinIO as chunks of pooled direct memory, read on demand
+     * Each chunk is only valid until the next one is requested, write it before requesting more
+     *
+     * @param bucketName the bucket name
+     * @param objectName the object name
+     * @param offset     the offset to start reading from
+     * @param length     the number of bytes to read
+     * @param chunkSize  the size of the chunks, the last one may be shorter
+     * @return Multi of the chunks, closing the object stream on completion, failure or cancellation
+     */
+    Multi<Buffer> getObjectChunks(String bucketName, String objectName, long offset, long length, int chunkSize);
+
     /**
      * Get the complete object from MinIO
      *
@@ -34,6 +50,16 @@ public interface MinioHelper {
      */
     Uni<InputStream> getObject(String bucketName, String objectName);
 
+    /**
+     * Sign a GET URL of an object, computed locally without any call to MinIO
+     *
+     * @param bucketName the bucket name
+     * @param objectName the object name
+     * @param expiry     how long the URL stays valid
+     * @return Uni with the presigned URL
+     */
+    Uni<String> getPresignedObjectUrl(String bucketName, String objectName, Duration expiry);
+
     /**
      * Get the size of an object in MinIO
      *
@@ -65,6 +91,40 @@ public interface MinioHelper {
     Uni<Void> uploadObject(
             String bucketName, String objectName, InputStream inputStream, String contentType, long size);
 
+    /**
+     * Start a multipart upload, to send with {@link #uploadMultipart}
+     *
+     * @param bucketName  the bucket name
+     * @param objectName  the object name
+     * @param contentType the content type of the object
+     * @return Uni with the upload id, which resumes or aborts the upload
+     */
+    Uni<String> createMultipartUpload(String bucketName, String objectName, String contentType);
+
+    /**
+     * Upload the parts of a multipart upload not stored yet, in parallel, then complete it
+     * On failure the upload is kept: call again with the same id and a new stream of the object to resume it
+     *
+     * @param bucketName  the bucket name
+     * @param objectName  the object name
+     * @param uploadId    the id of the upload
+     * @param inputStream the object data from its first byte, also when resuming
+     * @param size        the size of the object in bytes, the same on every attempt
+     * @return Uni representing completion
+     */
+    Uni<Void> uploadMultipart(
+            String bucketName, String objectName, String uploadId, InputStream inputStream, long size);
+
+    /**
+     * Abort a multipart upload, deleting the parts already stored
+     *
+     * @param bucketName the bucket name
+     * @param objectName the object name
+     * @param uploadId   the id of the upload
+     * @return Uni representing completion
+     */
+    Uni<Void> abortMultipartUpload(String bucketName, String objectName, String uploadId);
+
     /**
      * Delete an object from MinIO
      *
@@ -97,6 +97,16 @@ public interface RedisHelper {
      */
     Uni<Boolean> exists(String key);
 
+    /**
+     * Set a value only if the key does not exist yet, e.g. to take a lease shared by every instance
+     *
+     * @param key Cache key
+     * @param value Value to set
+     * @param ttl Time to live, the key is freed after it even if never deleted
+     * @return Uni with true if the value was set, false if the key already existed
+     */
+    Uni<Boolean> setIfAbsent(String key, String value, Duration ttl);
+
     /**
      * Get remaining TTL for a key
      *
@@ -122,6 +132,36 @@ public interface RedisHelper {
      */
     Uni<Long> increment(String key);
 
+    /**
+     * Increment a field of a hash of counters
+     *
+     * @param key Hash key
+     * @param field Counter name
+     * @param delta Amount to increment by
+     * @return Uni with new value after increment
+     */
+    Uni<Long> hashIncrement(String key, String field, long delta);
+
+    /**
+     * Read every field of a hash of counters
+     *
+     * @param key Hash key
+     * @return Uni with the counters, empty if the hash doesn't exist, failed if Redis cannot be read
+     */
+    Uni<Map<String, Long>> hashGetAll(String key);
+
+    /**
+     * Atomically replace a hash of counters: the new content is written aside, the counters of the deltas hash
+     * are added to it, then it is renamed over the key. Increments made while the new content was computed, also
+     * kept in the deltas hash, are therefore not lost
+     *
+     * @param key Hash key
+     * @param values New counters
+     * @param deltasKey Hash of the increments made since the new content was computed
+     * @return Uni representing completion
+     */
+    Uni<Void> hashReplace(String key, Map<String, Long> values, String deltasKey);
+
     /**
      * Clear all cache entries (use with caution)
      *
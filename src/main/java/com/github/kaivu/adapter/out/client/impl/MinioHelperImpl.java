@@ -3,33 +3,48 @@ package com.github.kaivu.adapter.out.client.impl;
 import com.github.kaivu.adapter.out.client.MinioHelper;
 import com.github.kaivu.common.exception.ServiceException;
 import com.github.kaivu.config.handler.ErrorsEnum;
+import com.github.kaivu.config.minio.MinioExecutor;
 import io.minio.GetObjectArgs;
+import io.minio.GetPresignedObjectUrlArgs;
 import io.minio.MinioClient;
 import io.minio.PutObjectArgs;
 import io.minio.RemoveObjectArgs;
 import io.minio.StatObjectArgs;
+import io.minio.http.Method;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
-import io.smallrye.mutiny.unchecked.Unchecked;
+import io.vertx.core.buffer.Buffer;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 /**
  * MinIO Helper implementation with single client per instance
+ * The SDK is blocking: every call runs on the executor of the profile, never on the event loop
  * This is NOT a CDI bean - instances are created by MinioHelperProvider
  */
 @Slf4j
 public class MinioHelperImpl implements MinioHelper {
 
     private final MinioClient minioClient;
+    private final MinioExecutor executor;
+    private final MultipartUploader multipartUploader;
 
-    public MinioHelperImpl(MinioClient minioClient) {
+    public MinioHelperImpl(MinioClient minioClient, MultipartMinioClient multipartClient, MinioExecutor executor) {
         this.minioClient = minioClient;
+        this.executor = executor;
+        this.multipartUploader = new MultipartUploader(multipartClient, executor);
     }
 
     @Override
     public Uni<InputStream> getObject(String bucketName, String objectName, long offset, long length) {
-        return Uni.createFrom().item(Unchecked.supplier(() -> {
+        return closedOnCancellation(() -> {
             try {
                 log.debug(
                         "Getting object with range: bucket={}, object={}, offset={}, length={}",
@@ -38,40 +53,80 @@ public class MinioHelperImpl implements MinioHelper {
                         offset,
                         length);
 
-                return minioClient.getObject(GetObjectArgs.builder()
-                        .bucket(bucketName)
-                        .object(objectName)
-                        .offset(offset)
-                        .length(length)
-                        .build());
+                return executor.guardEventLoop(
+                        minioClient.getObject(GetObjectArgs.builder()
+                                .bucket(bucketName)
+                                .object(objectName)
+                                .offset(offset)
+                                .length(length)
+                                .build()),
+                        objectName);
             } catch (Exception e) {
                 log.error("Error getting object with range: {}", e.getMessage(), e);
                 // Throw simple ServiceException without locale - Resource layer will add locale
                 throw new ServiceException(ErrorsEnum.SYSTEM_INTERNAL_SERVER_ERROR);
             }
-        }));
+        });
+    }
+
+    @Override
+    public Multi<Buffer> getObjectChunks(
+            String bucketName, String objectName, long offset, long length, int chunkSize) {
+        return getObject(bucketName, objectName, offset, length).onItem().transformToMulti(stream -> {
+            PooledChunkReader reader = new PooledChunkReader(stream, chunkSize, length);
+            // One read per request, each on the executor, so the pace of the client drives the reads. Admission was
+            // paid opening the range, a chunk read waits for a thread rather than failing a response half sent
+            return Multi.createBy()
+                    .repeating()
+                    .uni(() -> executor.supplyAdmitted(reader::next))
+                    .until(chunk -> chunk.length() == 0)
+                    .onTermination()
+                    .invoke(reader::close);
+        });
     }
 
     @Override
     public Uni<InputStream> getObject(String bucketName, String objectName) {
-        return Uni.createFrom().item(Unchecked.supplier(() -> {
+        return closedOnCancellation(() -> {
             try {
                 log.debug("Getting complete object: bucket={}, object={}", bucketName, objectName);
 
-                return minioClient.getObject(GetObjectArgs.builder()
+                return executor.guardEventLoop(
+                        minioClient.getObject(GetObjectArgs.builder()
+                                .bucket(bucketName)
+                                .object(objectName)
+                                .build()),
+                        objectName);
+            } catch (Exception e) {
+                log.error("Error getting object: {}", e.getMessage(), e);
+                throw new ServiceException(ErrorsEnum.SYSTEM_INTERNAL_SERVER_ERROR);
+            }
+        });
+    }
+
+    @Override
+    public Uni<String> getPresignedObjectUrl(String bucketName, String objectName, Duration expiry) {
+        // Only signing, the region is set on the client so no bucket location lookup is made: stays off the executor
+        return Uni.createFrom().item(() -> {
+            try {
+                log.debug("Presigning object: bucket={}, object={}, expiry={}", bucketName, objectName, expiry);
+
+                return minioClient.getPresignedObjectUrl(GetPresignedObjectUrlArgs.builder()
+                        .method(Method.GET)
                         .bucket(bucketName)
                         .object(objectName)
+                        .expiry((int) expiry.toSeconds(), TimeUnit.SECONDS)
                         .build());
             } catch (Exception e) {
-                log.error("Error getting object: {}", e.getMessage(), e);
+                log.error("Error presigning object: {}", e.getMessage(), e);
                 throw new ServiceException(ErrorsEnum.SYSTEM_INTERNAL_SERVER_ERROR);
             }
-        }));
+        });
     }
 
     @Override
     public Uni<Long> getObjectSize(String bucketName, String objectName) {
-        return Uni.createFrom().item(Unchecked.supplier(() -> {
+        return executor.supply(() -> {
             try {
                 log.debug("Getting object size: bucket={}, object={}", bucketName, objectName);
 
@@ -85,12 +140,12 @@ public class MinioHelperImpl implements MinioHelper {
                 log.error("Error getting object size: {}", e.getMessage(), e);
                 throw new ServiceException(ErrorsEnum.SYSTEM_INTERNAL_SERVER_ERROR);
             }
-        }));
+        });
     }
 
     @Override
     public Uni<Boolean> objectExists(String bucketName, String objectName) {
-        return Uni.createFrom().item(() -> {
+        return executor.supply(() -> {
             try {
                 log.debug("Checking object existence: bucket={}, object={}", bucketName, objectName);
 
@@ -109,7 +164,7 @@ public class MinioHelperImpl implements MinioHelper {
     @Override
     public Uni<Void> uploadObject(
             String bucketName, String objectName, InputStream inputStream, String contentType, long size) {
-        return Uni.createFrom().item(Unchecked.supplier(() -> {
+        return executor.supply(() -> {
             try {
                 log.debug("Uploading object: bucket={}, object={}, size={}", bucketName, objectName, size);
 
@@ -122,12 +177,36 @@ public class MinioHelperImpl implements MinioHelper {
                 log.error("Error uploading object: {}", e.getMessage(), e);
                 throw new ServiceException(ErrorsEnum.SYSTEM_INTERNAL_SERVER_ERROR);
             }
-        }));
+        });
+    }
+
+    @Override
+    public Uni<String> createMultipartUpload(String bucketName, String objectName, String contentType) {
+        log.debug("Creating multipart upload: bucket={}, object={}", bucketName, objectName);
+        return multipartUploader.create(bucketName, objectName, contentType);
+    }
+
+    @Override
+    public Uni<Void> uploadMultipart(
+            String bucketName, String objectName, String uploadId, InputStream inputStream, long size) {
+        log.debug(
+                "Uploading multipart: bucket={}, object={}, uploadId={}, size={}",
+                bucketName,
+                objectName,
+                uploadId,
+                size);
+        return multipartUploader.upload(bucketName, objectName, uploadId, inputStream, size);
+    }
+
+    @Override
+    public Uni<Void> abortMultipartUpload(String bucketName, String objectName, String uploadId) {
+        log.debug("Aborting multipart upload: bucket={}, object={}, uploadId={}", bucketName, objectName, uploadId);
+        return multipartUploader.abort(bucketName, objectName, uploadId);
     }
 
     @Override
     public Uni<Void> deleteObject(String bucketName, String objectName) {
-        return Uni.createFrom().item(Unchecked.supplier(() -> {
+        return executor.supply(() -> {
             try {
                 log.debug("Deleting object: bucket={}, object={}", bucketName, objectName);
 
@@ -140,6 +219,42 @@ public class MinioHelperImpl implements MinioHelper {
                 log.error("Error deleting object: {}", e.getMessage(), e);
                 throw new ServiceException(ErrorsEnum.SYSTEM_INTERNAL_SERVER_ERROR);
             }
-        }));
+        });
+    }
+
+    /**
+     * Open an object stream that is closed (releasing its HTTP connection to MinIO) when the subscriber cancels,
+     * including when the stream only arrives after the cancellation.
+     */
+    private Uni<InputStream> closedOnCancellation(Supplier<InputStream> opener) {
+        return Uni.createFrom().deferred(() -> {
+            AtomicBoolean cancelled = new AtomicBoolean();
+            AtomicReference<InputStream> opened = new AtomicReference<>();
+            return executor
+                    .supply(() -> {
+                        InputStream stream = opener.get();
+                        opened.set(stream);
+                        if (cancelled.get()) {
+                            closeQuietly(opened.getAndSet(null));
+                        }
+                        return stream;
+                    })
+                    .onCancellation()
+                    .invoke(() -> {
+                        cancelled.set(true);
+                        closeQuietly(opened.getAndSet(null));
+                    });
+        });
+    }
+
+    private static void closeQuietly(InputStream stream) {
+        if (stream == null) {
+            return;
+        }
+        try {
+            stream.close();
+        } catch (IOException e) {
+            log.debug("Error closing abandoned object stream: {}", e.getMessage());
+        }
     }
 }
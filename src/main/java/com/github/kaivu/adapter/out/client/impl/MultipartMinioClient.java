@@ -0,0 +1,88 @@
+package com.github.kaivu.adapter.out.client.impl;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import io.minio.MinioAsyncClient;
+import io.minio.messages.ListPartsResult;
+import io.minio.messages.Part;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Exposes the S3 multipart upload calls the SDK keeps protected, so parts can be uploaded in parallel, retried one
+ * by one and resumed by upload id. The calls are asynchronous: no thread waits while a part is sent.
+ * The region is expected to be set on the wrapped client, the calls pass none and no location lookup is made.
+ * This is NOT a CDI bean - instances are created by MinioClientProvider
+ */
+public class MultipartMinioClient extends MinioAsyncClient {
+
+    public MultipartMinioClient(MinioAsyncClient client) {
+        super(client);
+    }
+
+    /**
+     * @return the upload id
+     */
+    public CompletableFuture<String> createMultipartUpload(String bucketName, String objectName, String contentType) {
+        Multimap<String, String> headers = HashMultimap.create();
+        if (contentType != null) {
+            headers.put("Content-Type", contentType);
+        }
+        try {
+            return createMultipartUploadAsync(bucketName, null, objectName, headers, null)
+                    .thenApply(response -> response.result().uploadId());
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * @return the etag of the part
+     */
+    public CompletableFuture<String> uploadPart(
+            String bucketName, String objectName, String uploadId, int partNumber, byte[] data, int length) {
+        try {
+            return uploadPartAsync(bucketName, null, objectName, data, length, uploadId, partNumber, null, null)
+                    .thenApply(response -> response.etag());
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * One page of the parts already stored for an upload.
+     *
+     * @param partNumberMarker the last part number of the previous page, 0 for the first page
+     */
+    public CompletableFuture<ListPartsResult> listParts(
+            String bucketName, String objectName, String uploadId, int partNumberMarker) {
+        try {
+            return listPartsAsync(bucketName, null, objectName, null, partNumberMarker, uploadId, null, null)
+                    .thenApply(response -> response.result());
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * @param parts the parts in ascending part number
+     */
+    public CompletableFuture<Void> completeMultipartUpload(
+            String bucketName, String objectName, String uploadId, Part[] parts) {
+        try {
+            return completeMultipartUploadAsync(bucketName, null, objectName, uploadId, parts, null, null)
+                    .thenApply(response -> null);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    public CompletableFuture<Void> abortMultipartUpload(String bucketName, String objectName, String uploadId) {
+        try {
+            return abortMultipartUploadAsync(bucketName, null, objectName, uploadId, null, null)
+                    .thenApply(response -> null);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
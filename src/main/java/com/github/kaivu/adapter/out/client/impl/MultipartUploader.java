@@ -0,0 +1,194 @@
+package com.github.kaivu.adapter.out.client.impl;
+
+import com.github.kaivu.common.exception.ServiceException;
+import com.github.kaivu.config.ConfigsProvider;
+import com.github.kaivu.config.handler.ErrorsEnum;
+import com.github.kaivu.config.minio.MinioExecutor;
+import io.minio.messages.Part;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Uploads an object as an S3 multipart upload. The stream is read part by part on the executor of the profile into
+ * pooled buffers, and up to {@code minio.multipart.concurrency} parts are sent at once, each retried on its own.
+ * Uploading again with the id of an interrupted upload only sends the parts not stored yet, the stream is skipped
+ * over the others. A failed upload is left in place to be resumed, aborting it frees its parts.
+ * This is NOT a CDI bean - instances are created by MinioHelperImpl
+ */
+@Slf4j
+class MultipartUploader {
+
+    // S3 limit, larger objects get larger parts
+    private static final int MAX_PARTS = 10_000;
+
+    private final MultipartMinioClient client;
+    private final MinioExecutor executor;
+    private final PartBufferPool bufferPool;
+    private final int partSize = ConfigsProvider.MINIO_MULTIPART_PART_SIZE;
+    private final int concurrency = ConfigsProvider.MINIO_MULTIPART_CONCURRENCY;
+    private final int maxAttempts = ConfigsProvider.MINIO_MULTIPART_MAX_ATTEMPTS;
+
+    /**
+     * A part read from the stream, or already stored by a previous attempt of the upload.
+     */
+    private record PartData(int number, byte[] buffer, int length, Part stored) {}
+
+    MultipartUploader(MultipartMinioClient client, MinioExecutor executor) {
+        this.client = client;
+        this.executor = executor;
+        this.bufferPool = new PartBufferPool(partSize, ConfigsProvider.MINIO_MULTIPART_BUFFERS);
+    }
+
+    Uni<String> create(String bucketName, String objectName, String contentType) {
+        return Uni.createFrom()
+                .completionStage(() -> client.createMultipartUpload(bucketName, objectName, contentType))
+                .onFailure()
+                .transform(failure -> {
+                    log.error("Error creating multipart upload of {}: {}", objectName, failure.getMessage());
+                    return new ServiceException(ErrorsEnum.SYSTEM_INTERNAL_SERVER_ERROR);
+                });
+    }
+
+    Uni<Void> abort(String bucketName, String objectName, String uploadId) {
+        return Uni.createFrom()
+                .completionStage(() -> client.abortMultipartUpload(bucketName, objectName, uploadId))
+                .onFailure()
+                .transform(failure -> {
+                    log.error("Error aborting multipart upload {}: {}", uploadId, failure.getMessage());
+                    return new ServiceException(ErrorsEnum.SYSTEM_INTERNAL_SERVER_ERROR);
+                });
+    }
+
+    /**
+     * Upload the parts not stored yet and complete the upload.
+     *
+     * @param stream the whole object, from its first byte even when resuming
+     * @param size   the size of the object, it determines the parts and must not change between attempts
+     */
+    Uni<Void> upload(String bucketName, String objectName, String uploadId, InputStream stream, long size) {
+        long effectivePartSize = Math.max(partSize, (size + MAX_PARTS - 1) / MAX_PARTS);
+        int partCount = (int) Math.max(1, (size + effectivePartSize - 1) / effectivePartSize);
+        return storedParts(bucketName, objectName, uploadId, 0, new HashMap<>())
+                .flatMap(stored -> Multi.createFrom()
+                        .range(1, partCount + 1)
+                        // The stream is read in order, one part at a time, as the uploads make room
+                        .onItem()
+                        .transformToUniAndConcatenate(number -> {
+                            long start = (number - 1) * effectivePartSize;
+                            int length = (int) Math.min(effectivePartSize, size - start);
+                            return read(stream, number, length, stored.get(number));
+                        })
+                        .onItem()
+                        .transformToUni(part -> send(bucketName, objectName, uploadId, part))
+                        .merge(concurrency)
+                        .collect()
+                        .asList())
+                .flatMap(parts -> {
+                    Part[] ordered =
+                            parts.stream().sorted(Comparator.comparingInt(Part::partNumber)).toArray(Part[]::new);
+                    return Uni.createFrom()
+                            .completionStage(
+                                    () -> client.completeMultipartUpload(bucketName, objectName, uploadId, ordered));
+                })
+                .onFailure(failure -> !(failure instanceof ServiceException))
+                .transform(failure -> {
+                    log.error("Multipart upload {} of {} failed: {}", uploadId, objectName, failure.getMessage());
+                    return new ServiceException(ErrorsEnum.SYSTEM_INTERNAL_SERVER_ERROR);
+                });
+    }
+
+    private Uni<Map<Integer, Part>> storedParts(
+            String bucketName, String objectName, String uploadId, int partNumberMarker, Map<Integer, Part> found) {
+        return Uni.createFrom()
+                .completionStage(() -> client.listParts(bucketName, objectName, uploadId, partNumberMarker))
+                .flatMap(page -> {
+                    page.partList().forEach(part -> found.put(part.partNumber(), part));
+                    return page.isTruncated()
+                            ? storedParts(bucketName, objectName, uploadId, page.nextPartNumberMarker(), found)
+                            : Uni.createFrom().item(found);
+                });
+    }
+
+    private Uni<PartData> read(InputStream stream, int number, int length, Part stored) {
+        if (stored != null && stored.partSize() == length) {
+            return executor.supply(() -> {
+                try {
+                    stream.skipNBytes(length);
+                    return new PartData(number, null, length, stored);
+                } catch (IOException e) {
+                    log.error("Error skipping stored part {}: {}", number, e.getMessage(), e);
+                    throw new ServiceException(ErrorsEnum.SYSTEM_INTERNAL_SERVER_ERROR);
+                }
+            });
+        }
+        return bufferPool.acquire(length).flatMap(buffer -> executor.supply(() -> {
+                    try {
+                        int read = stream.readNBytes(buffer, 0, length);
+                        if (read != length) {
+                            throw new IOException("Stream ended after " + read + " of " + length + " bytes");
+                        }
+                        return new PartData(number, buffer, length, null);
+                    } catch (IOException e) {
+                        log.error("Error reading part {}: {}", number, e.getMessage(), e);
+                        throw new ServiceException(ErrorsEnum.SYSTEM_INTERNAL_SERVER_ERROR);
+                    }
+                })
+                .onTermination()
+                .invoke((part, failure, cancelled) -> {
+                    if (Boolean.TRUE.equals(cancelled)) {
+                        // The read may still be running on the executor
+                        bufferPool.discard(buffer);
+                    } else if (part == null) {
+                        bufferPool.release(buffer);
+                    }
+                }));
+    }
+
+    /**
+     * Send a part, retried with a backoff up to {@code max-attempts} attempts in all. The buffer goes back to the
+     * pool once no attempt is still sending it.
+     */
+    private Uni<Part> send(String bucketName, String objectName, String uploadId, PartData part) {
+        if (part.stored() != null) {
+            return Uni.createFrom().item(part.stored());
+        }
+        AtomicReference<CompletableFuture<String>> attempt = new AtomicReference<>();
+        Uni<String> sending = Uni.createFrom()
+                .deferred(() -> {
+                    CompletableFuture<String> sent = client.uploadPart(
+                            bucketName, objectName, uploadId, part.number(), part.buffer(), part.length());
+                    attempt.set(sent);
+                    return Uni.createFrom().completionStage(sent.minimalCompletionStage());
+                })
+                .onFailure()
+                .invoke(failure -> log.warn("Part {} of upload {} failed: {}", part.number(), uploadId, failure));
+        long retries = maxAttempts - 1L;
+        if (retries > 0) {
+            sending = sending.onFailure()
+                    .retry()
+                    .withBackOff(Duration.ofMillis(200), Duration.ofSeconds(5))
+                    .atMost(retries);
+        }
+        return sending
+                .map(etag -> new Part(part.number(), etag))
+                .onTermination()
+                .invoke(() -> {
+                    CompletableFuture<String> last = attempt.get();
+                    if (last == null || last.isDone()) {
+                        bufferPool.release(part.buffer());
+                    } else {
+                        last.whenComplete((etag, failure) -> bufferPool.release(part.buffer()));
+                    }
+                });
+    }
+}
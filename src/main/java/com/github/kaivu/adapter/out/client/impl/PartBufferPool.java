@@ -0,0 +1,122 @@
+package com.github.kaivu.adapter.out.client.impl;
+
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.UniEmitter;
+
+import java.util.ArrayDeque;
+
+/**
+ * Bounded pool of heap buffers holding multipart upload parts, reused from one upload to the next.
+ * At most {@code maxBuffers} are handed out at once, across all uploads of a profile; an acquisition beyond that
+ * waits for a release without blocking a thread. A part longer than the pooled size, only for objects that need
+ * more than the maximum number of parts, gets a buffer of its own, which still counts against the bound.
+ */
+class PartBufferPool {
+
+    private final int bufferSize;
+    private final int maxBuffers;
+
+    // Guarded by this
+    private final ArrayDeque<byte[]> free = new ArrayDeque<>();
+    private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+    private int handedOut;
+
+    /**
+     * An acquisition waiting for a release, handed its buffer under the lock of the pool.
+     */
+    private static final class Waiter {
+
+        private final UniEmitter<? super byte[]> emitter;
+        private final int length;
+        private byte[] handed;
+
+        Waiter(UniEmitter<? super byte[]> emitter, int length) {
+            this.emitter = emitter;
+            this.length = length;
+        }
+    }
+
+    PartBufferPool(int bufferSize, int maxBuffers) {
+        this.bufferSize = bufferSize;
+        this.maxBuffers = Math.max(1, maxBuffers);
+    }
+
+    /**
+     * A buffer of at least {@code length} bytes, to give back with {@link #release(byte[])}.
+     */
+    Uni<byte[]> acquire(int length) {
+        return Uni.createFrom().emitter(emitter -> {
+            byte[] buffer = null;
+            synchronized (this) {
+                if (handedOut < maxBuffers) {
+                    handedOut++;
+                    buffer = take(length);
+                } else {
+                    Waiter waiter = new Waiter(emitter, length);
+                    waiters.add(waiter);
+                    emitter.onTermination(() -> {
+                        if (emitter.isCancelled()) {
+                            abandon(waiter);
+                        }
+                    });
+                }
+            }
+            if (buffer != null) {
+                emitter.complete(buffer);
+            }
+        });
+    }
+
+    void release(byte[] buffer) {
+        giveBack(buffer, true);
+    }
+
+    /**
+     * Free the slot of a buffer that may still be written to, it is not reused.
+     */
+    void discard(byte[] buffer) {
+        giveBack(buffer, false);
+    }
+
+    private void giveBack(byte[] buffer, boolean reuse) {
+        Waiter next;
+        synchronized (this) {
+            if (reuse && buffer.length == bufferSize && free.size() < maxBuffers) {
+                free.push(buffer);
+            }
+            next = waiters.poll();
+            if (next == null) {
+                handedOut--;
+                return;
+            }
+            // The slot goes to the waiter, the count is unchanged
+            next.handed = take(next.length);
+        }
+        next.emitter.complete(next.handed);
+    }
+
+    private void abandon(Waiter waiter) {
+        byte[] handed;
+        synchronized (this) {
+            if (waiters.remove(waiter)) {
+                return;
+            }
+            handed = waiter.handed;
+        }
+        // Cancelled while its buffer was being handed, it never reached the subscriber
+        if (handed != null) {
+            release(handed);
+        }
+    }
+
+    /**
+     * Only called under the lock.
+     */
+    private byte[] take(int length) {
+        if (length > bufferSize) {
+            return new byte[length];
+        }
+        byte[] buffer = free.poll();
+        return buffer != null ? buffer : new byte[bufferSize];
+    }
+}
@@ -0,0 +1,103 @@
+package com.github.kaivu.adapter.out.client.impl;
+
+import com.github.kaivu.common.exception.ServiceException;
+import com.github.kaivu.config.handler.ErrorsEnum;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.vertx.core.buffer.Buffer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Reads an object stream into chunks of pooled direct memory, one chunk at a time.
+ * A chunk is only read when the subscriber asks for the next one, which the response writer does once the previous
+ * chunk is written, so the previous chunk goes back to the pool first and a stream never holds more than one.
+ * The emitted {@link Buffer} wraps the pooled memory without copying, it is only valid until the next read.
+ * Past the end an empty buffer is returned: ending the stream on that extra request, rather than with the last chunk,
+ * keeps the last chunk alive until it is written.
+ */
+@Slf4j
+class PooledChunkReader {
+
+    private final InputStream stream;
+    private final int chunkSize;
+    private long remaining;
+
+    // Guarded by this, the chunk handed out last, released on the next read or on close
+    private ByteBuf current;
+    private boolean closed;
+
+    PooledChunkReader(InputStream stream, int chunkSize, long length) {
+        this.stream = stream;
+        this.chunkSize = chunkSize;
+        this.remaining = length;
+    }
+
+    /**
+     * Blocking, fill the next chunk from the stream, empty once the length is read.
+     */
+    Buffer next() {
+        synchronized (this) {
+            if (closed) {
+                throw new CancellationException("Object stream closed");
+            }
+            releaseCurrent();
+        }
+        if (remaining == 0) {
+            return Buffer.buffer();
+        }
+
+        int size = (int) Math.min(chunkSize, remaining);
+        ByteBuf chunk = PooledByteBufAllocator.DEFAULT.directBuffer(size, size);
+        try {
+            while (chunk.isWritable()) {
+                if (chunk.writeBytes(stream, chunk.writableBytes()) < 0) {
+                    throw new IOException("Object stream ended " + remaining + " bytes early");
+                }
+            }
+        } catch (IOException e) {
+            chunk.release();
+            log.error("Error reading object chunk: {}", e.getMessage(), e);
+            throw new ServiceException(ErrorsEnum.SYSTEM_INTERNAL_SERVER_ERROR);
+        }
+        remaining -= size;
+
+        synchronized (this) {
+            if (closed) {
+                // Cancelled while reading, nobody will take this chunk
+                chunk.release();
+                throw new CancellationException("Object stream closed");
+            }
+            current = chunk;
+        }
+        return Buffer.buffer(chunk);
+    }
+
+    /**
+     * Release the chunk handed out last and close the stream, aborting a read in progress.
+     */
+    void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            releaseCurrent();
+        }
+        try {
+            stream.close();
+        } catch (IOException e) {
+            log.debug("Error closing object stream: {}", e.getMessage());
+        }
+    }
+
+    private void releaseCurrent() {
+        if (current != null) {
+            current.release();
+            current = null;
+        }
+    }
+}
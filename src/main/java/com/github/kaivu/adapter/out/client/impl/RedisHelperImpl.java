@@ -2,6 +2,7 @@ package com.github.kaivu.adapter.out.client.impl;
 
 import com.github.kaivu.adapter.out.client.RedisHelper;
 import io.quarkus.redis.datasource.ReactiveRedisDataSource;
+import io.quarkus.redis.datasource.hash.ReactiveHashCommands;
 import io.quarkus.redis.datasource.keys.ReactiveKeyCommands;
 import io.quarkus.redis.datasource.value.ReactiveValueCommands;
 import io.smallrye.mutiny.Uni;
@@ -10,6 +11,7 @@ import jakarta.inject.Inject;
 import lombok.extern.slf4j.Slf4j;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -23,6 +25,24 @@ import java.util.Optional;
 @ApplicationScoped
 public class RedisHelperImpl implements RedisHelper {
 
+    // KEYS: hash, deltas, rebuild; ARGV: field/value pairs. Run as one script so no increment lands in between
+    private static final String HASH_REPLACE_SCRIPT = """
+            redis.call('DEL', KEYS[3])
+            for i = 1, #ARGV, 2 do
+              redis.call('HSET', KEYS[3], ARGV[i], ARGV[i + 1])
+            end
+            local deltas = redis.call('HGETALL', KEYS[2])
+            for i = 1, #deltas, 2 do
+              redis.call('HINCRBY', KEYS[3], deltas[i], deltas[i + 1])
+            end
+            if redis.call('EXISTS', KEYS[3]) == 1 then
+              redis.call('RENAME', KEYS[3], KEYS[1])
+            else
+              redis.call('DEL', KEYS[1])
+            end
+            return 1
+            """;
+
     private final ReactiveRedisDataSource reactiveDataSource;
     private final Duration defaultTtl;
 
@@ -161,6 +181,16 @@ public class RedisHelperImpl implements RedisHelper {
                 });
     }
 
+    @Override
+    public Uni<Boolean> setIfAbsent(String key, String value, Duration ttl) {
+        // SET NX answers a null reply when the key already exists
+        return reactiveDataSource
+                .execute("SET", key, value, "NX", "PX", String.valueOf(ttl.toMillis()))
+                .map(Objects::nonNull)
+                .onFailure()
+                .invoke(throwable -> log.error("Failed to set key: {} if absent", key, throwable));
+    }
+
     @Override
     public Uni<Long> getTtl(String key) {
         ReactiveKeyCommands<String> keyCommands = reactiveDataSource.key();
@@ -187,6 +217,42 @@ public class RedisHelperImpl implements RedisHelper {
         return increment(key, 1L);
     }
 
+    @Override
+    public Uni<Long> hashIncrement(String key, String field, long delta) {
+        ReactiveHashCommands<String, String, Long> commands = reactiveDataSource.hash(Long.class);
+        return commands.hincrby(key, field, delta)
+                .invoke(newValue -> log.debug("Incremented {}.{} by {} to {}", key, field, delta, newValue))
+                .onFailure()
+                .recoverWithItem(throwable -> {
+                    log.error("Failed to increment field: {} of key: {} by {}", field, key, delta, throwable);
+                    return 0L;
+                });
+    }
+
+    @Override
+    public Uni<Map<String, Long>> hashGetAll(String key) {
+        ReactiveHashCommands<String, String, Long> commands = reactiveDataSource.hash(Long.class);
+        // Not recovered: an empty hash means missing counters, a failed read must not be taken for it
+        return commands.hgetall(key)
+                .onFailure()
+                .invoke(throwable -> log.error("Failed to read hash for key: {}", key, throwable));
+    }
+
+    @Override
+    public Uni<Void> hashReplace(String key, Map<String, Long> values, String deltasKey) {
+        List<String> args = new ArrayList<>(List.of(HASH_REPLACE_SCRIPT, "3", key, deltasKey, key + ":rebuild"));
+        values.forEach((field, value) -> {
+            args.add(field);
+            args.add(String.valueOf(value));
+        });
+        return reactiveDataSource
+                .execute("EVAL", args.toArray(String[]::new))
+                .replaceWithVoid()
+                .invoke(() -> log.debug("Replaced hash for key: {} with {} fields", key, values.size()))
+                .onFailure()
+                .invoke(throwable -> log.error("Failed to replace hash for key: {}", key, throwable));
+    }
+
     @Override
     public Uni<Void> clear() {
         // Note: Redis FLUSHALL is not available in reactive commands
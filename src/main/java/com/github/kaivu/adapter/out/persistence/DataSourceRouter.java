@@ -0,0 +1,271 @@
+package com.github.kaivu.adapter.out.persistence;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.kaivu.config.ConfigsProvider;
+import com.github.kaivu.config.metrics.AppMetrics;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.arc.Arc;
+import io.quarkus.hibernate.reactive.panache.Panache;
+import io.quarkus.reactive.datasource.ReactiveDataSource;
+import io.quarkus.vertx.http.runtime.CurrentVertxRequest;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.Vertx;
+import io.vertx.core.net.SocketAddress;
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.mutiny.pgclient.PgConnection;
+import io.vertx.mutiny.sqlclient.Pool;
+import io.vertx.mutiny.sqlclient.SqlClient;
+import io.vertx.mutiny.sqlclient.SqlConnection;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.HttpHeaders;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Routes repository statements between the primary pool and the read pool ({@code demo} datasource).
+ * Reads issued inside a write transaction stay on the transactional path, and a client that just wrote
+ * keeps reading from the primary for a configurable window so it always sees its own writes.
+ * Reads hold a dedicated connection so that a cancelled subscription (client gone) also cancels the statement
+ * on the server instead of letting it run to completion.
+ */
+@Slf4j
+@ApplicationScoped
+public class DataSourceRouter {
+
+    public static final String READ_DATASOURCE = "demo";
+
+    private static final String PRIMARY = "primary";
+    private static final String REPLICA = "replica";
+
+    private final Pool primaryPool;
+    private final Pool readPool;
+    private final MeterRegistry meterRegistry;
+    private final AppMetrics appMetrics;
+    private final CurrentVertxRequest currentVertxRequest;
+    private final Cache<String, Boolean> stickyClients;
+
+    private final AtomicInteger primaryInFlight = new AtomicInteger();
+    private final AtomicInteger replicaInFlight = new AtomicInteger();
+    private final Timer primaryTimer;
+    private final Timer replicaTimer;
+
+    @Inject
+    public DataSourceRouter(
+            Pool primaryPool,
+            @ReactiveDataSource(READ_DATASOURCE) Pool readPool,
+            MeterRegistry meterRegistry,
+            AppMetrics appMetrics,
+            CurrentVertxRequest currentVertxRequest) {
+        this.primaryPool = primaryPool;
+        this.readPool = readPool;
+        this.meterRegistry = meterRegistry;
+        this.appMetrics = appMetrics;
+        this.currentVertxRequest = currentVertxRequest;
+        this.stickyClients = Caffeine.newBuilder()
+                .expireAfterWrite(ConfigsProvider.READ_ROUTING_STICKY_WINDOW)
+                .maximumSize(100_000)
+                .build();
+
+        this.primaryTimer = registerPoolMetrics(PRIMARY, primaryInFlight);
+        this.replicaTimer = registerPoolMetrics(REPLICA, replicaInFlight);
+    }
+
+    /**
+     * Run a read.
+     *
+     * @param transactional the Hibernate path, used when a write transaction is open on the current context
+     * @param query         the statement to run on a connection of the selected pool otherwise
+     */
+    public <T> Uni<T> read(Supplier<Uni<T>> transactional, Function<SqlClient, Uni<T>> query) {
+        // Resolved on the calling (request) thread, the request context may be gone once the chain resumes
+        boolean primary = !ConfigsProvider.READ_ROUTING_ENABLED || isSticky();
+        return inWriteTransaction()
+                .flatMap(inTransaction -> inTransaction ? transactional.get() : onConnection(primary, query));
+    }
+
+    /**
+     * Run a read on the primary whatever the routing, for reads on the write path (the row about to be merged,
+     * the state explaining a failed conditional write) where replica lag would hand back a stale row.
+     *
+     * @param transactional the Hibernate path, used when a write transaction is open on the current context
+     * @param query         the statement to run on a primary connection otherwise
+     */
+    public <T> Uni<T> readPrimary(Supplier<Uni<T>> transactional, Function<SqlClient, Uni<T>> query) {
+        return inWriteTransaction()
+                .flatMap(inTransaction -> inTransaction ? transactional.get() : onConnection(true, query));
+    }
+
+    /**
+     * Run a read on the primary that never needs the transactional path, for readers that must not miss a
+     * committed row (counter rebuilds, change log consumers).
+     */
+    public <T> Uni<T> readPrimary(Function<SqlClient, Uni<T>> query) {
+        return onConnection(true, query);
+    }
+
+    /**
+     * Run a read that never needs the transactional path (reports).
+     */
+    public <T> Uni<T> read(Function<SqlClient, Uni<T>> query) {
+        return onConnection(!ConfigsProvider.READ_ROUTING_ENABLED || isSticky(), query);
+    }
+
+    /**
+     * Run a statement on the primary pool and open the read-your-writes window of the client.
+     */
+    public <T> Uni<T> write(Function<Pool, Uni<T>> statement) {
+        markWrite();
+        return execute(true, statement);
+    }
+
+    /**
+     * Open the read-your-writes window of the current client, for writes going through Hibernate.
+     */
+    public void markWrite() {
+        String clientKey = currentClientKey();
+        if (clientKey != null) {
+            stickyClients.put(clientKey, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Connection of the routed read pool for long-lived reads (cursors) that manage it themselves.
+     */
+    public Uni<SqlConnection> acquireReadConnection() {
+        return acquire(!ConfigsProvider.READ_ROUTING_ENABLED || isSticky() ? primaryPool : readPool);
+    }
+
+    /**
+     * Ask the server to abort the statement running on the connection, then release the connection.
+     * Finalizer for connections held by a cancelled cursor.
+     */
+    public Uni<Void> cancelAndClose(SqlConnection connection) {
+        return cancelRunning(connection).onTermination().call(connection::close);
+    }
+
+    /**
+     * Borrow a connection from the pool. A connection handed over after the subscriber cancelled is given back
+     * to the pool, the plain Uni conversion would silently drop (and leak) it.
+     */
+    private Uni<SqlConnection> acquire(Pool pool) {
+        return Uni.createFrom().emitter(emitter -> {
+            AtomicReference<SqlConnection> acquired = new AtomicReference<>();
+            emitter.onTermination(() -> {
+                if (emitter.isCancelled()) {
+                    releaseLate(acquired);
+                }
+            });
+            pool.getDelegate().getConnection().onComplete(result -> {
+                if (result.failed()) {
+                    emitter.fail(result.cause());
+                    return;
+                }
+                SqlConnection connection = SqlConnection.newInstance(result.result());
+                acquired.set(connection);
+                if (emitter.isCancelled()) {
+                    releaseLate(acquired);
+                } else {
+                    emitter.complete(connection);
+                }
+            });
+        });
+    }
+
+    private static void releaseLate(AtomicReference<SqlConnection> acquired) {
+        SqlConnection connection = acquired.getAndSet(null);
+        if (connection != null) {
+            connection.closeAndForget();
+        }
+    }
+
+    private Uni<Void> cancelRunning(SqlConnection connection) {
+        appMetrics.recordCancelledQuery();
+        return PgConnection.cast(connection)
+                .cancelRequest()
+                .onFailure()
+                .invoke(failure -> log.warn("Could not cancel the running statement: {}", failure.getMessage()))
+                .onFailure()
+                .recoverWithNull();
+    }
+
+    private <T> Uni<T> onConnection(boolean primary, Function<SqlClient, Uni<T>> query) {
+        return execute(primary, pool -> acquire(pool).flatMap(connection -> query.apply(connection)
+                .onTermination()
+                .call(connection::close)
+                .onCancellation()
+                .call(() -> cancelRunning(connection))));
+    }
+
+    private <T> Uni<T> execute(boolean primary, Function<Pool, Uni<T>> statement) {
+        AtomicInteger inFlight = primary ? primaryInFlight : replicaInFlight;
+        Timer timer = primary ? primaryTimer : replicaTimer;
+        return Uni.createFrom().deferred(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            inFlight.incrementAndGet();
+            appMetrics.incrementActiveConnections();
+            return statement
+                    .apply(primary ? primaryPool : readPool)
+                    .onTermination()
+                    .invoke(() -> {
+                        inFlight.decrementAndGet();
+                        appMetrics.decrementActiveConnections();
+                        sample.stop(timer);
+                    });
+        });
+    }
+
+    private Uni<Boolean> inWriteTransaction() {
+        if (Vertx.currentContext() == null) {
+            return Uni.createFrom().item(Boolean.FALSE);
+        }
+        return Panache.currentTransaction()
+                .map(Objects::nonNull)
+                .onFailure()
+                .recoverWithItem(Boolean.FALSE);
+    }
+
+    private boolean isSticky() {
+        String clientKey = currentClientKey();
+        return clientKey != null && stickyClients.getIfPresent(clientKey) != null;
+    }
+
+    /**
+     * Identify the client by its credentials, or by its address for anonymous calls.
+     * Null outside an HTTP request (scheduled jobs, import workers), which disables stickiness.
+     */
+    private String currentClientKey() {
+        if (!Arc.container().requestContext().isActive()) {
+            return null;
+        }
+        RoutingContext routingContext = currentVertxRequest.getCurrent();
+        if (routingContext == null) {
+            return null;
+        }
+        String authorization = routingContext.request().getHeader(HttpHeaders.AUTHORIZATION);
+        if (authorization != null) {
+            return "auth:" + authorization.hashCode();
+        }
+        SocketAddress remoteAddress = routingContext.request().remoteAddress();
+        return remoteAddress != null ? "ip:" + remoteAddress.host() : null;
+    }
+
+    private Timer registerPoolMetrics(String poolName, AtomicInteger inFlight) {
+        Gauge.builder("db.pool.in_flight", inFlight, AtomicInteger::get)
+                .description("Statements waiting for or holding a connection of the pool")
+                .tag("pool", poolName)
+                .register(meterRegistry);
+        return Timer.builder("db.pool.statement.duration")
+                .description("Statement latency per pool, connection wait included")
+                .tag("pool", poolName)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,168 @@
+package com.github.kaivu.adapter.out.persistence;
+
+import com.github.kaivu.application.port.IEntityDeviceChangeRepository;
+import com.github.kaivu.config.ConfigsProvider;
+import com.github.kaivu.domain.change.ChangeToken;
+import com.github.kaivu.domain.change.EntityDeviceChange;
+import com.github.kaivu.domain.enumeration.ChangeOperation;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.Row;
+import io.vertx.mutiny.sqlclient.RowSet;
+import io.vertx.mutiny.sqlclient.SqlClient;
+import io.vertx.mutiny.sqlclient.Tuple;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Native statements on the change log installed by {@link SchemaObjectsInstaller}.
+ */
+@ApplicationScoped
+public class EntityDeviceChangeRepository implements IEntityDeviceChangeRepository {
+
+    static final String TABLE = ConfigsProvider.DATABASE_SCHEMA + ".entity_device_change";
+
+    static final String HORIZON_TABLE = ConfigsProvider.DATABASE_SCHEMA + ".entity_device_change_horizon";
+
+    private static final String DEVICE_TABLE = ConfigsProvider.DATABASE_SCHEMA + ".entity_device";
+
+    /**
+     * Oldest transaction still running, changes of this transaction and later ones are not readable yet.
+     * The horizon is server wide: any long transaction, in this database or another one of the server, holds back
+     * every later change until it ends, see {@link #heldBackSince()}.
+     */
+    private static final String READABLE = "c.tx_id < pg_snapshot_xmin(pg_current_snapshot())::text::bigint";
+
+    /**
+     * The device columns keep the names {@link EntityDeviceRowMapper} expects, the change columns are aliased.
+     */
+    private static final String SELECT_AFTER = "SELECT c.tx_id, c.id AS change_id, c.device_id, c.operation,"
+            + " c.version AS change_version, c.changed_at, d.*"
+            + " FROM " + TABLE + " c"
+            + " LEFT JOIN LATERAL (SELECT " + EntityDeviceRowMapper.COLUMNS + " FROM " + DEVICE_TABLE
+            + " WHERE id = c.device_id AND c.operation <> 'DELETE') d ON true"
+            + " WHERE (c.tx_id, c.id) > ($1, $2) AND " + READABLE
+            + " ORDER BY c.tx_id, c.id LIMIT $3";
+
+    private static final String SELECT_HEAD =
+            "SELECT c.tx_id, c.id FROM " + TABLE + " c WHERE " + READABLE + " ORDER BY c.tx_id DESC, c.id DESC LIMIT 1";
+
+    private static final String SELECT_HORIZON = "SELECT tx_id, id FROM " + HORIZON_TABLE;
+
+    private static final String SELECT_HELD_BACK =
+            "SELECT MIN(c.changed_at) AS oldest FROM " + TABLE + " c WHERE NOT (" + READABLE + ")";
+
+    private static final String COMPACT = "DELETE FROM " + TABLE + " c"
+            + " WHERE c.changed_at < CURRENT_TIMESTAMP - $1::interval"
+            + " AND EXISTS (SELECT 1 FROM " + TABLE + " n"
+            + " WHERE n.device_id = c.device_id AND (n.tx_id, n.id) > (c.tx_id, c.id))";
+
+    /**
+     * Deletes and moves the horizon in one statement, a reader never sees purged changes with the old horizon.
+     */
+    private static final String PURGE = "WITH purged AS (DELETE FROM " + TABLE
+            + " WHERE changed_at < CURRENT_TIMESTAMP - $1::interval RETURNING tx_id, id),"
+            + " last_purged AS (SELECT tx_id, id FROM purged ORDER BY tx_id DESC, id DESC LIMIT 1),"
+            + " moved AS (INSERT INTO " + HORIZON_TABLE + " AS h (singleton, tx_id, id)"
+            + " SELECT true, tx_id, id FROM last_purged"
+            + " ON CONFLICT (singleton) DO UPDATE SET tx_id = EXCLUDED.tx_id, id = EXCLUDED.id"
+            + " WHERE (h.tx_id, h.id) < (EXCLUDED.tx_id, EXCLUDED.id))"
+            + " SELECT COUNT(*) FROM purged";
+
+    @Inject
+    DataSourceRouter dataSourceRouter;
+
+    @Override
+    public Uni<List<EntityDeviceChange>> findAfter(ChangeToken since, int limit) {
+        return dataSourceRouter.read(client -> queryAfter(client, since, limit));
+    }
+
+    @Override
+    public Uni<List<EntityDeviceChange>> findLatestAfter(ChangeToken since, int limit) {
+        return dataSourceRouter.readPrimary(client -> queryAfter(client, since, limit));
+    }
+
+    @Override
+    public Uni<ChangeToken> head() {
+        return dataSourceRouter.read(EntityDeviceChangeRepository::queryHead);
+    }
+
+    @Override
+    public Uni<ChangeToken> latestHead() {
+        return dataSourceRouter.readPrimary(EntityDeviceChangeRepository::queryHead);
+    }
+
+    @Override
+    public Uni<ChangeToken> horizon() {
+        // A lagging replica shows an older horizon together with the changes it has not purged yet
+        return dataSourceRouter.read(client -> client.query(SELECT_HORIZON)
+                .execute()
+                .map(rows -> rows.rowCount() == 0
+                        ? ChangeToken.origin()
+                        : toToken(rows.iterator().next(), "id")));
+    }
+
+    @Override
+    public Uni<Instant> heldBackSince() {
+        // Committed changes are visible on the primary first, the replica would report a lower lag
+        return dataSourceRouter.readPrimary(client -> client.query(SELECT_HELD_BACK)
+                .execute()
+                .map(rows -> {
+                    OffsetDateTime oldest = rows.iterator().next().getOffsetDateTime("oldest");
+                    return oldest != null ? oldest.toInstant() : null;
+                }));
+    }
+
+    @Override
+    public Uni<Long> compact(Duration olderThan) {
+        return dataSourceRouter.write(pool -> pool.preparedQuery(COMPACT)
+                .execute(Tuple.of(toInterval(olderThan)))
+                .map(rows -> (long) rows.rowCount()));
+    }
+
+    @Override
+    public Uni<Long> purge(Duration olderThan) {
+        return dataSourceRouter.write(pool -> pool.preparedQuery(PURGE)
+                .execute(Tuple.of(toInterval(olderThan)))
+                .map(rows -> rows.iterator().next().getLong(0)));
+    }
+
+    private static Uni<List<EntityDeviceChange>> queryAfter(SqlClient client, ChangeToken since, int limit) {
+        return client.preparedQuery(SELECT_AFTER)
+                .execute(Tuple.of(since.txId(), since.id(), limit))
+                .map(EntityDeviceChangeRepository::toChanges);
+    }
+
+    private static Uni<ChangeToken> queryHead(SqlClient client) {
+        return client.query(SELECT_HEAD)
+                .execute()
+                .map(rows -> rows.rowCount() == 0 ? null : toToken(rows.iterator().next(), "id"));
+    }
+
+    private static List<EntityDeviceChange> toChanges(RowSet<Row> rows) {
+        List<EntityDeviceChange> changes = new ArrayList<>(rows.rowCount());
+        for (Row row : rows) {
+            changes.add(new EntityDeviceChange(
+                    toToken(row, "change_id"),
+                    row.getUUID("device_id"),
+                    ChangeOperation.valueOf(row.getString("operation")),
+                    row.getLong("change_version"),
+                    row.getOffsetDateTime("changed_at").toInstant(),
+                    row.getUUID("id") != null ? EntityDeviceRowMapper.toEntity(row) : null));
+        }
+        return changes;
+    }
+
+    private static ChangeToken toToken(Row row, String idColumn) {
+        return new ChangeToken(row.getLong("tx_id"), row.getLong(idColumn));
+    }
+
+    private static String toInterval(Duration duration) {
+        return duration.toMillis() + " milliseconds";
+    }
+}
@@ -0,0 +1,98 @@
+package com.github.kaivu.adapter.out.persistence;
+
+import com.github.kaivu.application.port.IEntityDeviceOutboxRepository;
+import com.github.kaivu.config.ConfigsProvider;
+import com.github.kaivu.domain.change.EntityDeviceEvent;
+import com.github.kaivu.domain.change.OutboxBacklog;
+import com.github.kaivu.domain.enumeration.ChangeOperation;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.Row;
+import io.vertx.mutiny.sqlclient.RowSet;
+import io.vertx.mutiny.sqlclient.Tuple;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Native statements on the outbox installed by {@link SchemaObjectsInstaller}.
+ */
+@ApplicationScoped
+public class EntityDeviceOutboxRepository implements IEntityDeviceOutboxRepository {
+
+    static final String TABLE = ConfigsProvider.DATABASE_SCHEMA + ".entity_device_outbox";
+
+    /**
+     * Claimed rows are leased rather than deleted, so the claim commits before the handler runs and no transaction
+     * stays open across it. A relay dying mid-batch leaves the lease to expire and the batch is claimed again.
+     */
+    private static final String CLAIM = "UPDATE " + TABLE
+            + " SET claimed_until = clock_timestamp() + $2 * interval '1 millisecond'"
+            + " WHERE id IN (SELECT id FROM " + TABLE
+            + " WHERE claimed_until IS NULL OR claimed_until < clock_timestamp()"
+            + " ORDER BY id LIMIT $1 FOR UPDATE SKIP LOCKED)"
+            + " RETURNING id, device_id, operation, version, created_at";
+
+    private static final String ACKNOWLEDGE = "DELETE FROM " + TABLE + " WHERE id = ANY($1)";
+
+    private static final String RELEASE = "UPDATE " + TABLE + " SET claimed_until = NULL WHERE id = ANY($1)";
+
+    private static final String BACKLOG = "SELECT COUNT(*) AS pending, MIN(created_at) AS oldest FROM " + TABLE;
+
+    @Inject
+    DataSourceRouter dataSourceRouter;
+
+    @Override
+    public Uni<Integer> drain(int batchSize, Function<List<EntityDeviceEvent>, Uni<Void>> handler) {
+        long lease = ConfigsProvider.ENTITY_DEVICE_OUTBOX_CLAIM_TIMEOUT.toMillis();
+        return dataSourceRouter.write(pool -> pool.preparedQuery(CLAIM)
+                .execute(Tuple.of(batchSize, lease))
+                .map(EntityDeviceOutboxRepository::toEvents)
+                .flatMap(events -> {
+                    if (events.isEmpty()) {
+                        return Uni.createFrom().item(0);
+                    }
+                    Tuple ids = Tuple.tuple()
+                            .addArrayOfLong(
+                                    events.stream().map(EntityDeviceEvent::id).toArray(Long[]::new));
+                    return handler.apply(events)
+                            // Back in the queue right away, the lease would only delay the retry
+                            .onFailure()
+                            .call(failure -> pool.preparedQuery(RELEASE)
+                                    .execute(ids)
+                                    .onFailure()
+                                    .recoverWithNull())
+                            .chain(() -> pool.preparedQuery(ACKNOWLEDGE).execute(ids))
+                            .replaceWith(events.size());
+                }));
+    }
+
+    @Override
+    public Uni<OutboxBacklog> backlog() {
+        // On the primary, a replica would report the events already relayed as pending
+        return dataSourceRouter.write(pool -> pool.query(BACKLOG).execute().map(rows -> {
+            Row row = rows.iterator().next();
+            OffsetDateTime oldest = row.getOffsetDateTime("oldest");
+            return new OutboxBacklog(row.getLong("pending"), oldest != null ? oldest.toInstant() : null);
+        }));
+    }
+
+    private static List<EntityDeviceEvent> toEvents(RowSet<Row> rows) {
+        List<EntityDeviceEvent> events = new ArrayList<>(rows.rowCount());
+        for (Row row : rows) {
+            events.add(new EntityDeviceEvent(
+                    row.getLong("id"),
+                    row.getUUID("device_id"),
+                    ChangeOperation.valueOf(row.getString("operation")),
+                    row.getLong("version"),
+                    row.getOffsetDateTime("created_at").toInstant()));
+        }
+        // RETURNING gives no order guarantee
+        events.sort(Comparator.comparingLong(EntityDeviceEvent::id));
+        return events;
+    }
+}
@@ -2,15 +2,33 @@ package com.github.kaivu.adapter.out.persistence;
 
 import com.github.kaivu.adapter.in.rest.dto.request.PageableRequest;
 import com.github.kaivu.application.port.IEntityDeviceRepository;
+import com.github.kaivu.config.ConfigsProvider;
 import com.github.kaivu.domain.EntityDevice;
+import com.github.kaivu.domain.audit.AuditListener;
+import com.github.kaivu.domain.enumeration.ActionStatus;
+import com.github.kaivu.domain.generator.UuidV7Generator;
+import com.github.kaivu.domain.patch.MetadataPatch;
+import com.github.kaivu.domain.projection.EntityDeviceSummary;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.Row;
+import io.vertx.mutiny.sqlclient.RowSet;
+import io.vertx.mutiny.sqlclient.SqlClient;
+import io.vertx.mutiny.sqlclient.SqlConnection;
+import io.vertx.mutiny.sqlclient.Tuple;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import org.hibernate.reactive.mutiny.Mutiny;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.function.Function;
 
 /**
  * Created by Khoa Vu.
@@ -21,15 +39,115 @@ import java.util.UUID;
 @ApplicationScoped
 public class EntityDeviceRepository implements IEntityDeviceRepository {
 
+    private static final String TABLE = ConfigsProvider.DATABASE_SCHEMA + ".entity_device";
+
+    private static final String UPDATE_IF_VERSION = "UPDATE " + TABLE
+            + " SET name = $1, description = $2, version = version + 1,"
+            + " last_modified_by = $3, last_modified_date = CURRENT_TIMESTAMP"
+            + " WHERE id = $4 AND version = ANY($5) AND status <> $6"
+            + " RETURNING " + EntityDeviceRowMapper.COLUMNS;
+
+    /**
+     * Row lock and patched document computed in the CTE, so the patch is applied to the committed value and a
+     * NULL document (failed test) writes nothing. {@code %s} are the patched document and the optional version
+     * condition.
+     */
+    private static final String PATCH_METADATA = "WITH patched AS (SELECT id AS patched_id, %s AS doc FROM " + TABLE
+            + " WHERE id = $1 AND status <> $2%s FOR UPDATE)"
+            + " UPDATE " + TABLE
+            + " SET metadata = patched.doc, version = version + 1,"
+            + " last_modified_by = $3, last_modified_date = CURRENT_TIMESTAMP"
+            + " FROM patched WHERE id = patched.patched_id AND patched.doc IS NOT NULL"
+            + " RETURNING " + EntityDeviceRowMapper.COLUMNS;
+
+    private static final String SELECT_ALL =
+            "SELECT " + EntityDeviceRowMapper.COLUMNS + " FROM " + TABLE + " WHERE status <> $1";
+
+    private static final String SELECT_BY_ID =
+            "SELECT " + EntityDeviceRowMapper.COLUMNS + " FROM " + TABLE + " WHERE id = $1";
+
+    private static final String SELECT_BY_NAME = SELECT_ALL + " AND name = $2";
+
+    private static final String SELECT_SUMMARIES =
+            "SELECT " + EntityDeviceRowMapper.SUMMARY_COLUMNS + " FROM " + TABLE + " WHERE status <> $1";
+
+    private static final String COUNT_BY_STATUS =
+            "SELECT status, COUNT(*) AS total FROM " + TABLE + " GROUP BY status";
+
+    // Days are UTC whatever the session time zone, as the counters incremented by the service
+    private static final String COUNT_CREATED_PER_DAY =
+            "SELECT (created_date AT TIME ZONE 'UTC')::date AS day, COUNT(*) AS total FROM " + TABLE
+                    + " WHERE created_date >= $1::timestamp AT TIME ZONE 'UTC' GROUP BY day";
+
+    private static final String COUNT_ALL = "SELECT COUNT(*) FROM " + TABLE + " WHERE status <> $1";
+
+    private static final String INSERT_ALL = "INSERT INTO " + TABLE + " AS ed"
+            + " (id, name, description, status, metadata, version,"
+            + " created_by, created_date, last_modified_by, last_modified_date)"
+            + " SELECT t.id, t.name, t.description, $4::varchar, '{}'::jsonb, 0,"
+            + " $5::varchar, CURRENT_TIMESTAMP, $5::varchar, CURRENT_TIMESTAMP"
+            + " FROM UNNEST($1::uuid[], $2::varchar[], $3::varchar[]) AS t (id, name, description)";
+
+    private static final String INSERT_ALL_SKIP_EXISTING =
+            INSERT_ALL + " ON CONFLICT (name) DO NOTHING RETURNING " + EntityDeviceRowMapper.COLUMNS;
+
+    private static final String INSERT_ALL_UPDATE_EXISTING = INSERT_ALL
+            + " ON CONFLICT (name) DO UPDATE SET description = EXCLUDED.description, version = ed.version + 1,"
+            + " last_modified_by = EXCLUDED.last_modified_by, last_modified_date = EXCLUDED.last_modified_date"
+            + " WHERE ed.status <> $6"
+            + " RETURNING " + EntityDeviceRowMapper.COLUMNS;
+
+    private static final Map<String, String> SORTABLE_ATTRIBUTES = Map.of(
+            "id", "ed.id",
+            "name", "ed.name",
+            "description", "ed.description",
+            "status", "ed.status",
+            "version", "ed.version",
+            "createdBy", "ed.createdBy",
+            "createdDate", "ed.createdDate",
+            "lastModifiedDate", "ed.lastModifiedDate");
+
+    private static final Map<String, String> SORTABLE_COLUMNS = Map.of(
+            "id", "id",
+            "name", "name",
+            "description", "description",
+            "status", "status",
+            "version", "version",
+            "createdBy", "created_by",
+            "createdDate", "created_date",
+            "lastModifiedDate", "last_modified_date");
+
+    private static final String DEFAULT_SORT = "createdDate";
+
     @Inject
     Mutiny.SessionFactory sessionFactory;
 
+    @Inject
+    DataSourceRouter dataSourceRouter;
+
+    /**
+     * Inside a write transaction the managed instance is needed (e.g. for remove), otherwise the row is read
+     * from the routed pool.
+     */
     @Override
     public Uni<Optional<EntityDevice>> findById(UUID identity) {
+        return dataSourceRouter.read(() -> findManaged(identity), client -> findById(client, identity));
+    }
+
+    @Override
+    public Uni<Optional<EntityDevice>> findLatestById(UUID identity) {
+        return dataSourceRouter.readPrimary(() -> findManaged(identity), client -> findById(client, identity));
+    }
+
+    private Uni<Optional<EntityDevice>> findManaged(UUID identity) {
         return sessionFactory.withTransaction(
                 (session, tx) -> session.find(EntityDevice.class, identity).map(Optional::ofNullable));
     }
 
+    private static Uni<Optional<EntityDevice>> findById(SqlClient client, UUID identity) {
+        return client.preparedQuery(SELECT_BY_ID).execute(Tuple.of(identity)).map(EntityDeviceRepository::firstEntity);
+    }
+
     @Override
     public Uni<List<EntityDevice>> findByIds(List<UUID> identities) {
         return sessionFactory.withTransaction((session, tx) -> session.createQuery(
@@ -39,40 +157,130 @@ public class EntityDeviceRepository implements IEntityDeviceRepository {
     }
 
     public Uni<Optional<EntityDevice>> findByName(String name) {
-        return sessionFactory.withTransaction((session, tx) -> session.createQuery(
-                        "FROM EntityDevice ed WHERE LOWER(ed.name) = LOWER(:name)", EntityDevice.class)
-                .setParameter("name", name)
-                .getSingleResultOrNull()
-                .map(Optional::ofNullable));
+        return dataSourceRouter.read(
+                () -> sessionFactory.withTransaction((session, tx) -> session.createQuery(
+                                "FROM EntityDevice ed WHERE LOWER(ed.name) = LOWER(:name)", EntityDevice.class)
+                        .setParameter("name", name)
+                        .getSingleResultOrNull()
+                        .map(Optional::ofNullable)),
+                // Names are stored lower-cased, an equality keeps the unique index usable
+                client -> client.preparedQuery(SELECT_BY_NAME)
+                        .execute(Tuple.of(ActionStatus.DELETED.name(), name.toLowerCase()))
+                        .map(EntityDeviceRepository::firstEntity));
     }
 
+    /**
+     * Insert and flush immediately so a duplicate name surfaces here as a unique violation
+     * on {@link EntityDevice#NAME_UNIQUE_INDEX} instead of at commit time.
+     */
     @Override
     public Uni<EntityDevice> persist(EntityDevice entity) {
+        dataSourceRouter.markWrite();
         return sessionFactory.withTransaction(
-                (session, tx) -> session.persist(entity).replaceWith(entity));
+                (session, tx) -> session.persist(entity).call(session::flush).replaceWith(entity));
     }
 
+    /**
+     * New entities need no merge, persistAll skips the per-entity SELECT and lets the inserts be JDBC-batched.
+     */
     @Override
     public Uni<List<EntityDevice>> persist(List<EntityDevice> entities) {
-        return sessionFactory.withTransaction(
-                (session, tx) -> session.mergeAll(entities.toArray()).replaceWith(entities));
+        dataSourceRouter.markWrite();
+        return sessionFactory.withTransaction((session, tx) ->
+                session.persistAll(entities.toArray()).call(session::flush).replaceWith(entities));
     }
 
+    /**
+     * Merge and flush, the returned managed copy carries the incremented version.
+     */
     @Override
     public Uni<EntityDevice> update(EntityDevice entity) {
-        return sessionFactory.withTransaction(
-                (session, tx) -> session.merge(entity).replaceWith(entity));
+        dataSourceRouter.markWrite();
+        return sessionFactory.withTransaction((session, tx) -> session.merge(entity).call(session::flush));
+    }
+
+    /**
+     * Compare-and-set in a single auto-committed statement, no prior read and no Hibernate session involved.
+     */
+    @Override
+    public Uni<Optional<EntityDevice>> updateIfVersion(
+            UUID id, List<Long> expectedVersions, String name, String description) {
+        Tuple params = Tuple.tuple()
+                .addString(name.toLowerCase())
+                .addString(description)
+                .addString(AuditListener.getCurrentUser())
+                .addUUID(id)
+                .addArrayOfLong(expectedVersions.toArray(Long[]::new))
+                .addString(ActionStatus.DELETED.name());
+
+        return dataSourceRouter.write(pool ->
+                pool.preparedQuery(UPDATE_IF_VERSION).execute(params).map(EntityDeviceRepository::firstEntity));
+    }
+
+    /**
+     * Patch the metadata in the database in a single statement, the document never travels to the application.
+     */
+    @Override
+    public Uni<Optional<EntityDevice>> patchMetadata(UUID id, MetadataPatch patch, List<Long> expectedVersions) {
+        Tuple params = Tuple.tuple()
+                .addUUID(id)
+                .addString(ActionStatus.DELETED.name())
+                .addString(AuditListener.getCurrentUser());
+        String versionCondition = "";
+        if (expectedVersions != null) {
+            params.addArrayOfLong(expectedVersions.toArray(Long[]::new));
+            versionCondition = " AND version = ANY($" + params.size() + ")";
+        }
+        String document = new MetadataPatchSql(params).compile("metadata", patch);
+        String statement = String.format(PATCH_METADATA, document, versionCondition);
+
+        return dataSourceRouter.write(
+                pool -> pool.preparedQuery(statement).execute(params).map(EntityDeviceRepository::firstEntity));
     }
 
     @Override
     public Uni<List<EntityDevice>> update(List<EntityDevice> entities) {
+        dataSourceRouter.markWrite();
         return sessionFactory.withTransaction(
                 (session, tx) -> session.mergeAll(entities.toArray()).replaceWith(entities));
     }
 
+    /**
+     * Write all devices with one multi-row INSERT ... ON CONFLICT statement, whatever the batch size.
+     * Devices whose name already exists are skipped, or have their description updated when {@code upsert}
+     * is set; they are absent from the result when nothing was written for them.
+     */
     @Override
-    public Uni<Void> delete(EntityDevice entity) {
+    public Uni<List<EntityDevice>> insertAll(List<EntityDevice> entities, boolean upsert) {
+        UUID[] ids = new UUID[entities.size()];
+        String[] names = new String[entities.size()];
+        String[] descriptions = new String[entities.size()];
+        for (int i = 0; i < entities.size(); i++) {
+            EntityDevice entity = entities.get(i);
+            ids[i] = entity.getId() != null ? entity.getId() : UuidV7Generator.next();
+            names[i] = entity.getName().toLowerCase();
+            descriptions[i] = entity.getDescription();
+        }
+
+        Tuple params = Tuple.tuple()
+                .addArrayOfUUID(ids)
+                .addArrayOfString(names)
+                .addArrayOfString(descriptions)
+                .addString(ActionStatus.ACTIVATED.name())
+                .addString(AuditListener.getCurrentUser());
+        if (upsert) {
+            params.addString(ActionStatus.DELETED.name());
+        }
 
+        String statement = upsert ? INSERT_ALL_UPDATE_EXISTING : INSERT_ALL_SKIP_EXISTING;
+        return dataSourceRouter.write(pool -> pool.preparedQuery(statement)
+                .execute(params)
+                .map(rows -> toList(rows, EntityDeviceRowMapper::toEntity)));
+    }
+
+    @Override
+    public Uni<Void> delete(EntityDevice entity) {
+        dataSourceRouter.markWrite();
         return sessionFactory.withTransaction(
                 (session, tx) -> session.remove(entity).replaceWithVoid());
     }
@@ -84,17 +292,78 @@ public class EntityDeviceRepository implements IEntityDeviceRepository {
         StringBuilder filtersQuery = new StringBuilder();
         Optional.ofNullable(pageable.getKeyword())
                 .ifPresent(keyword -> filtersQuery.append("AND ed.name LIKE :keyword "));
-        return sessionFactory.withTransaction((session, tx) -> {
-            Mutiny.SelectionQuery<EntityDevice> sessionQuery =
-                    session.createQuery(selectQuery + filtersQuery, EntityDevice.class);
-            Optional.ofNullable(pageable.getKeyword())
-                    .ifPresent(keyword -> sessionQuery.setParameter("keyword", "%" + keyword.toLowerCase() + "%"));
-            return sessionQuery
-                    .setFirstResult(pageable.getOffset())
-                    .setMaxResults(pageable.getSize())
-                    .setOrder(List.copyOf(pageable.toOrders("ed", EntityDevice.class)))
-                    .getResultList();
-        });
+        return dataSourceRouter.read(
+                () -> sessionFactory.withTransaction((session, tx) -> {
+                    Mutiny.SelectionQuery<EntityDevice> sessionQuery =
+                            session.createQuery(selectQuery + filtersQuery, EntityDevice.class);
+                    Optional.ofNullable(pageable.getKeyword())
+                            .ifPresent(keyword ->
+                                    sessionQuery.setParameter("keyword", "%" + keyword.toLowerCase() + "%"));
+                    return sessionQuery
+                            .setFirstResult(pageable.getOffset())
+                            .setMaxResults(pageable.getSize())
+                            .setOrder(List.copyOf(pageable.toOrders("ed", EntityDevice.class)))
+                            .getResultList();
+                }),
+                client -> pagedQuery(client, SELECT_ALL, pageable, EntityDeviceRowMapper::toEntity));
+    }
+
+    /**
+     * A cursor only lives inside a transaction, so the stream holds its own connection until it completes,
+     * fails or is cancelled (client disconnect); the finalizer closes it, which rolls the read back. On cancellation
+     * the running fetch is cancelled on the server first.
+     */
+    @Override
+    public Multi<EntityDevice> streamAll(PageableRequest pageable, int fetchSize) {
+        StringBuilder query = new StringBuilder(SELECT_ALL);
+        Tuple params = filterParams(pageable, query);
+        query.append(" ORDER BY id");
+
+        return Multi.createFrom()
+                .resourceFromUni(
+                        dataSourceRouter::acquireReadConnection,
+                        (SqlConnection connection) -> connection
+                                .begin()
+                                .onItem()
+                                .transformToMulti(tx -> connection
+                                        .prepare(query.toString())
+                                        .onItem()
+                                        .transformToMulti(statement ->
+                                                statement.createStream(fetchSize, params).toMulti())))
+                .withFinalizer(
+                        SqlConnection::close,
+                        (connection, failure) -> connection.close(),
+                        dataSourceRouter::cancelAndClose)
+                .map(EntityDeviceRowMapper::toEntity);
+    }
+
+    /**
+     * Constructor-expression query in a stateless session: no persistence context, no snapshot for dirty
+     * checking and no jsonb decoding, only the listing columns are read.
+     */
+    @Override
+    public Uni<List<EntityDeviceSummary>> findAllSummaries(PageableRequest pageable) {
+        StringBuilder query = new StringBuilder("SELECT new " + EntityDeviceSummary.class.getName()
+                + "(ed.id, ed.name, ed.version, ed.createdBy, ed.createdDate) FROM EntityDevice ed"
+                // Stated explicitly, session filters are not guaranteed on stateless sessions
+                + " WHERE ed.status <> :statusDeleted ");
+        Optional.ofNullable(pageable.getKeyword()).ifPresent(keyword -> query.append("AND ed.name LIKE :keyword "));
+        query.append(pageable.toOrderByClause(DEFAULT_SORT, SORTABLE_ATTRIBUTES));
+
+        return dataSourceRouter.read(
+                () -> sessionFactory.withStatelessSession(session -> {
+                    Mutiny.SelectionQuery<EntityDeviceSummary> sessionQuery =
+                            session.createQuery(query.toString(), EntityDeviceSummary.class);
+                    sessionQuery.setParameter("statusDeleted", ActionStatus.DELETED);
+                    Optional.ofNullable(pageable.getKeyword())
+                            .ifPresent(keyword ->
+                                    sessionQuery.setParameter("keyword", "%" + keyword.toLowerCase() + "%"));
+                    return sessionQuery
+                            .setFirstResult(pageable.getOffset())
+                            .setMaxResults(pageable.getSize())
+                            .getResultList();
+                }),
+                client -> pagedQuery(client, SELECT_SUMMARIES, pageable, EntityDeviceRowMapper::toSummary));
     }
 
     @Override
@@ -104,11 +373,86 @@ public class EntityDeviceRepository implements IEntityDeviceRepository {
         Optional.ofNullable(pageable.getKeyword())
                 .ifPresent(keyword -> filtersQuery.append("AND ed.name LIKE :keyword "));
 
-        return sessionFactory.withTransaction((session, tx) -> {
-            Mutiny.SelectionQuery<Long> sessionCount = session.createQuery(countQuery + filtersQuery, Long.class);
-            Optional.ofNullable(pageable.getKeyword())
-                    .ifPresent(keyword -> sessionCount.setParameter("keyword", "%" + keyword.toLowerCase() + "%"));
-            return sessionCount.getSingleResult();
+        return dataSourceRouter.read(
+                () -> sessionFactory.withTransaction((session, tx) -> {
+                    Mutiny.SelectionQuery<Long> sessionCount =
+                            session.createQuery(countQuery + filtersQuery, Long.class);
+                    Optional.ofNullable(pageable.getKeyword())
+                            .ifPresent(keyword ->
+                                    sessionCount.setParameter("keyword", "%" + keyword.toLowerCase() + "%"));
+                    return sessionCount.getSingleResult();
+                }),
+                client -> {
+                    StringBuilder query = new StringBuilder(COUNT_ALL);
+                    Tuple params = filterParams(pageable, query);
+                    return client.preparedQuery(query.toString())
+                            .execute(params)
+                            .map(rows -> rows.iterator().next().getLong(0));
+                });
+    }
+
+    /**
+     * Counts rebuild the statistics counters, they are read from the primary so no recent write is missed.
+     */
+    @Override
+    public Uni<Map<ActionStatus, Long>> countByStatus() {
+        return dataSourceRouter.readPrimary(client -> client.query(COUNT_BY_STATUS).execute().map(rows -> {
+            Map<ActionStatus, Long> counts = new EnumMap<>(ActionStatus.class);
+            rows.forEach(row -> counts.put(ActionStatus.valueOf(row.getString("status")), row.getLong("total")));
+            return counts;
+        }));
+    }
+
+    @Override
+    public Uni<Map<LocalDate, Long>> countCreatedPerDay(LocalDate since) {
+        return dataSourceRouter.readPrimary(client -> client.preparedQuery(COUNT_CREATED_PER_DAY)
+                .execute(Tuple.of(since))
+                .map(rows -> {
+                    Map<LocalDate, Long> counts = new TreeMap<>();
+                    rows.forEach(row -> counts.put(row.getLocalDate("day"), row.getLong("total")));
+                    return counts;
+                }));
+    }
+
+    /**
+     * Native page query on a routed connection, same keyword filter and whitelisted sort as the HQL variants.
+     */
+    private static <T> Uni<List<T>> pagedQuery(
+            SqlClient client, String select, PageableRequest pageable, Function<Row, T> mapper) {
+        StringBuilder query = new StringBuilder(select);
+        Tuple params = filterParams(pageable, query);
+        query.append(pageable.toOrderByClause(DEFAULT_SORT, SORTABLE_COLUMNS))
+                .append(" LIMIT $")
+                .append(params.size() + 1)
+                .append(" OFFSET $")
+                .append(params.size() + 2);
+        params.addInteger(pageable.getSize()).addInteger(pageable.getOffset());
+
+        return client.preparedQuery(query.toString()).execute(params).map(rows -> toList(rows, mapper));
+    }
+
+    /**
+     * Append the keyword filter to a query whose first parameter is the deleted status.
+     */
+    private static Tuple filterParams(PageableRequest pageable, StringBuilder query) {
+        Tuple params = Tuple.of(ActionStatus.DELETED.name());
+        Optional.ofNullable(pageable.getKeyword()).ifPresent(keyword -> {
+            query.append(" AND name LIKE $2");
+            params.addString("%" + keyword.toLowerCase() + "%");
         });
+        return params;
+    }
+
+    private static Optional<EntityDevice> firstEntity(RowSet<Row> rows) {
+        if (rows.rowCount() == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(EntityDeviceRowMapper.toEntity(rows.iterator().next()));
+    }
+
+    private static <T> List<T> toList(RowSet<Row> rows, Function<Row, T> mapper) {
+        List<T> items = new ArrayList<>(rows.rowCount());
+        rows.forEach(row -> items.add(mapper.apply(row)));
+        return items;
     }
 }
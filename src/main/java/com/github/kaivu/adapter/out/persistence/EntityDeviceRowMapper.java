@@ -0,0 +1,68 @@
+package com.github.kaivu.adapter.out.persistence;
+
+import com.github.kaivu.domain.EntityDevice;
+import com.github.kaivu.domain.enumeration.ActionStatus;
+import com.github.kaivu.domain.projection.EntityDeviceSummary;
+import com.github.kaivu.domain.type.JsonMetadata;
+import io.vertx.mutiny.sqlclient.Row;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Maps rows of native {@code entity_device} statements back to detached {@link EntityDevice} instances.
+ */
+public final class EntityDeviceRowMapper {
+
+    /**
+     * Column list every native statement selects or returns, in the order {@link #toEntity(Row)} expects.
+     * The metadata is fetched as text so the driver does not decode it, see {@link JsonMetadata}.
+     */
+    public static final String COLUMNS = "id, name, description, status, metadata::text AS metadata, version, "
+            + "created_by, created_date, last_modified_by, last_modified_date";
+
+    /**
+     * Column list of {@link #toSummary(Row)}.
+     */
+    public static final String SUMMARY_COLUMNS = "id, name, version, created_by, created_date";
+
+    private EntityDeviceRowMapper() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    public static EntityDevice toEntity(Row row) {
+        EntityDevice entity = new EntityDevice();
+        entity.setId(row.getUUID("id"));
+        entity.setName(row.getString("name"));
+        entity.setDescription(row.getString("description"));
+        entity.setStatus(ActionStatus.valueOf(row.getString("status")));
+        entity.setMetadata(JsonMetadata.ofJson(row.getString("metadata")));
+        entity.setVersion(row.getLong("version"));
+        entity.setCreatedBy(row.getString("created_by"));
+        entity.setCreatedDate(toInstant(row.getValue("created_date")));
+        entity.setLastModifiedBy(row.getString("last_modified_by"));
+        entity.setLastModifiedDate(toInstant(row.getValue("last_modified_date")));
+        return entity;
+    }
+
+    public static EntityDeviceSummary toSummary(Row row) {
+        return new EntityDeviceSummary(
+                row.getUUID("id"),
+                row.getString("name"),
+                row.getLong("version"),
+                row.getString("created_by"),
+                toInstant(row.getValue("created_date")));
+    }
+
+    private static Instant toInstant(Object value) {
+        if (value instanceof OffsetDateTime offsetDateTime) {
+            return offsetDateTime.toInstant();
+        }
+        if (value instanceof LocalDateTime localDateTime) {
+            return localDateTime.toInstant(ZoneOffset.UTC);
+        }
+        return null;
+    }
+}
@@ -21,6 +21,11 @@ import java.util.Optional;
 @ApplicationScoped
 public class MediaFileRepository implements PanacheRepositoryBase<MediaFile, Long>, IMediaFileRepository {
 
+    /**
+     * Entries are keyed by bucket and object name under this prefix.
+     */
+    public static final String CACHE_PREFIX = "MediaFile";
+
     private final CacheService cacheService;
 
     @Inject
@@ -29,7 +34,7 @@ public class MediaFileRepository implements PanacheRepositoryBase<MediaFile, Lon
     }
 
     private String getCachePrefix() {
-        return "MediaFile";
+        return CACHE_PREFIX;
     }
 
     @Override
@@ -0,0 +1,130 @@
+package com.github.kaivu.adapter.out.persistence;
+
+import com.github.kaivu.domain.patch.MetadataPatch;
+import io.vertx.core.json.Json;
+import io.vertx.mutiny.sqlclient.Tuple;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiles a {@link MetadataPatch} into one jsonb expression over the stored document, built from
+ * {@code jsonb_set}, {@code jsonb_insert} and {@code #-}. Paths and values are bound as parameters appended to
+ * the given tuple.
+ * <p>
+ * Every operation references the previous expression once: operations that need the intermediate document twice
+ * (copy, move, test, replace, remove, merge into an object, add at an array position) read it through a one-row
+ * sub-select, so the statement grows linearly with the patch. A failed test, a missing target of replace/remove or
+ * a missing source of copy/move turns the document into NULL, as RFC 6902 requires the patch to fail.
+ * Missing parents of add are ignored, as {@code jsonb_set} does, instead of failing the patch.
+ */
+final class MetadataPatchSql {
+
+    private final Tuple params;
+
+    MetadataPatchSql(Tuple params) {
+        this.params = params;
+    }
+
+    String compile(String document, MetadataPatch patch) {
+        String expression = document;
+        for (MetadataPatch.Operation operation : patch.operations()) {
+            expression = apply(expression, operation);
+        }
+        return expression;
+    }
+
+    private String apply(String document, MetadataPatch.Operation operation) {
+        List<String> path = operation.path();
+        return switch (operation.kind()) {
+            case ADD -> path.isEmpty() ? value(operation.value()) : addTo(document, path, value(operation.value()));
+            case REPLACE -> {
+                if (path.isEmpty()) {
+                    yield value(operation.value());
+                }
+                String target = path(path);
+                yield scoped(
+                        document,
+                        existing(target, "jsonb_set(d, " + target + ", " + value(operation.value()) + ", false)"));
+            }
+            case REMOVE -> {
+                String target = path(path);
+                yield scoped(document, existing(target, "d #- " + target));
+            }
+            case REMOVE_IF_PRESENT -> "(" + document + " #- " + path(path) + ")";
+            case ENSURE_OBJECT -> {
+                String target = path(path);
+                yield scoped(
+                        document,
+                        "jsonb_set(d, " + target + ", CASE WHEN jsonb_typeof(d #> " + target + ") = 'object' THEN d #> "
+                                + target + " ELSE '{}'::jsonb END)");
+            }
+            case COPY -> scoped(document, add("d", path, "(d #> " + path(operation.from()) + ")"));
+            case MOVE -> {
+                String from = path(operation.from());
+                yield scoped(document, add("(d #- " + from + ")", path, "(d #> " + from + ")"));
+            }
+            case TEST -> {
+                String current = path.isEmpty() ? "d" : "(d #> " + path(path) + ")";
+                yield scoped(document, "CASE WHEN " + current + " = " + value(operation.value()) + " THEN d END");
+            }
+        };
+    }
+
+    /**
+     * Add to the document of a previous operation, read once through a sub-select when add needs it twice.
+     */
+    private String addTo(String document, List<String> path, String value) {
+        return MetadataPatch.isArrayPosition(path.getLast())
+                ? scoped(document, add("d", path, value))
+                : add(document, path, value);
+    }
+
+    /**
+     * A position token only addresses an array element when the parent is an array, otherwise it is a member
+     * name; the parent type is then checked, which reads the document twice.
+     */
+    private String add(String document, List<String> path, String value) {
+        String last = path.getLast();
+        String target = path(path);
+        String set = "jsonb_set(" + document + ", " + target + ", " + value + ", true)";
+        if (!MetadataPatch.isArrayPosition(last)) {
+            return set;
+        }
+        String insert;
+        if (MetadataPatch.APPEND_TOKEN.equals(last)) {
+            List<String> lastElement = new ArrayList<>(path);
+            lastElement.set(lastElement.size() - 1, "-1");
+            insert = "jsonb_insert(" + document + ", " + path(lastElement) + ", " + value + ", true)";
+        } else {
+            insert = "jsonb_insert(" + document + ", " + target + ", " + value + ")";
+        }
+        String parent = path(path.subList(0, path.size() - 1));
+        return "CASE WHEN jsonb_typeof(" + document + " #> " + parent + ") = 'array' THEN " + insert + " ELSE " + set
+                + " END";
+    }
+
+    /**
+     * The body when the target exists in {@code d}, NULL otherwise. A JSON null is an existing value.
+     */
+    private static String existing(String target, String body) {
+        return "CASE WHEN d #> " + target + " IS NULL THEN NULL ELSE " + body + " END";
+    }
+
+    private static String scoped(String document, String body) {
+        return "(SELECT " + body + " FROM (SELECT " + document + " AS d) s)";
+    }
+
+    private String path(List<String> tokens) {
+        params.addArrayOfString(tokens.toArray(String[]::new));
+        return "$" + params.size() + "::text[]";
+    }
+
+    /**
+     * Bound as text then cast, a jsonb-typed parameter would take the encoded string as a JSON string scalar.
+     */
+    private String value(Object value) {
+        params.addString(Json.encode(value));
+        return "$" + params.size() + "::text::jsonb";
+    }
+}
@@ -0,0 +1,181 @@
+package com.github.kaivu.adapter.out.persistence;
+
+import com.github.kaivu.config.ConfigsProvider;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Multi;
+import io.vertx.mutiny.sqlclient.Pool;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.interceptor.Interceptor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Installs the database objects Hibernate does not manage (log tables, functions, triggers) once the schema is
+ * generated. Every statement is idempotent, instances starting together serialize on an advisory lock.
+ * When Hibernate drops and recreates the schema, the log and outbox are emptied too: they would otherwise keep
+ * rows of devices that no longer exist across every restart.
+ */
+@Slf4j
+@ApplicationScoped
+public class SchemaObjectsInstaller {
+
+    private static final String SCHEMA = ConfigsProvider.DATABASE_SCHEMA;
+
+    /**
+     * Channel notified on every write of a cached table, scoped by schema so environments sharing a server do not
+     * hear each other.
+     */
+    public static final String CACHE_INVALIDATION_CHANNEL = SCHEMA + "_cache_invalidation";
+
+    private static final String LOCK = "SELECT pg_advisory_xact_lock(hashtext('" + SCHEMA + ".schema_objects'))";
+
+    /**
+     * Change log of {@code entity_device}, written by a row trigger so every write path is captured, Hibernate,
+     * native statements and changes made outside the service alike.
+     */
+    private static final List<String> ENTITY_DEVICE_CHANGE_LOG = List.of(
+            "CREATE TABLE IF NOT EXISTS " + EntityDeviceChangeRepository.TABLE + " ("
+                    + " id bigserial PRIMARY KEY,"
+                    + " tx_id bigint NOT NULL DEFAULT pg_current_xact_id()::text::bigint,"
+                    + " device_id uuid NOT NULL,"
+                    + " operation varchar(10) NOT NULL,"
+                    + " version bigint,"
+                    + " changed_at timestamptz NOT NULL DEFAULT CURRENT_TIMESTAMP)",
+            "CREATE INDEX IF NOT EXISTS idx_entity_device_change_position ON " + EntityDeviceChangeRepository.TABLE
+                    + " (tx_id, id)",
+            "CREATE INDEX IF NOT EXISTS idx_entity_device_change_device ON " + EntityDeviceChangeRepository.TABLE
+                    + " (device_id)",
+            "CREATE TABLE IF NOT EXISTS " + EntityDeviceChangeRepository.HORIZON_TABLE + " ("
+                    + " singleton boolean PRIMARY KEY DEFAULT true CHECK (singleton),"
+                    + " tx_id bigint NOT NULL,"
+                    + " id bigint NOT NULL)");
+
+    /**
+     * Events of {@code entity_device} waiting for the relay, written by the same trigger so they commit or roll back
+     * with the write itself.
+     */
+    private static final List<String> ENTITY_DEVICE_OUTBOX = List.of(
+            "CREATE TABLE IF NOT EXISTS " + EntityDeviceOutboxRepository.TABLE + " ("
+                    + " id bigserial PRIMARY KEY,"
+                    + " device_id uuid NOT NULL,"
+                    + " operation varchar(10) NOT NULL,"
+                    + " version bigint,"
+                    + " created_at timestamptz NOT NULL DEFAULT clock_timestamp(),"
+                    + " claimed_until timestamptz)",
+            // Outboxes installed before claims were leased
+            "ALTER TABLE " + EntityDeviceOutboxRepository.TABLE
+                    + " ADD COLUMN IF NOT EXISTS claimed_until timestamptz");
+
+    /**
+     * One row trigger feeds both the change log and the outbox.
+     */
+    private static final List<String> ENTITY_DEVICE_TRIGGERS = List.of(
+            "CREATE OR REPLACE FUNCTION " + SCHEMA + ".entity_device_log_change() RETURNS trigger"
+                    + " LANGUAGE plpgsql AS $$"
+                    + " DECLARE device " + SCHEMA + ".entity_device; change_op varchar(10);"
+                    + " BEGIN"
+                    + " IF TG_OP = 'DELETE' THEN device := OLD; change_op := 'DELETE';"
+                    + " ELSE device := NEW;"
+                    + " change_op := CASE WHEN NEW.status = 'DELETED' THEN 'DELETE' ELSE TG_OP END;"
+                    + " END IF;"
+                    + " INSERT INTO " + EntityDeviceChangeRepository.TABLE + " (device_id, operation, version)"
+                    + " VALUES (device.id, change_op, device.version);"
+                    + " INSERT INTO " + EntityDeviceOutboxRepository.TABLE + " (device_id, operation, version)"
+                    + " VALUES (device.id, change_op, device.version);"
+                    + " RETURN NULL;"
+                    + " END $$",
+            "DROP TRIGGER IF EXISTS entity_device_log_change ON " + SCHEMA + ".entity_device",
+            "CREATE TRIGGER entity_device_log_change AFTER INSERT OR UPDATE OR DELETE ON " + SCHEMA + ".entity_device"
+                    + " FOR EACH ROW EXECUTE FUNCTION " + SCHEMA + ".entity_device_log_change()");
+
+    /**
+     * Notifications carry the cache identity of the written row as JSON, {@code table} tells how to read it.
+     * A transaction delivers them on commit only, identical ones once.
+     */
+    private static final List<String> CACHE_NOTIFICATIONS = List.of(
+            "CREATE OR REPLACE FUNCTION " + SCHEMA + ".entity_device_notify() RETURNS trigger"
+                    + " LANGUAGE plpgsql AS $$ BEGIN"
+                    + " IF TG_OP = 'DELETE' THEN"
+                    + " PERFORM pg_notify('" + CACHE_INVALIDATION_CHANNEL + "',"
+                    + " json_build_object('table', TG_TABLE_NAME, 'id', OLD.id)::text);"
+                    + " ELSE"
+                    + " PERFORM pg_notify('" + CACHE_INVALIDATION_CHANNEL + "',"
+                    + " json_build_object('table', TG_TABLE_NAME, 'id', NEW.id)::text);"
+                    + " END IF;"
+                    + " RETURN NULL;"
+                    + " END $$",
+            "DROP TRIGGER IF EXISTS entity_device_notify ON " + SCHEMA + ".entity_device",
+            "CREATE TRIGGER entity_device_notify AFTER INSERT OR UPDATE OR DELETE ON " + SCHEMA + ".entity_device"
+                    + " FOR EACH ROW EXECUTE FUNCTION " + SCHEMA + ".entity_device_notify()",
+            // A renamed object is stale under its old name and may be cached as missing under the new one
+            "CREATE OR REPLACE FUNCTION " + SCHEMA + ".media_files_notify() RETURNS trigger"
+                    + " LANGUAGE plpgsql AS $$ BEGIN"
+                    + " IF TG_OP <> 'INSERT' THEN"
+                    + " PERFORM pg_notify('" + CACHE_INVALIDATION_CHANNEL + "',"
+                    + " json_build_object('table', TG_TABLE_NAME,"
+                    + " 'bucket', OLD.bucket_name, 'object', OLD.object_name)::text);"
+                    + " END IF;"
+                    + " IF TG_OP <> 'DELETE' THEN"
+                    + " PERFORM pg_notify('" + CACHE_INVALIDATION_CHANNEL + "',"
+                    + " json_build_object('table', TG_TABLE_NAME,"
+                    + " 'bucket', NEW.bucket_name, 'object', NEW.object_name)::text);"
+                    + " END IF;"
+                    + " RETURN NULL;"
+                    + " END $$",
+            "DROP TRIGGER IF EXISTS media_files_notify ON " + SCHEMA + ".media_files",
+            "CREATE TRIGGER media_files_notify AFTER INSERT OR UPDATE OR DELETE ON " + SCHEMA + ".media_files"
+                    + " FOR EACH ROW EXECUTE FUNCTION " + SCHEMA + ".media_files_notify()");
+
+    /**
+     * The horizon moves to the current transaction, so a client holding a token of the dropped devices gets 410 and
+     * resynchronizes instead of keeping them.
+     */
+    private static final List<String> REGENERATED_SCHEMA = List.of(
+            "TRUNCATE " + EntityDeviceChangeRepository.TABLE + ", " + EntityDeviceOutboxRepository.TABLE,
+            "INSERT INTO " + EntityDeviceChangeRepository.HORIZON_TABLE + " (singleton, tx_id, id)"
+                    + " VALUES (true, pg_current_xact_id()::text::bigint, 0)"
+                    + " ON CONFLICT (singleton) DO UPDATE SET tx_id = EXCLUDED.tx_id, id = EXCLUDED.id");
+
+    private static final List<String> STATEMENTS = Stream.of(
+                    ENTITY_DEVICE_CHANGE_LOG,
+                    ENTITY_DEVICE_OUTBOX,
+                    ENTITY_DEVICE_TRIGGERS,
+                    CACHE_NOTIFICATIONS,
+                    "drop-and-create".equals(ConfigsProvider.DATABASE_SCHEMA_STRATEGY)
+                            ? REGENERATED_SCHEMA
+                            : List.<String>of())
+            .flatMap(List::stream)
+            .toList();
+
+    private final Pool primaryPool;
+
+    @Inject
+    public SchemaObjectsInstaller(Pool primaryPool) {
+        this.primaryPool = primaryPool;
+    }
+
+    /**
+     * Runs after the persistence units started, their schema generation has created the tables triggers attach to.
+     */
+    void install(@Observes @Priority(Interceptor.Priority.APPLICATION) StartupEvent event) {
+        primaryPool
+                .withTransaction(connection -> connection
+                        .query(LOCK)
+                        .execute()
+                        .chain(() -> Multi.createFrom()
+                                .iterable(STATEMENTS)
+                                .onItem()
+                                .transformToUniAndConcatenate(
+                                        statement -> connection.query(statement).execute())
+                                .collect()
+                                .last()))
+                .await()
+                .indefinitely();
+        log.info("Installed schema objects in {}", SCHEMA);
+    }
+}
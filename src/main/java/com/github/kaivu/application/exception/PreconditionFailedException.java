@@ -0,0 +1,14 @@
+package com.github.kaivu.application.exception;
+
+import com.github.kaivu.common.exception.AppErrorEnum;
+import com.github.kaivu.common.exception.ServiceException;
+
+/**
+ * Raised when a conditional request (If-Match) no longer matches the current entity version.
+ */
+public class PreconditionFailedException extends ServiceException {
+
+    public PreconditionFailedException(AppErrorEnum error) {
+        super(error.getEntityName(), error.getErrorKey(), error.getMessage(), error);
+    }
+}
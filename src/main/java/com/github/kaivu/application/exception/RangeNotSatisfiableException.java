@@ -0,0 +1,22 @@
+package com.github.kaivu.application.exception;
+
+import com.github.kaivu.common.exception.AppErrorEnum;
+import com.github.kaivu.common.exception.ServiceException;
+import lombok.Getter;
+
+/**
+ * Raised when none of the byte ranges requested lies within the representation.
+ */
+@Getter
+public class RangeNotSatisfiableException extends ServiceException {
+
+    /**
+     * Size of the representation, sent back in Content-Range so the client can retry with a valid range.
+     */
+    private final long fileSize;
+
+    public RangeNotSatisfiableException(AppErrorEnum error, long fileSize) {
+        super(error.getEntityName(), error.getErrorKey(), error.getMessage(), error);
+        this.fileSize = fileSize;
+    }
+}
@@ -0,0 +1,14 @@
+package com.github.kaivu.application.exception;
+
+import com.github.kaivu.common.exception.AppErrorEnum;
+import com.github.kaivu.common.exception.ServiceException;
+
+/**
+ * Raised when the requested state is no longer available, such as a change feed position older than the retention.
+ */
+public class ResourceGoneException extends ServiceException {
+
+    public ResourceGoneException(AppErrorEnum error) {
+        super(error.getEntityName(), error.getErrorKey(), error.getMessage(), error);
+    }
+}
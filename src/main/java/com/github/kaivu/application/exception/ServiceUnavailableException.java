@@ -0,0 +1,14 @@
+package com.github.kaivu.application.exception;
+
+import com.github.kaivu.common.exception.AppErrorEnum;
+import com.github.kaivu.common.exception.ServiceException;
+
+/**
+ * Raised when a backend is saturated and the request is shed instead of queued, the client may retry later.
+ */
+public class ServiceUnavailableException extends ServiceException {
+
+    public ServiceUnavailableException(AppErrorEnum error) {
+        super(error.getEntityName(), error.getErrorKey(), error.getMessage(), error);
+    }
+}
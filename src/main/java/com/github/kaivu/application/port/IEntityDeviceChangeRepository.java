@@ -0,0 +1,62 @@
+package com.github.kaivu.application.port;
+
+import com.github.kaivu.domain.change.ChangeToken;
+import com.github.kaivu.domain.change.EntityDeviceChange;
+import io.smallrye.mutiny.Uni;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * The {@code entity_device} change log, appended by the database on every write.
+ */
+public interface IEntityDeviceChangeRepository {
+
+    /**
+     * Changes after the given position, in log order, each with the current state of its device.
+     * Changes of transactions that may still be followed by an earlier one are held back until it ended.
+     */
+    Uni<List<EntityDeviceChange>> findAfter(ChangeToken since, int limit);
+
+    /**
+     * Same as {@link #findAfter(ChangeToken, int)} read from the primary, for consumers that must not miss a
+     * committed change a replica has not replayed yet.
+     */
+    Uni<List<EntityDeviceChange>> findLatestAfter(ChangeToken since, int limit);
+
+    /**
+     * Position of the last change readable by {@link #findAfter(ChangeToken, int)}.
+     */
+    Uni<ChangeToken> head();
+
+    /**
+     * Same as {@link #head()} read from the primary.
+     */
+    Uni<ChangeToken> latestHead();
+
+    /**
+     * Position of the last purged change, a client positioned before it may have missed changes.
+     */
+    Uni<ChangeToken> horizon();
+
+    /**
+     * When the oldest change held back by a still running earlier transaction was written, null when none is.
+     */
+    Uni<Instant> heldBackSince();
+
+    /**
+     * Drop the changes of a device superseded by a later change of the same device.
+     *
+     * @param olderThan only changes older than this are compacted, recent history stays exact
+     * @return the number of changes dropped
+     */
+    Uni<Long> compact(Duration olderThan);
+
+    /**
+     * Drop the changes older than the retention and move the horizon past them.
+     *
+     * @return the number of changes dropped
+     */
+    Uni<Long> purge(Duration olderThan);
+}
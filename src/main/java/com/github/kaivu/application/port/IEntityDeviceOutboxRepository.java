@@ -0,0 +1,26 @@
+package com.github.kaivu.application.port;
+
+import com.github.kaivu.domain.change.EntityDeviceEvent;
+import com.github.kaivu.domain.change.OutboxBacklog;
+import io.smallrye.mutiny.Uni;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * The {@code entity_device} outbox, appended by the database in the transaction of every write.
+ */
+public interface IEntityDeviceOutboxRepository {
+
+    /**
+     * Claim the oldest pending events and hand them to the handler once the claim is committed. The events are
+     * removed only if the handler succeeds, a failure releases them for the next drain and an interrupted drain
+     * leaves them claimed until the claim timeout. Events claimed by a concurrent relay are skipped.
+     *
+     * @param handler receives the events in outbox order
+     * @return the number of events relayed, lower than the batch size once the outbox is drained
+     */
+    Uni<Integer> drain(int batchSize, Function<List<EntityDeviceEvent>, Uni<Void>> handler);
+
+    Uni<OutboxBacklog> backlog();
+}
@@ -4,9 +4,16 @@ import com.github.kaivu.adapter.in.rest.dto.request.PageableRequest;
 import com.github.kaivu.common.repositories.BaseReadRepository;
 import com.github.kaivu.common.repositories.BaseWriteRepository;
 import com.github.kaivu.domain.EntityDevice;
+import com.github.kaivu.domain.enumeration.ActionStatus;
+import com.github.kaivu.domain.patch.MetadataPatch;
+import com.github.kaivu.domain.projection.EntityDeviceSummary;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface IEntityDeviceRepository
@@ -14,5 +21,59 @@ public interface IEntityDeviceRepository
 
     Uni<List<EntityDevice>> findAll(PageableRequest pageable);
 
+    /**
+     * Same as findById but always read from the primary, for the write path where a lagging replica would return
+     * a stale version or miss a device created moments ago.
+     */
+    Uni<Optional<EntityDevice>> findLatestById(UUID identity);
+
+    /**
+     * Page of listing columns only, read without hydrating entities.
+     */
+    Uni<List<EntityDeviceSummary>> findAllSummaries(PageableRequest pageable);
+
     Uni<Long> countAll(PageableRequest pageable);
+
+    /**
+     * Count every device, deleted ones included, grouped by status.
+     */
+    Uni<Map<ActionStatus, Long>> countByStatus();
+
+    /**
+     * Count the devices created on each day (UTC) since the given day, in day order.
+     */
+    Uni<Map<LocalDate, Long>> countCreatedPerDay(LocalDate since);
+
+    /**
+     * Stream every device matching the filters through a server-side cursor, paging parameters are ignored.
+     *
+     * @param fetchSize rows fetched per cursor round trip, bounds the memory held at any time.
+     */
+    Multi<EntityDevice> streamAll(PageableRequest pageable, int fetchSize);
+
+    /**
+     * Update name and description only if the stored version is still one of the expected ones.
+     *
+     * @param id               of object.
+     * @param expectedVersions the versions the client accepts, none matches when empty.
+     * @return the updated entity, empty when the device is missing, deleted or at another version.
+     */
+    Uni<Optional<EntityDevice>> updateIfVersion(
+            UUID id, List<Long> expectedVersions, String name, String description);
+
+    /**
+     * Apply a metadata patch without loading the device.
+     *
+     * @param expectedVersions the versions the client accepts, null for an unconditional patch.
+     * @return the patched entity, empty when the device is missing, deleted, at another version or a test failed.
+     */
+    Uni<Optional<EntityDevice>> patchMetadata(UUID id, MetadataPatch patch, List<Long> expectedVersions);
+
+    /**
+     * Insert many devices in a single statement.
+     *
+     * @param upsert update the description of devices whose name already exists instead of skipping them.
+     * @return the rows actually written, a freshly inserted device has version 0.
+     */
+    Uni<List<EntityDevice>> insertAll(List<EntityDevice> entities, boolean upsert);
 }
@@ -3,6 +3,7 @@ package com.github.kaivu.application.service;
 import io.smallrye.mutiny.Uni;
 
 import java.time.Duration;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.function.Supplier;
@@ -43,6 +44,11 @@ public interface CacheService {
      */
     Uni<Boolean> delete(String key);
 
+    /**
+     * Delete multiple keys in a single round trip
+     */
+    Uni<Long> delete(List<String> keys);
+
     /**
      * Delete multiple keys by pattern
      */
@@ -53,6 +59,11 @@ public interface CacheService {
      */
     Uni<Boolean> exists(String key);
 
+    /**
+     * Set a value only if the key does not exist yet, true when it was set
+     */
+    Uni<Boolean> setIfAbsent(String key, String value, Duration ttl);
+
     /**
      * Set multiple key-value pairs atomically
      */
@@ -68,6 +79,21 @@ public interface CacheService {
      */
     Uni<Long> increment(String key);
 
+    /**
+     * Increment a counter kept in a hash
+     */
+    Uni<Long> hashIncrement(String key, String field, long delta);
+
+    /**
+     * Read all counters of a hash
+     */
+    Uni<Map<String, Long>> hashGetAll(String key);
+
+    /**
+     * Replace all counters of a hash atomically, adding the increments kept in the deltas hash meanwhile
+     */
+    Uni<Void> hashReplace(String key, Map<String, Long> values, String deltasKey);
+
     /**
      * Generate standardized cache key
      */
@@ -3,8 +3,10 @@ package com.github.kaivu.application.service;
 import com.github.kaivu.common.service.BaseReadService;
 import com.github.kaivu.common.service.BaseWriteService;
 import com.github.kaivu.domain.EntityDevice;
+import com.github.kaivu.domain.patch.MetadataPatch;
 import io.smallrye.mutiny.Uni;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -16,10 +18,51 @@ public interface EntityDevicesService
 
     Uni<Optional<EntityDevice>> findByName(String name);
 
+    /**
+     * Get an Entity Device read from the primary, for the write path.
+     *
+     * @param identify of object.
+     * @throws com.github.kaivu.application.exception.EntityNotFoundException when it does not exist.
+     */
+    Uni<EntityDevice> getLatestById(UUID identify);
+
     /**
      * Check exist an Entity Device by Name.
      *
      * @param name of object.
      */
     Uni<EntityDevice> getByName(String name);
+
+    /**
+     * Delete an Entity Device.
+     *
+     * @param identify of object.
+     * @return the deleted device, as it was before the delete.
+     */
+    Uni<EntityDevice> remove(UUID identify);
+
+    /**
+     * Update an Entity Device only if it is still at one of the expected versions.
+     *
+     * @param id               of object.
+     * @param expectedVersions the versions listed by the If-Match header.
+     * @throws com.github.kaivu.application.exception.PreconditionFailedException when the version differs.
+     */
+    Uni<EntityDevice> updateIfVersion(UUID id, List<Long> expectedVersions, String name, String description);
+
+    /**
+     * Patch the metadata of an Entity Device in the database, without loading it.
+     *
+     * @param expectedVersions the versions listed by If-Match, null for an unconditional patch.
+     * @throws com.github.kaivu.application.exception.EntityConflictException when the patch cannot be applied.
+     */
+    Uni<EntityDevice> patchMetadata(UUID id, MetadataPatch patch, List<Long> expectedVersions);
+
+    /**
+     * Insert many Entity Devices in one statement.
+     *
+     * @param upsert update devices whose name already exists instead of skipping them.
+     * @return the devices actually written, a freshly inserted device has version 0.
+     */
+    Uni<List<EntityDevice>> insertAll(List<EntityDevice> entities, boolean upsert);
 }
@@ -1,5 +1,6 @@
 package com.github.kaivu.application.service;
 
+import com.github.kaivu.config.ConfigsProvider;
 import com.github.kaivu.config.minio.MinioManager;
 import com.github.kaivu.config.minio.MinioProfile;
 import com.github.kaivu.config.minio.MinioProfileType;
@@ -39,7 +40,7 @@ public class FileStorageService {
     public Uni<Void> storeWebAsset(
             String bucketName, String fileName, InputStream content, String contentType, long size) {
         log.info("Storing web asset: {} in bucket: {}", fileName, bucketName);
-        return webMinioManager.uploadObject(bucketName, fileName, content, contentType, size);
+        return upload(webMinioManager, bucketName, fileName, content, contentType, size);
     }
 
     /**
@@ -48,7 +49,7 @@ public class FileStorageService {
     public Uni<Void> backupFile(
             String bucketName, String fileName, InputStream content, String contentType, long size) {
         log.info("Backing up file: {} to bucket: {}", fileName, bucketName);
-        return backupMinioManager.uploadObject(bucketName, fileName, content, contentType, size);
+        return upload(backupMinioManager, bucketName, fileName, content, contentType, size);
     }
 
     /**
@@ -56,7 +57,34 @@ public class FileStorageService {
      */
     public Uni<Void> storeFile(String bucketName, String fileName, InputStream content, String contentType, long size) {
         log.info("Storing file: {} in bucket: {}", fileName, bucketName);
-        return coreMinioManager.uploadObject(bucketName, fileName, content, contentType, size);
+        return upload(coreMinioManager, bucketName, fileName, content, contentType, size);
+    }
+
+    /**
+     * Start a resumable upload of a large file using CORE profile, the returned upload id is then sent with
+     * resumeFileUpload
+     */
+    public Uni<String> startFileUpload(String bucketName, String fileName, String contentType) {
+        log.info("Starting resumable upload: {} in bucket: {}", fileName, bucketName);
+        return coreMinioManager.createMultipartUpload(bucketName, fileName, contentType);
+    }
+
+    /**
+     * Send the parts of a resumable upload not stored yet and complete it using CORE profile
+     * After a failure call it again with the same upload id and the file from its start
+     */
+    public Uni<Void> resumeFileUpload(
+            String bucketName, String fileName, String uploadId, InputStream content, long size) {
+        log.info("Uploading file: {} in bucket: {} with upload id: {}", fileName, bucketName, uploadId);
+        return coreMinioManager.uploadMultipart(bucketName, fileName, uploadId, content, size);
+    }
+
+    /**
+     * Give up a resumable upload using CORE profile, deleting the parts already stored
+     */
+    public Uni<Void> abortFileUpload(String bucketName, String fileName, String uploadId) {
+        log.info("Aborting upload: {} of file: {} in bucket: {}", uploadId, fileName, bucketName);
+        return coreMinioManager.abortMultipartUpload(bucketName, fileName, uploadId);
     }
 
     /**
@@ -74,4 +102,37 @@ public class FileStorageService {
         log.info("Checking backup exists: {} in bucket: {}", fileName, bucketName);
         return backupMinioManager.objectExists(bucketName, fileName);
     }
+
+    /**
+     * Files larger than a part are sent as a parallel multipart upload, aborted when it fails or is cancelled so no
+     * orphan parts are left in the bucket
+     */
+    private Uni<Void> upload(
+            MinioManager minioManager,
+            String bucketName,
+            String fileName,
+            InputStream content,
+            String contentType,
+            long size) {
+        if (size <= ConfigsProvider.MINIO_MULTIPART_PART_SIZE) {
+            return minioManager.uploadObject(bucketName, fileName, content, contentType, size);
+        }
+        return minioManager
+                .createMultipartUpload(bucketName, fileName, contentType)
+                .flatMap(uploadId -> minioManager
+                        .uploadMultipart(bucketName, fileName, uploadId, content, size)
+                        .onFailure()
+                        .call(() -> abortQuietly(minioManager, bucketName, fileName, uploadId))
+                        .onCancellation()
+                        .call(() -> abortQuietly(minioManager, bucketName, fileName, uploadId)));
+    }
+
+    private Uni<Void> abortQuietly(MinioManager minioManager, String bucketName, String fileName, String uploadId) {
+        return minioManager
+                .abortMultipartUpload(bucketName, fileName, uploadId)
+                .onFailure()
+                .invoke(failure -> log.warn("Cannot abort upload {} of file: {}", uploadId, fileName))
+                .onFailure()
+                .recoverWithNull();
+    }
 }
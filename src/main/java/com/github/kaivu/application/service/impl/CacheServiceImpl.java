@@ -12,6 +12,7 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.function.Supplier;
@@ -97,6 +98,11 @@ public class CacheServiceImpl implements CacheService {
         return redisManager.delete(key).invoke(deleted -> log.debug("Delete key: {} - Success: {}", key, deleted));
     }
 
+    @Override
+    public Uni<Long> delete(List<String> keys) {
+        return redisManager.delete(keys).invoke(count -> log.debug("Deleted {} of {} keys", count, keys.size()));
+    }
+
     @Override
     public Uni<Long> deleteByPattern(String pattern) {
         return redisManager
@@ -114,6 +120,11 @@ public class CacheServiceImpl implements CacheService {
         return redisManager.exists(key);
     }
 
+    @Override
+    public Uni<Boolean> setIfAbsent(String key, String value, Duration ttl) {
+        return redisManager.setIfAbsent(key, value, ttl);
+    }
+
     @Override
     public <T> Uni<Void> setMultiple(Map<String, T> keyValueMap, Duration ttl) {
         return redisManager
@@ -138,6 +149,21 @@ public class CacheServiceImpl implements CacheService {
         return increment(key, 1L);
     }
 
+    @Override
+    public Uni<Long> hashIncrement(String key, String field, long delta) {
+        return redisManager.hashIncrement(key, field, delta);
+    }
+
+    @Override
+    public Uni<Map<String, Long>> hashGetAll(String key) {
+        return redisManager.hashGetAll(key);
+    }
+
+    @Override
+    public Uni<Void> hashReplace(String key, Map<String, Long> values, String deltasKey) {
+        return redisManager.hashReplace(key, values, deltasKey);
+    }
+
     @Override
     public String generateKey(String prefix, String... identifiers) {
         return redisManager.generateKey(prefix, identifiers);
@@ -3,11 +3,15 @@ package com.github.kaivu.application.service.impl;
 import com.github.kaivu.adapter.out.persistence.EntityDeviceRepository;
 import com.github.kaivu.application.exception.EntityConflictException;
 import com.github.kaivu.application.exception.EntityNotFoundException;
+import com.github.kaivu.application.exception.PreconditionFailedException;
 import com.github.kaivu.application.service.EntityDevicesService;
+import com.github.kaivu.common.utils.PersistenceExceptionUtil;
 import com.github.kaivu.config.handler.ErrorsEnum;
 import com.github.kaivu.domain.EntityDevice;
+import com.github.kaivu.domain.patch.MetadataPatch;
 import io.quarkus.hibernate.reactive.panache.common.WithTransaction;
 import io.smallrye.mutiny.Uni;
+import io.vertx.pgclient.PgException;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.container.ContainerRequestContext;
@@ -51,6 +55,14 @@ public class EntityDevicesServiceImpl implements EntityDevicesService {
                         ErrorsEnum.ENTITY_DEVICE_NOT_FOUND.withLocale(requestContext.getLanguage(), identify))));
     }
 
+    @Override
+    public Uni<EntityDevice> getLatestById(UUID identify) throws EntityNotFoundException {
+        return entityDeviceRepository
+                .findLatestById(identify)
+                .map(entityOpt -> entityOpt.orElseThrow(() -> new EntityNotFoundException(
+                        ErrorsEnum.ENTITY_DEVICE_NOT_FOUND.withLocale(requestContext.getLanguage(), identify))));
+    }
+
     @Override
     public Uni<EntityDevice> getByName(String name) throws EntityConflictException {
         return findByName(name)
@@ -61,7 +73,10 @@ public class EntityDevicesServiceImpl implements EntityDevicesService {
     @Override
     @WithTransaction
     public Uni<EntityDevice> persist(EntityDevice entity) {
-        return entityDeviceRepository.persist(entity);
+        return entityDeviceRepository
+                .persist(entity)
+                .onFailure()
+                .transform(failure -> toConflict(failure, entity.getName()));
     }
 
     @Override
@@ -73,7 +88,10 @@ public class EntityDevicesServiceImpl implements EntityDevicesService {
     @Override
     @WithTransaction
     public Uni<EntityDevice> update(EntityDevice entity) throws EntityNotFoundException {
-        return entityDeviceRepository.update(entity);
+        return entityDeviceRepository
+                .update(entity)
+                .onFailure()
+                .transform(failure -> toConflict(failure, entity.getName()));
     }
 
     @Override
@@ -85,6 +103,83 @@ public class EntityDevicesServiceImpl implements EntityDevicesService {
     @Override
     @WithTransaction
     public Uni<Void> delete(UUID identify) throws EntityNotFoundException {
-        return getById(identify).flatMap(entity -> entityDeviceRepository.delete(entity));
+        return remove(identify).replaceWithVoid();
+    }
+
+    @Override
+    @WithTransaction
+    public Uni<EntityDevice> remove(UUID identify) throws EntityNotFoundException {
+        return getById(identify).flatMap(entity -> entityDeviceRepository.delete(entity).replaceWith(entity));
+    }
+
+    @Override
+    public Uni<EntityDevice> updateIfVersion(UUID id, List<Long> expectedVersions, String name, String description)
+            throws EntityNotFoundException, PreconditionFailedException {
+        return entityDeviceRepository
+                .updateIfVersion(id, expectedVersions, name, description)
+                .onFailure()
+                .transform(failure -> toConflict(failure, name.toUpperCase()))
+                .flatMap(updated -> {
+                    if (updated.isPresent()) {
+                        return Uni.createFrom().item(updated.get());
+                    }
+                    // Only the failure path pays for a read, to tell a missing device from a stale version
+                    return getLatestById(id)
+                            .flatMap(current -> Uni.createFrom()
+                                    .<EntityDevice>failure(new PreconditionFailedException(
+                                            ErrorsEnum.ENTITY_DEVICE_VERSION_MISMATCH.withLocale(
+                                                    requestContext.getLanguage(), id))));
+                });
+    }
+
+    @Override
+    public Uni<EntityDevice> patchMetadata(UUID id, MetadataPatch patch, List<Long> expectedVersions)
+            throws EntityNotFoundException, PreconditionFailedException, EntityConflictException {
+        return entityDeviceRepository
+                .patchMetadata(id, patch, expectedVersions)
+                .onFailure(PgException.class)
+                .transform(failure -> isDataException((PgException) failure) ? patchConflict(id) : failure)
+                .flatMap(patched -> {
+                    if (patched.isPresent()) {
+                        return Uni.createFrom().item(patched.get());
+                    }
+                    // Same as updateIfVersion, the read only happens on the failure path
+                    return getLatestById(id).flatMap(current -> Uni.createFrom()
+                            .<EntityDevice>failure(
+                                    expectedVersions != null && !expectedVersions.contains(current.getVersion())
+                                            ? new PreconditionFailedException(
+                                                    ErrorsEnum.ENTITY_DEVICE_VERSION_MISMATCH.withLocale(
+                                                            requestContext.getLanguage(), id))
+                                            : patchConflict(id)));
+                });
+    }
+
+    @Override
+    public Uni<List<EntityDevice>> insertAll(List<EntityDevice> entities, boolean upsert) {
+        return entityDeviceRepository.insertAll(entities, upsert);
+    }
+
+    /**
+     * jsonb functions reject a path that does not fit the document with a data exception (SQLSTATE class 22).
+     */
+    private static boolean isDataException(PgException failure) {
+        return failure.getSqlState() != null && failure.getSqlState().startsWith("22");
+    }
+
+    private EntityConflictException patchConflict(UUID id) {
+        return new EntityConflictException(
+                ErrorsEnum.ENTITY_DEVICE_METADATA_CONFLICT.withLocale(requestContext.getLanguage(), id));
+    }
+
+    /**
+     * Translate a unique violation on the device name index into {@link EntityConflictException},
+     * any other failure is propagated untouched.
+     */
+    private Throwable toConflict(Throwable failure, String name) {
+        if (PersistenceExceptionUtil.isUniqueViolation(failure, EntityDevice.NAME_UNIQUE_INDEX)) {
+            return new EntityConflictException(
+                    ErrorsEnum.ENTITY_DEVICE_NAME_ALREADY_EXISTS.withLocale(requestContext.getLanguage(), name));
+        }
+        return failure;
     }
 }
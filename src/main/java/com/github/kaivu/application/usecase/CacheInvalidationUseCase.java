@@ -0,0 +1,37 @@
+package com.github.kaivu.application.usecase;
+
+import io.smallrye.mutiny.Uni;
+
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Evicts the cache entries derived from database rows, for writes the service learns about after the fact
+ * (outbox relay, database notifications).
+ */
+public interface CacheInvalidationUseCase {
+
+    /**
+     * Evict the entity and details entries of the devices, and every cached page.
+     */
+    Uni<Void> invalidateDevices(Collection<UUID> deviceIds);
+
+    /**
+     * Evict every device entry, for gaps too large to replay.
+     */
+    Uni<Void> invalidateAllDevices();
+
+    /**
+     * Evict media file entries.
+     *
+     * @param objects bucket and object name of each media file
+     */
+    Uni<Void> invalidateMediaFiles(Collection<MediaObject> objects);
+
+    /**
+     * Evict every media file entry.
+     */
+    Uni<Void> invalidateAllMediaFiles();
+
+    record MediaObject(String bucketName, String objectName) {}
+}
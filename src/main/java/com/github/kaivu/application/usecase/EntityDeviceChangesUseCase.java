@@ -0,0 +1,28 @@
+package com.github.kaivu.application.usecase;
+
+import com.github.kaivu.adapter.in.rest.dto.vm.EntityDeviceChangesVM;
+import io.smallrye.mutiny.Uni;
+
+/**
+ * Delta synchronization of devices over the change log.
+ */
+public interface EntityDeviceChangesUseCase {
+
+    /**
+     * Changes after a token.
+     *
+     * @param since token returned by a previous call, null to only get the current token (then run a full export)
+     * @param limit maximum number of changes returned
+     */
+    Uni<EntityDeviceChangesVM> changes(String since, int limit);
+
+    /**
+     * Compact superseded changes and purge the ones past the retention.
+     */
+    Uni<Void> maintain();
+
+    /**
+     * Sample how long changes are held back by long transactions, warning past the configured bound.
+     */
+    Uni<Void> refreshLag();
+}
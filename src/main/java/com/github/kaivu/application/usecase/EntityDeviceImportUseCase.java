@@ -0,0 +1,32 @@
+package com.github.kaivu.application.usecase;
+
+import com.github.kaivu.adapter.in.rest.dto.vm.ImportJobVM;
+import io.smallrye.mutiny.Uni;
+
+import java.io.InputStream;
+
+/**
+ * Bulk import of Entity Devices from NDJSON or CSV uploads.
+ */
+public interface EntityDeviceImportUseCase {
+
+    /**
+     * Import the devices of an upload, read line by line and written in fixed-size chunks.
+     *
+     * @param input  the upload, consumed lazily, it must be read off the event loop.
+     * @param csv    true for CSV with a header line, false for NDJSON.
+     * @param jobId  the job to resume, or the id to give a new job; chosen by the client so it can poll
+     *               and resume the job even when the upload fails.
+     * @param upsert update devices whose name already exists instead of reporting a conflict.
+     * @return the final state of the job.
+     * @throws com.github.kaivu.application.exception.EntityConflictException when the job is already running.
+     */
+    Uni<ImportJobVM> importDevices(InputStream input, boolean csv, String jobId, boolean upsert);
+
+    /**
+     * Get the progress of an import job.
+     *
+     * @param jobId of the job.
+     */
+    Uni<ImportJobVM> status(String jobId);
+}
@@ -0,0 +1,21 @@
+package com.github.kaivu.application.usecase;
+
+import io.smallrye.mutiny.Uni;
+
+/**
+ * Relays the device outbox: cache invalidation and change events, applied only for committed writes.
+ */
+public interface EntityDeviceOutboxUseCase {
+
+    /**
+     * Event bus address the device change events are published to.
+     */
+    String EVENTS_ADDRESS = "entity-device.changed";
+
+    /**
+     * Drain the outbox in batches until it is empty or the per-run batch budget is spent.
+     *
+     * @return the number of events relayed
+     */
+    Uni<Integer> relay();
+}
@@ -0,0 +1,35 @@
+package com.github.kaivu.application.usecase;
+
+import com.github.kaivu.adapter.in.rest.dto.vm.EntityDeviceStatsVM;
+import com.github.kaivu.domain.EntityDevice;
+import io.smallrye.mutiny.Uni;
+
+import java.util.List;
+
+/**
+ * Device statistics kept as Redis counters, updated by the write paths and rebuilt from the table periodically.
+ */
+public interface EntityDeviceStatsUseCase {
+
+    /**
+     * Current counts.
+     *
+     * @param days length of the created-per-day histogram, ending today.
+     */
+    Uni<EntityDeviceStatsVM> stats(int days);
+
+    /**
+     * Count freshly inserted devices.
+     */
+    Uni<Void> recordCreated(List<EntityDevice> devices);
+
+    /**
+     * Count a removed device out of its status and its creation day.
+     */
+    Uni<Void> recordDeleted(EntityDevice device);
+
+    /**
+     * Rebuild the counters from the table, fixing any drift.
+     */
+    Uni<Void> reconcile();
+}
@@ -1,13 +1,18 @@
 package com.github.kaivu.application.usecase;
 
+import com.github.kaivu.adapter.in.rest.dto.request.BatchEntityDevicesDTO;
 import com.github.kaivu.adapter.in.rest.dto.request.CreateEntityDTO;
 import com.github.kaivu.adapter.in.rest.dto.request.EntityDeviceFilters;
 import com.github.kaivu.adapter.in.rest.dto.request.UpdateEntityDTO;
+import com.github.kaivu.adapter.in.rest.dto.vm.BatchResultVM;
 import com.github.kaivu.adapter.in.rest.dto.vm.EntityDeviceDetailsVM;
 import com.github.kaivu.adapter.in.rest.dto.vm.EntityDeviceVM;
 import com.github.kaivu.adapter.in.rest.dto.vm.PageResponse;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
 
+import java.util.List;
+import java.util.Locale;
 import java.util.UUID;
 
 /**
@@ -26,11 +31,43 @@ public interface EntityDeviceUseCase {
     Uni<EntityDeviceVM> create(CreateEntityDTO dto);
 
     /**
-     * Create Entity Device.
+     * Create, or upsert, many Entity Devices in one write.
      *
-     * @param dto the data of object.
+     * @param dto the items of the batch.
+     * @return the outcome of every item, in request order.
+     */
+    Uni<BatchResultVM> batch(BatchEntityDevicesDTO dto);
+
+    /**
+     * Same as {@link #batch(BatchEntityDevicesDTO)}, for callers running outside the request thread.
+     *
+     * @param locale used for the per-item messages.
+     */
+    Uni<BatchResultVM> batch(BatchEntityDevicesDTO dto, Locale locale);
+
+    /**
+     * Update Entity Device.
+     *
+     * @param dto             the data of object.
+     * @param expectedVersions the versions listed by If-Match, null for an unconditional update.
+     */
+    Uni<EntityDeviceVM> update(UUID id, UpdateEntityDTO dto, List<Long> expectedVersions);
+
+    /**
+     * Apply a JSON Merge Patch (RFC 7396) to the metadata of an Entity Device.
+     *
+     * @param patch            the merge patch document, must be an object.
+     * @param expectedVersions the versions listed by If-Match, null for an unconditional patch.
      */
-    Uni<EntityDeviceVM> update(UUID id, UpdateEntityDTO dto);
+    Uni<EntityDeviceDetailsVM> mergePatchMetadata(UUID id, String patch, List<Long> expectedVersions);
+
+    /**
+     * Apply a JSON Patch (RFC 6902) to the metadata of an Entity Device.
+     *
+     * @param patch            the array of patch operations.
+     * @param expectedVersions the versions listed by If-Match, null for an unconditional patch.
+     */
+    Uni<EntityDeviceDetailsVM> jsonPatchMetadata(UUID id, String patch, List<Long> expectedVersions);
 
     /**
      * Get details an Entity Device by ID.
@@ -46,6 +83,20 @@ public interface EntityDeviceUseCase {
      */
     Uni<PageResponse<EntityDeviceVM>> pageable(EntityDeviceFilters filters);
 
+    /**
+     * Stream all Entity Devices matching the filters, straight from the database.
+     *
+     * @param filters of object, paging is ignored.
+     */
+    Multi<EntityDeviceDetailsVM> export(EntityDeviceFilters filters);
+
+    /**
+     * Stream all Entity Devices matching the filters as CSV lines, header first.
+     *
+     * @param filters of object, paging is ignored.
+     */
+    Multi<String> exportCsv(EntityDeviceFilters filters);
+
     /**
      * Detele an Entity Device by ID.
      *
@@ -2,23 +2,36 @@ package com.github.kaivu.application.usecase;
 
 import com.github.kaivu.adapter.in.rest.dto.vm.RangeInfo;
 import com.github.kaivu.adapter.in.rest.dto.vm.StreamingResponse;
+import com.github.kaivu.adapter.out.cache.MediaReadAhead;
+import com.github.kaivu.adapter.out.cache.MediaSegmentCache;
+import com.github.kaivu.adapter.out.cache.PresignedUrlCache;
+import com.github.kaivu.application.exception.RangeNotSatisfiableException;
 import com.github.kaivu.application.port.IMediaFileRepository;
 import com.github.kaivu.common.context.LanguageContext;
 import com.github.kaivu.common.exception.ServiceException;
+import com.github.kaivu.common.utils.ETagUtil;
+import com.github.kaivu.common.utils.RangeHeaderUtil;
+import com.github.kaivu.config.ConfigsProvider;
 import com.github.kaivu.config.handler.ErrorsEnum;
-import com.github.kaivu.config.minio.MinioManager;
-import com.github.kaivu.config.minio.MinioProfile;
-import com.github.kaivu.config.minio.MinioProfileType;
 import com.github.kaivu.domain.MediaFile;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocatorMetric;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
+import io.vertx.core.buffer.Buffer;
 import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
 /**
  * Created by Khoa Vu.
  * Mail: khoavd12@fpt.com
@@ -30,21 +43,30 @@ import jakarta.transaction.Transactional;
 public class MediaStreamingService {
 
     private final IMediaFileRepository mediaFileRepository;
-    private final MinioManager minioManager;
+    private final MediaSegmentCache mediaSegmentCache;
+    private final MediaReadAhead mediaReadAhead;
+    private final PresignedUrlCache presignedUrlCache;
     private final MeterRegistry meterRegistry;
     private final LanguageContext languageContext;
 
     private Counter streamRequestCounter;
     private Timer streamDurationTimer;
+    private Counter notModifiedCounter;
+    private Counter redirectCounter;
+    private Counter staleIfRangeCounter;
 
     @Inject
     public MediaStreamingService(
             IMediaFileRepository mediaFileRepository,
-            @MinioProfile(MinioProfileType.MEDIA) MinioManager minioManager,
+            MediaSegmentCache mediaSegmentCache,
+            MediaReadAhead mediaReadAhead,
+            PresignedUrlCache presignedUrlCache,
             MeterRegistry meterRegistry,
             LanguageContext languageContext) {
         this.mediaFileRepository = mediaFileRepository;
-        this.minioManager = minioManager;
+        this.mediaSegmentCache = mediaSegmentCache;
+        this.mediaReadAhead = mediaReadAhead;
+        this.presignedUrlCache = presignedUrlCache;
         this.meterRegistry = meterRegistry;
         this.languageContext = languageContext;
     }
@@ -57,9 +79,46 @@ public class MediaStreamingService {
         streamDurationTimer = Timer.builder("media.stream.duration")
                 .description("Stream request duration")
                 .register(meterRegistry);
+        notModifiedCounter = Counter.builder("media.stream.origin_fetches_avoided")
+                .description("Streaming requests answered from the stored metadata alone, without reading the file")
+                .tag("reason", "not_modified")
+                .register(meterRegistry);
+        redirectCounter = Counter.builder("media.stream.origin_fetches_avoided")
+                .description("Streaming requests answered from the stored metadata alone, without reading the file")
+                .tag("reason", "redirect")
+                .register(meterRegistry);
+        staleIfRangeCounter = Counter.builder("media.stream.if_range.stale")
+                .description("Range requests answered with the whole file because their If-Range validator is stale")
+                .register(meterRegistry);
+        Gauge.builder(
+                        "media.stream.direct.memory",
+                        PooledByteBufAllocator.DEFAULT.metric(),
+                        PooledByteBufAllocatorMetric::usedDirectMemory)
+                .description("Pooled direct memory in use, holding the chunks being streamed")
+                .baseUnit("bytes")
+                .register(meterRegistry);
     }
 
-    public Uni<StreamingResponse> prepareStreamingResponse(String bucketName, String objectName, String rangeHeader) {
+    /**
+     * Conditional requests are answered from the media file row: a client copy that is still current gets 304
+     * without opening the file, and a range whose If-Range validator is stale is answered with the whole file.
+     * In redirect mode the client is sent to a presigned MinIO URL and fetches the bytes, ranges included, there.
+     *
+     * @param ifNoneMatch     If-None-Match header, takes precedence over If-Modified-Since
+     * @param ifModifiedSince If-Modified-Since header
+     * @param ifRange         If-Range header, a strong tag or the exact Last-Modified date
+     * @param client          the user and address of the client, a single range is read ahead for its session
+     * @param redirect        whether the client asks for a redirect, only honoured when the mode is enabled
+     */
+    public Uni<StreamingResponse> prepareStreamingResponse(
+            String bucketName,
+            String objectName,
+            String rangeHeader,
+            String ifNoneMatch,
+            String ifModifiedSince,
+            String ifRange,
+            String client,
+            boolean redirect) {
         Timer.Sample sample = Timer.start(meterRegistry);
         streamRequestCounter.increment();
 
@@ -75,50 +134,108 @@ public class MediaStreamingService {
                     }
 
                     MediaFile mediaFile = optionalMediaFile.get();
-                    RangeInfo rangeInfo = parseRangeHeader(rangeHeader, mediaFile.getFileSize());
-                    return createStreamingResponse(mediaFile, rangeInfo);
+                    Instant lastModified = lastModified(mediaFile);
+                    boolean notModified = ifNoneMatch != null
+                            ? ETagUtil.matchesNoneMatch(ifNoneMatch, mediaFile.getEtag())
+                            : ETagUtil.notModifiedSince(ifModifiedSince, lastModified);
+                    if (notModified) {
+                        notModifiedCounter.increment();
+                        return Uni.createFrom()
+                                .item(StreamingResponse.notModified(mediaFile.getEtag(), lastModified));
+                    }
+                    if (redirect && Boolean.TRUE.equals(ConfigsProvider.MEDIA_STREAM_REDIRECT_ENABLED)) {
+                        redirectCounter.increment();
+                        return presignedUrlCache
+                                .get(mediaFile.getBucketName(), mediaFile.getObjectName())
+                                .map(StreamingResponse::redirect);
+                    }
+                    if (rangeHeader != null
+                            && !ETagUtil.matchesIfRange(ifRange, mediaFile.getEtag(), lastModified)) {
+                        // The client holds another version, its ranges would mix both
+                        staleIfRangeCounter.increment();
+                        return createStreamingResponse(mediaFile, List.of(), client);
+                    }
+                    List<RangeInfo> ranges = RangeHeaderUtil.parse(
+                            rangeHeader, mediaFile.getFileSize(), ConfigsProvider.MEDIA_STREAM_MAX_RANGE_LENGTH);
+                    if (ranges != null && ranges.isEmpty()) {
+                        return Uni.createFrom()
+                                .failure(new RangeNotSatisfiableException(
+                                        ErrorsEnum.MEDIA_FILE_RANGE_NOT_SATISFIABLE.withLocale(
+                                                languageContext.getCurrentLocale(), rangeHeader),
+                                        mediaFile.getFileSize()));
+                    }
+                    if (ranges != null) {
+                        ranges = RangeHeaderUtil.coalesce(ranges);
+                    }
+                    if (ranges == null || ranges.size() > ConfigsProvider.MEDIA_STREAM_MAX_RANGES) {
+                        // Too many ranges to be worth the framing, RFC 7233 lets the server send the whole file
+                        ranges = List.of();
+                    }
+                    return createStreamingResponse(mediaFile, ranges, client);
                 })
                 .onTermination()
                 .invoke(() -> sample.stop(streamDurationTimer));
     }
 
-    private Uni<StreamingResponse> createStreamingResponse(MediaFile mediaFile, RangeInfo rangeInfo) {
-        long contentLength = rangeInfo.endByte() - rangeInfo.startByte() + 1;
-
-        return minioManager
-                .getObject(mediaFile.getBucketName(), mediaFile.getObjectName(), rangeInfo.startByte(), contentLength)
-                .map(inputStream -> new StreamingResponse(
-                        rangeInfo,
-                        mediaFile.getFileSize(),
-                        mediaFile.getContentType(),
-                        mediaFile.getEtag(),
-                        inputStream));
-    }
-
-    private RangeInfo parseRangeHeader(String rangeHeader, Long fileSize) {
-        if (rangeHeader == null || rangeHeader.isBlank()) {
-            return new RangeInfo(0, fileSize - 1);
+    /**
+     * The body is lazy: cached chunks are mapped and the rest is opened from MinIO when the response subscribes.
+     *
+     * @param ranges the ranges to send, empty to send the whole file
+     * @param client the client session, players read a single range after the other
+     */
+    private Uni<StreamingResponse> createStreamingResponse(
+            MediaFile mediaFile, List<RangeInfo> ranges, String client) {
+        long fileSize = mediaFile.getFileSize();
+        String contentType = mediaFile.getContentType();
+        String boundary = null;
+        Multi<Buffer> body;
+        if (ranges.size() > 1) {
+            boundary = UUID.randomUUID().toString().replace("-", "");
+            List<Multi<Buffer>> bodies = ranges.stream().map(range -> readRange(mediaFile, range)).toList();
+            body = Multi.createFrom()
+                    .publisher(new MultipartByteRangesPublisher(
+                            boundary,
+                            contentType,
+                            fileSize,
+                            ranges,
+                            bodies,
+                            ConfigsProvider.MEDIA_STREAM_RANGE_CONCURRENCY));
+        } else if (ranges.size() == 1) {
+            body = mediaReadAhead.read(
+                    client,
+                    mediaFile.getBucketName(),
+                    mediaFile.getObjectName(),
+                    mediaFile.getEtag(),
+                    fileSize,
+                    ranges.getFirst());
+        } else {
+            body = fileSize == 0 ? Multi.createFrom().empty() : readRange(mediaFile, new RangeInfo(0, fileSize - 1));
         }
 
-        // Parse "bytes=start-end" format
-        if (rangeHeader.startsWith("bytes=")) {
-            String range = rangeHeader.substring(6);
-            String[] parts = range.split("-");
-
-            long startByte = 0;
-            long endByte = fileSize - 1;
-
-            if (parts.length > 0 && !parts[0].isEmpty()) {
-                startByte = Long.parseLong(parts[0]);
-            }
-
-            if (parts.length > 1 && !parts[1].isEmpty()) {
-                endByte = Math.min(Long.parseLong(parts[1]), fileSize - 1);
-            }
+        StreamingResponse streamingResponse = new StreamingResponse(
+                ranges,
+                fileSize,
+                contentType,
+                mediaFile.getEtag(),
+                lastModified(mediaFile),
+                boundary,
+                false,
+                null,
+                body);
+        return Uni.createFrom().item(streamingResponse);
+    }
 
-            return new RangeInfo(startByte, endByte);
-        }
+    private static Instant lastModified(MediaFile mediaFile) {
+        Instant lastModified = mediaFile.getLastModifiedDate();
+        return lastModified != null ? ETagUtil.toHttpPrecision(lastModified) : null;
+    }
 
-        return new RangeInfo(0, fileSize - 1);
+    private Multi<Buffer> readRange(MediaFile mediaFile, RangeInfo range) {
+        return mediaSegmentCache.read(
+                mediaFile.getBucketName(),
+                mediaFile.getObjectName(),
+                mediaFile.getEtag(),
+                mediaFile.getFileSize(),
+                range);
     }
 }
@@ -0,0 +1,278 @@
+package com.github.kaivu.application.usecase;
+
+import com.github.kaivu.adapter.in.rest.dto.vm.RangeInfo;
+import io.smallrye.mutiny.Multi;
+import io.vertx.core.buffer.Buffer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Body of a {@code multipart/byteranges} response (RFC 7233 appendix A), the parts framed by the boundary.
+ * Up to {@code concurrency} ranges are opened ahead of the one being written: each of them is subscribed and asked for
+ * its first chunk only, so the latency of opening the range is overlapped while a part holds at most one chunk until
+ * its turn. The part being written is then read one chunk per downstream request, like a single range.
+ */
+final class MultipartByteRangesPublisher implements Flow.Publisher<Buffer> {
+
+    private static final String CRLF = "\r\n";
+
+    private final String boundary;
+    private final String contentType;
+    private final long fileSize;
+    private final List<RangeInfo> ranges;
+    private final List<Multi<Buffer>> bodies;
+    private final int concurrency;
+
+    MultipartByteRangesPublisher(
+            String boundary,
+            String contentType,
+            long fileSize,
+            List<RangeInfo> ranges,
+            List<Multi<Buffer>> bodies,
+            int concurrency) {
+        this.boundary = boundary;
+        this.contentType = contentType;
+        this.fileSize = fileSize;
+        this.ranges = ranges;
+        this.bodies = bodies;
+        this.concurrency = Math.max(1, concurrency);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super Buffer> subscriber) {
+        Parts parts = new Parts(subscriber);
+        subscriber.onSubscribe(parts);
+        parts.startAhead();
+    }
+
+    private Buffer header(int index) {
+        RangeInfo range = ranges.get(index);
+        // The CRLF before a boundary belongs to the boundary, the first one has nothing to follow
+        String header = (index == 0 ? "" : CRLF) + "--" + boundary + CRLF
+                + "Content-Type: " + contentType + CRLF
+                + "Content-Range: bytes " + range.startByte() + "-" + range.endByte() + "/" + fileSize + CRLF
+                + CRLF;
+        return Buffer.buffer(header.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private Buffer trailer() {
+        return Buffer.buffer((CRLF + "--" + boundary + "--" + CRLF).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Subscription given downstream, merging the parts in order. State is guarded by this, signals are sent
+     * downstream by a single drain loop at a time, outside the lock.
+     */
+    private final class Parts implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super Buffer> downstream;
+        private final List<Part> parts = new ArrayList<>();
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private long demand;
+        private int current;
+        private int started;
+        private boolean trailerSent;
+        private boolean terminated;
+        private Throwable failure;
+
+        Parts(Flow.Subscriber<? super Buffer> downstream) {
+            this.downstream = downstream;
+            for (int index = 0; index < bodies.size(); index++) {
+                parts.add(new Part(index));
+            }
+        }
+
+        @Override
+        public void request(long n) {
+            synchronized (this) {
+                if (n <= 0) {
+                    failure = new IllegalArgumentException("Invalid request: " + n);
+                } else {
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                }
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            List<Part> toCancel;
+            synchronized (this) {
+                if (terminated) {
+                    return;
+                }
+                terminated = true;
+                toCancel = new ArrayList<>(parts.subList(0, started));
+            }
+            toCancel.forEach(Part::cancel);
+        }
+
+        /**
+         * Subscribe to the parts within the window ahead of the current one.
+         */
+        void startAhead() {
+            List<Part> toStart = new ArrayList<>();
+            synchronized (this) {
+                while (!terminated && started < parts.size() && started < current + concurrency) {
+                    toStart.add(parts.get(started++));
+                }
+            }
+            toStart.forEach(part -> bodies.get(part.index).subscribe(part));
+        }
+
+        void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                while (true) {
+                    Buffer next = null;
+                    Flow.Subscription toRequest = null;
+                    boolean advanced = false;
+                    boolean complete = false;
+                    Throwable error = null;
+                    List<Part> toCancel = List.of();
+
+                    synchronized (this) {
+                        if (terminated) {
+                            break;
+                        }
+                        if (failure != null) {
+                            terminated = true;
+                            error = failure;
+                            toCancel = new ArrayList<>(parts.subList(0, started));
+                        } else if (current == parts.size()) {
+                            if (!trailerSent && demand > 0) {
+                                trailerSent = true;
+                                demand--;
+                                next = trailer();
+                            } else if (trailerSent) {
+                                terminated = true;
+                                complete = true;
+                            }
+                        } else {
+                            Part part = parts.get(current);
+                            if (!part.headerSent) {
+                                if (demand > 0) {
+                                    part.headerSent = true;
+                                    demand--;
+                                    next = header(current);
+                                }
+                            } else if (!part.queue.isEmpty()) {
+                                if (demand > 0) {
+                                    demand--;
+                                    next = part.queue.poll();
+                                }
+                            } else if (part.completed) {
+                                current++;
+                                advanced = true;
+                            } else if (demand > 0 && part.subscription != null && part.outstanding == 0) {
+                                // One chunk at a time, the previous one is written before the next is read
+                                part.outstanding = 1;
+                                toRequest = part.subscription;
+                            }
+                        }
+                    }
+
+                    if (error != null) {
+                        toCancel.forEach(Part::cancel);
+                        downstream.onError(error);
+                        return;
+                    }
+                    if (complete) {
+                        downstream.onComplete();
+                        return;
+                    }
+                    if (next != null) {
+                        downstream.onNext(next);
+                    } else if (advanced) {
+                        startAhead();
+                    } else if (toRequest != null) {
+                        toRequest.request(1);
+                    } else {
+                        break;
+                    }
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        /**
+         * Subscriber of the body of one range.
+         */
+        private final class Part implements Flow.Subscriber<Buffer> {
+
+            private final int index;
+            private final ArrayDeque<Buffer> queue = new ArrayDeque<>(2);
+            private Flow.Subscription subscription;
+            private int outstanding;
+            private boolean headerSent;
+            private boolean completed;
+
+            Part(int index) {
+                this.index = index;
+            }
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                boolean cancelled;
+                synchronized (Parts.this) {
+                    cancelled = terminated;
+                    this.subscription = subscription;
+                    // Prefetch the first chunk, which opens the range
+                    outstanding = cancelled ? 0 : 1;
+                }
+                if (cancelled) {
+                    subscription.cancel();
+                } else {
+                    subscription.request(1);
+                }
+            }
+
+            @Override
+            public void onNext(Buffer item) {
+                synchronized (Parts.this) {
+                    outstanding--;
+                    queue.add(item);
+                }
+                drain();
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                synchronized (Parts.this) {
+                    if (failure == null) {
+                        failure = throwable;
+                    }
+                }
+                drain();
+            }
+
+            @Override
+            public void onComplete() {
+                synchronized (Parts.this) {
+                    completed = true;
+                }
+                drain();
+            }
+
+            void cancel() {
+                Flow.Subscription toCancel;
+                synchronized (Parts.this) {
+                    toCancel = completed ? null : subscription;
+                    queue.clear();
+                }
+                if (toCancel != null) {
+                    toCancel.cancel();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.github.kaivu.application.usecase.impl;
+
+import com.github.kaivu.adapter.out.persistence.MediaFileRepository;
+import com.github.kaivu.application.service.CacheService;
+import com.github.kaivu.application.usecase.CacheInvalidationUseCase;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Keys are deleted in one round trip per call, failures propagate so callers can retry.
+ */
+@Slf4j
+@ApplicationScoped
+public class CacheInvalidationUseCaseImpl implements CacheInvalidationUseCase {
+
+    @Inject
+    CacheService cacheService;
+
+    @Override
+    public Uni<Void> invalidateDevices(Collection<UUID> deviceIds) {
+        if (deviceIds.isEmpty()) {
+            return Uni.createFrom().voidItem();
+        }
+        List<String> staleKeys = new ArrayList<>(deviceIds.size() * 2);
+        for (UUID deviceId : deviceIds) {
+            staleKeys.add(cacheService.generateKey(EntityDeviceUseCaseImpl.CACHE_PREFIX_ENTITY, deviceId.toString()));
+            staleKeys.add(cacheService.generateKey(EntityDeviceUseCaseImpl.CACHE_PREFIX_DETAILS, deviceId.toString()));
+        }
+        return cacheService
+                .delete(staleKeys)
+                .chain(() -> cacheService.deleteByPattern(
+                        cacheService.generateKey(EntityDeviceUseCaseImpl.CACHE_PREFIX_PAGE, "*")))
+                .invoke(() -> log.debug("Invalidated cache entries of {} devices", deviceIds.size()))
+                .replaceWithVoid();
+    }
+
+    @Override
+    public Uni<Void> invalidateAllDevices() {
+        return Uni.join()
+                .all(
+                        deleteAll(EntityDeviceUseCaseImpl.CACHE_PREFIX_ENTITY),
+                        deleteAll(EntityDeviceUseCaseImpl.CACHE_PREFIX_DETAILS),
+                        deleteAll(EntityDeviceUseCaseImpl.CACHE_PREFIX_PAGE))
+                .andCollectFailures()
+                .invoke(() -> log.info("Invalidated every device cache entry"))
+                .replaceWithVoid();
+    }
+
+    @Override
+    public Uni<Void> invalidateMediaFiles(Collection<MediaObject> objects) {
+        if (objects.isEmpty()) {
+            return Uni.createFrom().voidItem();
+        }
+        List<String> staleKeys = objects.stream()
+                .map(object -> cacheService.generateKey(
+                        MediaFileRepository.CACHE_PREFIX, object.bucketName(), object.objectName()))
+                .distinct()
+                .toList();
+        return cacheService
+                .delete(staleKeys)
+                .invoke(count -> log.debug("Invalidated {} media file cache entries", count))
+                .replaceWithVoid();
+    }
+
+    @Override
+    public Uni<Void> invalidateAllMediaFiles() {
+        return deleteAll(MediaFileRepository.CACHE_PREFIX)
+                .invoke(() -> log.info("Invalidated every media file cache entry"))
+                .replaceWithVoid();
+    }
+
+    private Uni<Long> deleteAll(String prefix) {
+        return cacheService.deleteByPattern(cacheService.generateKey(prefix, "*"));
+    }
+}
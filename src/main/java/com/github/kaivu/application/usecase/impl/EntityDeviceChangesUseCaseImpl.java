@@ -0,0 +1,133 @@
+package com.github.kaivu.application.usecase.impl;
+
+import com.github.kaivu.adapter.in.rest.dto.vm.EntityDeviceChangeVM;
+import com.github.kaivu.adapter.in.rest.dto.vm.EntityDeviceChangesVM;
+import com.github.kaivu.application.exception.ResourceGoneException;
+import com.github.kaivu.application.port.IEntityDeviceChangeRepository;
+import com.github.kaivu.application.usecase.EntityDeviceChangesUseCase;
+import com.github.kaivu.common.exception.ServiceException;
+import com.github.kaivu.common.mapper.EntityDeviceMapper;
+import com.github.kaivu.config.ConfigsProvider;
+import com.github.kaivu.config.handler.ErrorsEnum;
+import com.github.kaivu.domain.change.ChangeToken;
+import com.github.kaivu.domain.change.EntityDeviceChange;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.smallrye.mutiny.Uni;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.core.Context;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reads the change log written by the database triggers. A page is fetched one change over the limit to tell
+ * whether the client should call again right away.
+ * A change only becomes readable once every older transaction of the database server ended, so a long transaction
+ * (bulk import, log maintenance, a session left open) stalls the feed for every client: the {@code change_feed.lag}
+ * gauge tracks it and a warning is logged past {@code entity-device.changes.lag-warn-after}.
+ */
+@Slf4j
+@ApplicationScoped
+public class EntityDeviceChangesUseCaseImpl implements EntityDeviceChangesUseCase {
+
+    @Context
+    ContainerRequestContext requestContext;
+
+    @Inject
+    IEntityDeviceChangeRepository entityDeviceChangeRepository;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private final AtomicLong heldBackMillis = new AtomicLong();
+
+    @PostConstruct
+    void initMetrics() {
+        Gauge.builder("change_feed.lag", heldBackMillis, AtomicLong::get)
+                .description("Age of the oldest change held back by an older transaction still running")
+                .tag("feed", "entity_device")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Uni<EntityDeviceChangesVM> changes(String since, int limit) {
+        if (since == null || since.isBlank()) {
+            return entityDeviceChangeRepository
+                    .head()
+                    .flatMap(head -> head != null
+                            ? Uni.createFrom().item(head)
+                            : entityDeviceChangeRepository.horizon())
+                    .map(head -> new EntityDeviceChangesVM(List.of(), head.encode(), false));
+        }
+
+        ChangeToken position;
+        try {
+            position = ChangeToken.parse(since);
+        } catch (IllegalArgumentException e) {
+            return Uni.createFrom()
+                    .failure(new ServiceException(ErrorsEnum.ENTITY_DEVICE_CHANGES_BAD_REQUEST.withLocale(
+                            requestContext.getLanguage(), e.getMessage())));
+        }
+
+        return entityDeviceChangeRepository.horizon().flatMap(horizon -> {
+            if (position.isBefore(horizon)) {
+                return Uni.createFrom()
+                        .failure(new ResourceGoneException(ErrorsEnum.ENTITY_DEVICE_CHANGES_EXPIRED.withLocale(
+                                requestContext.getLanguage(), since)));
+            }
+            return entityDeviceChangeRepository
+                    .findAfter(position, limit + 1)
+                    .map(changes -> toChangesVM(position, changes, limit));
+        });
+    }
+
+    @Override
+    public Uni<Void> maintain() {
+        return entityDeviceChangeRepository
+                .compact(ConfigsProvider.ENTITY_DEVICE_CHANGES_COMPACT_AFTER)
+                .invoke(count -> log.debug("Compacted {} superseded device changes", count))
+                .chain(() -> entityDeviceChangeRepository.purge(ConfigsProvider.ENTITY_DEVICE_CHANGES_RETENTION))
+                .invoke(count -> log.debug("Purged {} expired device changes", count))
+                .replaceWithVoid();
+    }
+
+    @Override
+    public Uni<Void> refreshLag() {
+        return entityDeviceChangeRepository
+                .heldBackSince()
+                .invoke(oldest -> {
+                    long lag = oldest != null ? Math.max(0L, Duration.between(oldest, Instant.now()).toMillis()) : 0L;
+                    heldBackMillis.set(lag);
+                    if (lag > ConfigsProvider.ENTITY_DEVICE_CHANGES_LAG_WARN_AFTER.toMillis()) {
+                        log.warn("Device changes held back for {} ms by a long running transaction", lag);
+                    }
+                })
+                .replaceWithVoid();
+    }
+
+    private static EntityDeviceChangesVM toChangesVM(ChangeToken since, List<EntityDeviceChange> changes, int limit) {
+        boolean hasMore = changes.size() > limit;
+        List<EntityDeviceChange> page = hasMore ? changes.subList(0, limit) : changes;
+        ChangeToken next = page.isEmpty() ? since : page.getLast().position();
+
+        List<EntityDeviceChangeVM> items = page.stream()
+                .map(change -> new EntityDeviceChangeVM(
+                        change.deviceId(),
+                        change.operation(),
+                        change.version(),
+                        change.changedAt(),
+                        change.device() != null
+                                ? EntityDeviceMapper.map.toEntityDeviceDetailVM(change.device())
+                                : null))
+                .toList();
+        return new EntityDeviceChangesVM(items, next.encode(), hasMore);
+    }
+}
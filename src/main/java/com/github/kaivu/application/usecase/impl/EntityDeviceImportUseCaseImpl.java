@@ -0,0 +1,381 @@
+package com.github.kaivu.application.usecase.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.kaivu.adapter.in.rest.dto.request.BatchEntityDevicesDTO;
+import com.github.kaivu.adapter.in.rest.dto.request.CreateEntityDTO;
+import com.github.kaivu.adapter.in.rest.dto.vm.BatchItemResultVM;
+import com.github.kaivu.adapter.in.rest.dto.vm.BatchResultVM;
+import com.github.kaivu.adapter.in.rest.dto.vm.ImportJobVM;
+import com.github.kaivu.adapter.in.rest.dto.vm.ImportLineErrorVM;
+import com.github.kaivu.application.exception.EntityConflictException;
+import com.github.kaivu.application.exception.EntityNotFoundException;
+import com.github.kaivu.application.service.CacheService;
+import com.github.kaivu.application.usecase.EntityDeviceImportUseCase;
+import com.github.kaivu.application.usecase.EntityDeviceUseCase;
+import com.github.kaivu.common.exception.ServiceException;
+import com.github.kaivu.common.utils.CsvUtil;
+import com.github.kaivu.config.ConfigsProvider;
+import com.github.kaivu.config.handler.ErrorsEnum;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.core.Context;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Slf4j
+@ApplicationScoped
+public class EntityDeviceImportUseCaseImpl implements EntityDeviceImportUseCase {
+
+    private static final String CACHE_PREFIX_IMPORT = "entity_device_import";
+    private static final String CACHE_PREFIX_IMPORT_LEASE = "entity_device_import_lease";
+    private static final Duration JOB_TTL = Duration.ofHours(24);
+    private static final String CSV_NAME = "name";
+    private static final String CSV_DESCRIPTION = "description";
+    // Well above a valid record, a stray quote must not swallow the rest of the upload
+    private static final int MAX_CSV_RECORD_LENGTH = 16_384;
+
+    @Context
+    ContainerRequestContext requestContext;
+
+    @Inject
+    EntityDeviceUseCase entityDeviceUseCase;
+
+    @Inject
+    CacheService cacheService;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Override
+    public Uni<ImportJobVM> importDevices(InputStream input, boolean csv, String jobId, boolean upsert) {
+        // Chunks complete off the request thread, resolve the language once
+        Locale locale = requestContext.getLanguage();
+        String jobKey = cacheService.generateKey(CACHE_PREFIX_IMPORT, jobId);
+        String leaseKey = cacheService.generateKey(CACHE_PREFIX_IMPORT_LEASE, jobId);
+        String owner = UUID.randomUUID().toString();
+
+        // Two runs of one job would both resume from the same committed line, only the lease holder goes on
+        return cacheService
+                .setIfAbsent(leaseKey, owner, ConfigsProvider.ENTITY_DEVICE_IMPORT_LEASE)
+                .flatMap(claimed -> {
+                    if (Boolean.FALSE.equals(claimed)) {
+                        return Uni.createFrom()
+                                .failure(new EntityConflictException(
+                                        ErrorsEnum.ENTITY_DEVICE_IMPORT_CONFLICT.withLocale(locale, jobId)));
+                    }
+                    return cacheService
+                            .get(jobKey, ImportJobVM.class)
+                            .map(existing -> existing.orElseGet(() -> newJob(jobId)))
+                            .flatMap(job -> {
+                                if (job.getStatus() == ImportJobVM.Status.COMPLETED) {
+                                    return Uni.createFrom().item(job);
+                                }
+                                ImportProgress progress = new ImportProgress(job, jobKey, leaseKey, owner);
+                                return progress.save()
+                                        .chain(() -> runImport(input, csv, upsert, locale, progress))
+                                        .onFailure()
+                                        .call(failure -> {
+                                            log.error(
+                                                    "Import job {} failed after line {}",
+                                                    jobId,
+                                                    progress.committedLines(),
+                                                    failure);
+                                            progress.finish(ImportJobVM.Status.FAILED);
+                                            return progress.save();
+                                        });
+                            })
+                            .eventually(() -> cacheService.delete(leaseKey));
+                });
+    }
+
+    @Override
+    public Uni<ImportJobVM> status(String jobId) {
+        return cacheService
+                .get(cacheService.generateKey(CACHE_PREFIX_IMPORT, jobId), ImportJobVM.class)
+                .map(job -> job.orElseThrow(() -> new EntityNotFoundException(
+                        ErrorsEnum.ENTITY_DEVICE_IMPORT_NOT_FOUND.withLocale(requestContext.getLanguage(), jobId))));
+    }
+
+    /**
+     * Read the upload lazily on a worker thread, group the records into chunks and write at most
+     * {@code parallelism} chunks at a time; demand only flows upstream as chunks complete,
+     * so memory is bounded by chunk size times parallelism whatever the file size.
+     */
+    private Uni<ImportJobVM> runImport(
+            InputStream input, boolean csv, boolean upsert, Locale locale, ImportProgress progress) {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        long resumeAfter = progress.committedLines();
+        AtomicInteger chunkSequence = new AtomicInteger();
+        AtomicReference<int[]> csvColumns = new AtomicReference<>();
+
+        return Multi.createFrom()
+                .iterable(() -> records(reader, csv))
+                .runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
+                .invoke(line -> {
+                    // The header is read again on resume, it maps the columns of every following line
+                    if (csv && line.number() == 1) {
+                        csvColumns.set(parseHeader(line.text(), locale));
+                    }
+                })
+                .select()
+                .where(line -> line.number() > resumeAfter && !(csv && line.number() == 1))
+                .group()
+                .intoLists()
+                .of(ConfigsProvider.ENTITY_DEVICE_IMPORT_CHUNK_SIZE)
+                .map(lines -> new ImportChunk(chunkSequence.getAndIncrement(), lines))
+                .onItem()
+                .transformToUni(chunk -> writeChunk(chunk, csvColumns.get(), upsert, locale, progress)
+                        .call(progress::save))
+                .merge(ConfigsProvider.ENTITY_DEVICE_IMPORT_PARALLELISM)
+                .collect()
+                .last()
+                .onItem()
+                .transformToUni(ignored -> {
+                    progress.finish(ImportJobVM.Status.COMPLETED);
+                    return progress.save().replaceWith(progress.snapshot());
+                });
+    }
+
+    private Uni<Void> writeChunk(
+            ImportChunk chunk, int[] csvColumns, boolean upsert, Locale locale, ImportProgress progress) {
+        List<CreateEntityDTO> items = new ArrayList<>(chunk.lines().size());
+        List<Long> itemLines = new ArrayList<>(chunk.lines().size());
+        ChunkOutcome outcome = new ChunkOutcome(chunk.lines().getLast().number());
+
+        for (ImportLine line : chunk.lines()) {
+            if (line.text().isBlank()) {
+                continue;
+            }
+            try {
+                items.add(csvColumns != null ? parseCsv(line.text(), csvColumns) : parseJson(line.text()));
+                itemLines.add(line.number());
+            } catch (JsonProcessingException ex) {
+                outcome.invalid(new ImportLineErrorVM(line.number(), null, ex.getOriginalMessage()));
+            }
+        }
+
+        if (items.isEmpty()) {
+            progress.complete(chunk.sequence(), outcome);
+            return Uni.createFrom().voidItem();
+        }
+
+        // Each chunk is one statement, hence one transaction, and invalidates the page cache once
+        return entityDeviceUseCase
+                .batch(new BatchEntityDevicesDTO(items, upsert), locale)
+                .invoke(result -> {
+                    outcome.record(result, itemLines);
+                    progress.complete(chunk.sequence(), outcome);
+                })
+                .replaceWithVoid();
+    }
+
+    /**
+     * The records of the upload, numbered by the line they start on. A quoted CSV field may hold line breaks,
+     * as the export writes them, so its record goes on over the following lines.
+     */
+    private static Iterator<ImportLine> records(BufferedReader reader, boolean csv) {
+        Iterator<String> lines = reader.lines().iterator();
+        return new Iterator<>() {
+
+            private long lineNumber;
+
+            @Override
+            public boolean hasNext() {
+                return lines.hasNext();
+            }
+
+            @Override
+            public ImportLine next() {
+                long start = ++lineNumber;
+                StringBuilder text = new StringBuilder(lines.next());
+                while (csv
+                        && text.length() < MAX_CSV_RECORD_LENGTH
+                        && CsvUtil.isOpenRecord(text.toString())
+                        && lines.hasNext()) {
+                    text.append('\n').append(lines.next());
+                    lineNumber++;
+                }
+                return new ImportLine(start, text.toString());
+            }
+        };
+    }
+
+    private int[] parseHeader(String header, Locale locale) {
+        List<String> columns = CsvUtil.parseLine(header).stream().map(String::strip).toList();
+        int name = columns.indexOf(CSV_NAME);
+        int description = columns.indexOf(CSV_DESCRIPTION);
+        if (name < 0 || description < 0) {
+            throw new ServiceException(ErrorsEnum.ENTITY_DEVICE_IMPORT_BAD_REQUEST.withLocale(
+                    locale, "CSV header must contain the columns " + CSV_NAME + " and " + CSV_DESCRIPTION));
+        }
+        return new int[] {name, description};
+    }
+
+    private CreateEntityDTO parseCsv(String text, int[] columns) {
+        List<String> fields = CsvUtil.parseLine(text);
+        return new CreateEntityDTO(field(fields, columns[0]), field(fields, columns[1]));
+    }
+
+    private CreateEntityDTO parseJson(String text) throws JsonProcessingException {
+        return objectMapper.readValue(text, CreateEntityDTO.class);
+    }
+
+    private static String field(List<String> fields, int index) {
+        return index < fields.size() ? fields.get(index) : null;
+    }
+
+    private static ImportJobVM newJob(String jobId) {
+        ImportJobVM job = new ImportJobVM();
+        job.setJobId(jobId);
+        job.setStartedAt(Instant.now());
+        return job;
+    }
+
+    private record ImportLine(long number, String text) {}
+
+    private record ImportChunk(int sequence, List<ImportLine> lines) {}
+
+    /**
+     * What one chunk did, only added to the job once the chunk joins the committed prefix.
+     */
+    private static final class ChunkOutcome {
+
+        private final long lastLine;
+        private final List<ImportLineErrorVM> errors = new ArrayList<>();
+        private long created;
+        private long updated;
+        private long conflicted;
+        private long invalid;
+
+        private ChunkOutcome(long lastLine) {
+            this.lastLine = lastLine;
+        }
+
+        void record(BatchResultVM result, List<Long> itemLines) {
+            created += result.created();
+            updated += result.updated();
+            conflicted += result.conflicted();
+            invalid += result.invalid();
+            for (BatchItemResultVM item : result.items()) {
+                if (item.status() == BatchItemResultVM.Status.CONFLICT
+                        || item.status() == BatchItemResultVM.Status.INVALID) {
+                    errors.add(new ImportLineErrorVM(itemLines.get(item.index()), item.name(), item.message()));
+                }
+            }
+        }
+
+        void invalid(ImportLineErrorVM error) {
+            invalid++;
+            errors.add(error);
+        }
+    }
+
+    /**
+     * Job state shared by concurrently completing chunks. Chunks finish out of order, so the committed
+     * line only advances over the contiguous prefix of completed chunks, which keeps resume exact.
+     * The counters and errors advance with it: a chunk completed ahead of a gap is written again on
+     * resume, counting it before would count it twice.
+     * Saves are chained one after the other and each writes the state of when it runs, so the stored
+     * committed line never goes backwards. Each save also renews the lease of the job.
+     */
+    private final class ImportProgress {
+
+        private final ImportJobVM job;
+        private final String jobKey;
+        private final String leaseKey;
+        private final String owner;
+        private final TreeMap<Integer, ChunkOutcome> completedAhead = new TreeMap<>();
+        private int nextSequence;
+        private CompletableFuture<Void> saving = CompletableFuture.completedFuture(null);
+
+        private ImportProgress(ImportJobVM job, String jobKey, String leaseKey, String owner) {
+            this.job = job;
+            this.jobKey = jobKey;
+            this.leaseKey = leaseKey;
+            this.owner = owner;
+            this.job.setStatus(ImportJobVM.Status.RUNNING);
+        }
+
+        synchronized long committedLines() {
+            return job.getCommittedLines();
+        }
+
+        synchronized void complete(int sequence, ChunkOutcome outcome) {
+            completedAhead.put(sequence, outcome);
+            while (completedAhead.containsKey(nextSequence)) {
+                ChunkOutcome committed = completedAhead.remove(nextSequence);
+                job.setCreated(job.getCreated() + committed.created);
+                job.setUpdated(job.getUpdated() + committed.updated);
+                job.setConflicted(job.getConflicted() + committed.conflicted);
+                job.setInvalid(job.getInvalid() + committed.invalid);
+                committed.errors.forEach(this::addError);
+                job.setCommittedLines(committed.lastLine);
+                nextSequence++;
+            }
+        }
+
+        synchronized void finish(ImportJobVM.Status status) {
+            job.setStatus(status);
+        }
+
+        synchronized ImportJobVM snapshot() {
+            job.setUpdatedAt(Instant.now());
+            ImportJobVM copy = new ImportJobVM();
+            copy.setJobId(job.getJobId());
+            copy.setStatus(job.getStatus());
+            copy.setCommittedLines(job.getCommittedLines());
+            copy.setCreated(job.getCreated());
+            copy.setUpdated(job.getUpdated());
+            copy.setConflicted(job.getConflicted());
+            copy.setInvalid(job.getInvalid());
+            copy.setErrorsTruncated(job.isErrorsTruncated());
+            copy.setErrors(new ArrayList<>(job.getErrors()));
+            copy.setStartedAt(job.getStartedAt());
+            copy.setUpdatedAt(job.getUpdatedAt());
+            return copy;
+        }
+
+        Uni<Void> save() {
+            CompletableFuture<Void> saved;
+            synchronized (this) {
+                // A failed save does not hold back the next one, it is reported to its own caller
+                saved = saving.exceptionally(failure -> null)
+                        .thenCompose(ignored -> cacheService
+                                .set(jobKey, snapshot(), JOB_TTL)
+                                .chain(() ->
+                                        cacheService.set(leaseKey, owner, ConfigsProvider.ENTITY_DEVICE_IMPORT_LEASE))
+                                .subscribeAsCompletionStage());
+                saving = saved;
+            }
+            return Uni.createFrom().completionStage(saved);
+        }
+
+        private void addError(ImportLineErrorVM error) {
+            if (job.getErrors().size() < ConfigsProvider.ENTITY_DEVICE_IMPORT_MAX_ERRORS) {
+                job.getErrors().add(error);
+            } else {
+                job.setErrorsTruncated(true);
+            }
+        }
+    }
+}
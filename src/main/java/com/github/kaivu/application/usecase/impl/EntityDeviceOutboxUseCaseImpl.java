@@ -0,0 +1,135 @@
+package com.github.kaivu.application.usecase.impl;
+
+import com.github.kaivu.application.port.IEntityDeviceOutboxRepository;
+import com.github.kaivu.application.usecase.CacheInvalidationUseCase;
+import com.github.kaivu.application.usecase.EntityDeviceOutboxUseCase;
+import com.github.kaivu.config.ConfigsProvider;
+import com.github.kaivu.domain.change.EntityDeviceEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.json.JsonObject;
+import io.vertx.mutiny.core.eventbus.EventBus;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Each batch is handled once its claim is committed: the events are published, then the batch is removed from the
+ * outbox. A failure releases the batch and it is retried, so delivery is at least once and consumers must tolerate
+ * duplicates.
+ * The cache keys of the devices and the pages are evicted before the events are published, for every batch: the
+ * {@code CacheInvalidationListener} evicts them sooner but drops notifications it cannot apply, this relay is what
+ * guarantees that no stale entry outlives a committed write.
+ */
+@Slf4j
+@ApplicationScoped
+public class EntityDeviceOutboxUseCaseImpl implements EntityDeviceOutboxUseCase {
+
+    private final IEntityDeviceOutboxRepository entityDeviceOutboxRepository;
+    private final CacheInvalidationUseCase cacheInvalidationUseCase;
+    private final EventBus eventBus;
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong oldestPendingAgeMillis = new AtomicLong();
+
+    private Counter relayedCounter;
+    private Timer relayDelayTimer;
+
+    @Inject
+    public EntityDeviceOutboxUseCaseImpl(
+            IEntityDeviceOutboxRepository entityDeviceOutboxRepository,
+            CacheInvalidationUseCase cacheInvalidationUseCase,
+            EventBus eventBus,
+            MeterRegistry meterRegistry) {
+        this.entityDeviceOutboxRepository = entityDeviceOutboxRepository;
+        this.cacheInvalidationUseCase = cacheInvalidationUseCase;
+        this.eventBus = eventBus;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void initMetrics() {
+        relayedCounter = Counter.builder("outbox.relay.events")
+                .description("Outbox events relayed")
+                .tag("outbox", "entity_device")
+                .register(meterRegistry);
+        relayDelayTimer = Timer.builder("outbox.relay.delay")
+                .description("Time between a write and the relay of its event")
+                .tag("outbox", "entity_device")
+                .register(meterRegistry);
+        Gauge.builder("outbox.pending", pending, AtomicLong::get)
+                .description("Outbox events waiting for the relay")
+                .tag("outbox", "entity_device")
+                .register(meterRegistry);
+        Gauge.builder("outbox.relay.lag", oldestPendingAgeMillis, AtomicLong::get)
+                .description("Age of the oldest event waiting for the relay")
+                .tag("outbox", "entity_device")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Uni<Integer> relay() {
+        int batchSize = ConfigsProvider.ENTITY_DEVICE_OUTBOX_BATCH_SIZE;
+        return Multi.createBy()
+                .repeating()
+                .uni(() -> entityDeviceOutboxRepository.drain(batchSize, this::handle))
+                .whilst(relayed -> relayed == batchSize)
+                .select()
+                .first(ConfigsProvider.ENTITY_DEVICE_OUTBOX_MAX_BATCHES)
+                .collect()
+                .with(Collectors.summingInt(Integer::intValue))
+                .call(this::refreshBacklog);
+    }
+
+    private Uni<Void> handle(List<EntityDeviceEvent> events) {
+        Set<UUID> deviceIds = new LinkedHashSet<>();
+        events.forEach(event -> deviceIds.add(event.deviceId()));
+
+        return cacheInvalidationUseCase.invalidateDevices(deviceIds).invoke(() -> {
+            Instant now = Instant.now();
+            for (EntityDeviceEvent event : events) {
+                eventBus.publish(EVENTS_ADDRESS, toJson(event));
+                relayDelayTimer.record(Duration.between(event.occurredAt(), now));
+            }
+            relayedCounter.increment(events.size());
+            log.debug("Relayed {} entity device events", events.size());
+        });
+    }
+
+    private Uni<Void> refreshBacklog() {
+        return entityDeviceOutboxRepository
+                .backlog()
+                .invoke(backlog -> {
+                    pending.set(backlog.pending());
+                    oldestPendingAgeMillis.set(
+                            backlog.oldest() != null
+                                    ? Math.max(0L, Duration.between(backlog.oldest(), Instant.now()).toMillis())
+                                    : 0L);
+                })
+                .replaceWithVoid();
+    }
+
+    private static JsonObject toJson(EntityDeviceEvent event) {
+        return new JsonObject()
+                .put("id", event.deviceId().toString())
+                .put("operation", event.operation().name())
+                .put("version", event.version())
+                .put("occurredAt", event.occurredAt().toString());
+    }
+}
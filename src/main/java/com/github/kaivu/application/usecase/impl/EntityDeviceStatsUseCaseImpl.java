@@ -0,0 +1,215 @@
+package com.github.kaivu.application.usecase.impl;
+
+import com.github.kaivu.adapter.in.rest.dto.vm.DailyCountVM;
+import com.github.kaivu.adapter.in.rest.dto.vm.EntityDeviceStatsVM;
+import com.github.kaivu.adapter.out.persistence.EntityDeviceRepository;
+import com.github.kaivu.application.service.CacheService;
+import com.github.kaivu.application.usecase.EntityDeviceStatsUseCase;
+import com.github.kaivu.config.ConfigsProvider;
+import com.github.kaivu.domain.EntityDevice;
+import com.github.kaivu.domain.enumeration.ActionStatus;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Counters live in two Redis hashes: devices per status and devices created per day, of the devices still present
+ * since a delete removes the row. Write paths increment them after their statement succeeded, so a crash in between
+ * or a write made outside the service leaves them off until the next {@link #reconcile()}.
+ * Every increment is also kept in a deltas hash, reset when a reconciliation starts and folded into the recounted
+ * hashes when it ends, so writes made while the table is counted are not lost. Only a write committed before the
+ * count whose increment lands after the reset, a window of one round trip, is counted twice until the next run.
+ */
+@Slf4j
+@ApplicationScoped
+public class EntityDeviceStatsUseCaseImpl implements EntityDeviceStatsUseCase {
+
+    private static final String CACHE_PREFIX_STATS = "entity_device_stats";
+    // Longer than a recount, freed early when it ends
+    private static final Duration RECONCILE_LEASE = Duration.ofMinutes(5);
+
+    @Inject
+    EntityDeviceRepository entityDeviceRepository;
+
+    @Inject
+    CacheService cacheService;
+
+    // The reconciliation running on this instance, shared by every caller
+    private final AtomicReference<CompletableFuture<Void>> reconciling = new AtomicReference<>();
+
+    @Override
+    public Uni<EntityDeviceStatsVM> stats(int days) {
+        String statusKey = statusKey();
+        return cacheService
+                .hashGetAll(statusKey)
+                // Cold counters (first start, flushed Redis) are built once instead of answering zeros, a failed read
+                // fails the call instead of starting a recount
+                .flatMap(counts -> counts.isEmpty()
+                        ? reconcile().chain(() -> cacheService.hashGetAll(statusKey))
+                        : Uni.createFrom().item(counts))
+                .flatMap(statusCounts -> cacheService
+                        .hashGetAll(createdKey())
+                        .map(createdCounts -> toStatsVM(statusCounts, createdCounts, days)));
+    }
+
+    @Override
+    public Uni<Void> recordCreated(List<EntityDevice> devices) {
+        if (devices.isEmpty()) {
+            return Uni.createFrom().voidItem();
+        }
+        Map<String, Long> perStatus = devices.stream()
+                .collect(Collectors.groupingBy(device -> device.getStatus().name(), Collectors.counting()));
+        Map<String, Long> perDay = devices.stream()
+                .collect(Collectors.groupingBy(device -> day(device.getCreatedDate()), Collectors.counting()));
+
+        List<Uni<Long>> increments = new ArrayList<>();
+        perStatus.forEach((status, count) -> increments.addAll(increment(statusKey(), status, count)));
+        perDay.forEach((day, count) -> increments.addAll(increment(createdKey(), day, count)));
+        return Uni.join().all(increments).andCollectFailures().replaceWithVoid();
+    }
+
+    @Override
+    public Uni<Void> recordDeleted(EntityDevice device) {
+        // The row is gone, the next recount no longer finds it on its creation day either
+        List<Uni<Long>> decrements = new ArrayList<>(increment(statusKey(), device.getStatus().name(), -1L));
+        decrements.addAll(increment(createdKey(), day(device.getCreatedDate()), -1L));
+        return Uni.join().all(decrements).andCollectFailures().replaceWithVoid();
+    }
+
+    /**
+     * Recount the counters, once at a time on this instance: concurrent callers wait for the running recount, and
+     * one of them going away does not cancel it for the others.
+     */
+    @Override
+    public Uni<Void> reconcile() {
+        return Uni.createFrom().deferred(() -> {
+            CompletableFuture<Void> started = new CompletableFuture<>();
+            CompletableFuture<Void> running = reconciling.compareAndExchange(null, started);
+            if (running == null) {
+                running = started;
+                recountUnderLease()
+                        .subscribe()
+                        .with(
+                                ignored -> {
+                                    reconciling.set(null);
+                                    started.complete(null);
+                                },
+                                failure -> {
+                                    reconciling.set(null);
+                                    started.completeExceptionally(failure);
+                                });
+            }
+            return Uni.createFrom().completionStage(running.minimalCompletionStage());
+        });
+    }
+
+    /**
+     * Only one instance recounts at a time, another one resetting the deltas meanwhile would drop increments.
+     */
+    private Uni<Void> recountUnderLease() {
+        String leaseKey = cacheService.generateKey(CACHE_PREFIX_STATS, "reconcile");
+        return cacheService.setIfAbsent(leaseKey, "1", RECONCILE_LEASE).flatMap(acquired -> {
+            if (!Boolean.TRUE.equals(acquired)) {
+                log.debug("Entity device statistics are being reconciled by another instance");
+                return Uni.createFrom().voidItem();
+            }
+            return recount().eventually(() -> cacheService.delete(leaseKey));
+        });
+    }
+
+    /**
+     * Count the table on the primary and replace the counters, adding the increments made since the count began.
+     */
+    private Uni<Void> recount() {
+        LocalDate since = LocalDate.now(ZoneOffset.UTC).minusDays(ConfigsProvider.ENTITY_DEVICE_STATS_HISTOGRAM_DAYS);
+        String statusKey = statusKey();
+        String createdKey = createdKey();
+        return cacheService
+                .delete(List.of(deltasKey(statusKey), deltasKey(createdKey)))
+                .chain(() -> Uni.combine()
+                        .all()
+                        .unis(entityDeviceRepository.countByStatus(), entityDeviceRepository.countCreatedPerDay(since))
+                        .asTuple())
+                .flatMap(counts -> {
+                    Map<String, Long> perStatus = new HashMap<>();
+                    // Every status is written so an empty table still reads as warm counters
+                    for (ActionStatus status : ActionStatus.values()) {
+                        perStatus.put(status.name(), counts.getItem1().getOrDefault(status, 0L));
+                    }
+                    Map<String, Long> perDay = counts.getItem2().entrySet().stream()
+                            .collect(Collectors.toMap(entry -> entry.getKey().toString(), Map.Entry::getValue));
+
+                    return Uni.combine()
+                            .all()
+                            .unis(
+                                    cacheService.hashReplace(statusKey, perStatus, deltasKey(statusKey)),
+                                    cacheService.hashReplace(createdKey, perDay, deltasKey(createdKey)))
+                            .discardItems();
+                })
+                .invoke(() -> log.debug("Reconciled entity device statistics"));
+    }
+
+    private static EntityDeviceStatsVM toStatsVM(
+            Map<String, Long> statusCounts, Map<String, Long> createdCounts, int days) {
+        Map<ActionStatus, Long> byStatus = new EnumMap<>(ActionStatus.class);
+        for (ActionStatus status : ActionStatus.values()) {
+            byStatus.put(status, statusCounts.getOrDefault(status.name(), 0L));
+        }
+        // Soft deleted rows are still counted by status, they are not part of the devices
+        long total = byStatus.entrySet().stream()
+                .filter(entry -> entry.getKey() != ActionStatus.DELETED)
+                .mapToLong(Map.Entry::getValue)
+                .sum();
+
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        LocalDate first = today.minusDays(Math.max(days, 1) - 1L);
+        List<DailyCountVM> createdPerDay = createdCounts.entrySet().stream()
+                .map(entry -> new DailyCountVM(LocalDate.parse(entry.getKey()), entry.getValue()))
+                .filter(count -> !count.day().isBefore(first) && !count.day().isAfter(today) && count.count() > 0)
+                .sorted(Comparator.comparing(DailyCountVM::day))
+                .toList();
+
+        return new EntityDeviceStatsVM(total, byStatus, createdPerDay);
+    }
+
+    private static String day(Instant instant) {
+        Instant createdAt = instant != null ? instant : Instant.now();
+        return LocalDate.ofInstant(createdAt, ZoneOffset.UTC).toString();
+    }
+
+    /**
+     * Increment a counter and its delta kept for a running reconciliation.
+     */
+    private List<Uni<Long>> increment(String key, String field, long delta) {
+        return List.of(
+                cacheService.hashIncrement(key, field, delta),
+                cacheService.hashIncrement(deltasKey(key), field, delta));
+    }
+
+    private static String deltasKey(String key) {
+        return key + ":deltas";
+    }
+
+    private String statusKey() {
+        return cacheService.generateKey(CACHE_PREFIX_STATS, "status");
+    }
+
+    private String createdKey() {
+        return cacheService.generateKey(CACHE_PREFIX_STATS, "created");
+    }
+}
@@ -1,30 +1,51 @@
 package com.github.kaivu.application.usecase.impl;
 
+import com.github.kaivu.adapter.in.rest.dto.request.BatchEntityDevicesDTO;
 import com.github.kaivu.adapter.in.rest.dto.request.CreateEntityDTO;
 import com.github.kaivu.adapter.in.rest.dto.request.EntityDeviceFilters;
 import com.github.kaivu.adapter.in.rest.dto.request.UpdateEntityDTO;
+import com.github.kaivu.adapter.in.rest.dto.vm.BatchItemResultVM;
+import com.github.kaivu.adapter.in.rest.dto.vm.BatchResultVM;
 import com.github.kaivu.adapter.in.rest.dto.vm.EntityDeviceDetailsVM;
 import com.github.kaivu.adapter.in.rest.dto.vm.EntityDeviceVM;
 import com.github.kaivu.adapter.in.rest.dto.vm.PageResponse;
 import com.github.kaivu.adapter.out.persistence.EntityDeviceRepository;
-import com.github.kaivu.application.exception.EntityConflictException;
 import com.github.kaivu.application.service.CacheService;
 import com.github.kaivu.application.service.EntityDevicesService;
+import com.github.kaivu.application.usecase.EntityDeviceStatsUseCase;
 import com.github.kaivu.application.usecase.EntityDeviceUseCase;
+import com.github.kaivu.common.exception.ServiceException;
 import com.github.kaivu.common.mapper.EntityDeviceMapper;
+import com.github.kaivu.common.utils.CsvUtil;
+import com.github.kaivu.config.ConfigsProvider;
 import com.github.kaivu.config.handler.ErrorsEnum;
 import com.github.kaivu.domain.EntityDevice;
+import com.github.kaivu.domain.patch.MetadataPatch;
 import io.quarkus.hibernate.reactive.panache.common.WithTransaction;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
-import io.smallrye.mutiny.unchecked.Unchecked;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import jakarta.ws.rs.container.ContainerRequestContext;
 import jakarta.ws.rs.core.Context;
 import lombok.extern.slf4j.Slf4j;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 /**
  * Created by Khoa Vu.
@@ -36,9 +57,10 @@ import java.util.UUID;
 @ApplicationScoped
 public class EntityDeviceUseCaseImpl implements EntityDeviceUseCase {
 
-    private static final String CACHE_PREFIX_ENTITY = "entity_device";
-    private static final String CACHE_PREFIX_DETAILS = "entity_device_details";
-    private static final String CACHE_PREFIX_PAGE = "entity_device_page";
+    // Also evicted by CacheInvalidationUseCaseImpl
+    static final String CACHE_PREFIX_ENTITY = "entity_device";
+    static final String CACHE_PREFIX_DETAILS = "entity_device_details";
+    static final String CACHE_PREFIX_PAGE = "entity_device_page";
     private static final Duration CACHE_TTL = Duration.ofMinutes(30);
     private static final Duration DETAILS_CACHE_TTL = Duration.ofHours(1);
 
@@ -54,85 +76,188 @@ public class EntityDeviceUseCaseImpl implements EntityDeviceUseCase {
     @Inject
     CacheService cacheService;
 
+    @Inject
+    Validator validator;
+
+    @Inject
+    EntityDeviceStatsUseCase entityDeviceStatsUseCase;
+
     @Override
     @WithTransaction
     public Uni<EntityDeviceVM> create(CreateEntityDTO dto) {
-        // First check if an entity with the same name already exists
-        return entityDevicesService.findByName(dto.name()).flatMap(Unchecked.function(existingEntity -> {
-            if (existingEntity.isPresent()) {
-                // If an entity with the same name exists, throw an exception
-                throw new EntityConflictException(ErrorsEnum.ENTITY_DEVICE_NAME_ALREADY_EXISTS.withLocale(
-                        requestContext.getLanguage(), dto.name()));
+        // Name uniqueness is enforced by the unique index, a duplicate surfaces as EntityConflictException
+        EntityDevice entityDevice = EntityDeviceMapper.map.toEntity(dto);
+        return entityDevicesService
+                .persist(entityDevice)
+                .flatMap(savedEntity -> {
+                    // Cache the newly created entity
+                    String cacheKey = cacheService.generateKey(
+                            CACHE_PREFIX_ENTITY, savedEntity.getId().toString());
+                    EntityDeviceVM entityVM = EntityDeviceMapper.map.toEntityDeviceVM(savedEntity);
+
+                    return cacheService
+                            .set(cacheKey, entityVM, CACHE_TTL)
+                            .replaceWith(entityVM)
+                            .invoke(() -> log.debug("Cached new entity with key: {}", cacheKey))
+                            .call(() -> entityDeviceStatsUseCase.recordCreated(List.of(savedEntity)));
+                })
+                .invoke(this::invalidatePageCache);
+    }
+
+    @Override
+    public Uni<BatchResultVM> batch(BatchEntityDevicesDTO dto) {
+        return batch(dto, requestContext.getLanguage());
+    }
+
+    @Override
+    public Uni<BatchResultVM> batch(BatchEntityDevicesDTO dto, Locale locale) {
+        List<CreateEntityDTO> items = dto.items();
+        BatchItemResultVM[] results = new BatchItemResultVM[items.size()];
+        Map<String, Integer> accepted = new LinkedHashMap<>();
+        List<EntityDevice> entities = new ArrayList<>();
+
+        // Validate item by item so one bad record does not reject the batch, and keep the first of duplicated names
+        for (int index = 0; index < items.size(); index++) {
+            CreateEntityDTO item = items.get(index);
+            String violations = validate(item);
+            if (violations != null) {
+                results[index] = new BatchItemResultVM(
+                        index,
+                        null,
+                        item != null ? item.name() : null,
+                        null,
+                        BatchItemResultVM.Status.INVALID,
+                        violations);
+            } else if (accepted.putIfAbsent(item.name().toLowerCase(), index) != null) {
+                results[index] = conflict(index, item.name(), locale);
+            } else {
+                entities.add(EntityDeviceMapper.map.toEntity(item));
             }
+        }
+
+        if (entities.isEmpty()) {
+            return Uni.createFrom().item(BatchResultVM.of(List.of(results)));
+        }
+
+        return entityDevicesService
+                .insertAll(entities, dto.upsert())
+                .flatMap(written -> {
+                    Map<String, EntityDevice> writtenByName = written.stream()
+                            .collect(Collectors.toMap(device -> device.getName().toLowerCase(), Function.identity()));
+                    List<String> staleKeys = new ArrayList<>();
+                    List<EntityDevice> created = new ArrayList<>();
 
-            // Name is unique, proceed with entity creation
-            EntityDevice entityDevice = EntityDeviceMapper.map.toEntity(dto);
-            return entityDevicesService
-                    .persist(entityDevice)
-                    .flatMap(savedEntity -> {
-                        // Cache the newly created entity
-                        String cacheKey = cacheService.generateKey(
-                                CACHE_PREFIX_ENTITY, savedEntity.getId().toString());
-                        EntityDeviceVM entityVM = EntityDeviceMapper.map.toEntityDeviceVM(savedEntity);
-
-                        return cacheService
-                                .set(cacheKey, entityVM, CACHE_TTL)
-                                .replaceWith(entityVM)
-                                .invoke(() -> log.debug("Cached new entity with key: {}", cacheKey));
-                    })
-                    .invoke(this::invalidatePageCache);
-        }));
+                    accepted.forEach((name, index) -> {
+                        EntityDevice device = writtenByName.get(name);
+                        if (device == null) {
+                            results[index] = conflict(index, items.get(index).name(), locale);
+                            return;
+                        }
+                        boolean inserted = device.getVersion() == 0L;
+                        results[index] = new BatchItemResultVM(
+                                index,
+                                device.getId(),
+                                device.getName(),
+                                device.getVersion(),
+                                inserted ? BatchItemResultVM.Status.CREATED : BatchItemResultVM.Status.UPDATED,
+                                null);
+                        if (inserted) {
+                            created.add(device);
+                        } else {
+                            staleKeys.add(cacheService.generateKey(CACHE_PREFIX_ENTITY, device.getId().toString()));
+                            staleKeys.add(cacheService.generateKey(CACHE_PREFIX_DETAILS, device.getId().toString()));
+                        }
+                    });
+
+                    // Upserted devices are evicted with a single DEL instead of one call per item
+                    return cacheService
+                            .delete(staleKeys)
+                            .call(() -> entityDeviceStatsUseCase.recordCreated(created))
+                            .replaceWith(BatchResultVM.of(List.of(results)));
+                })
+                .invoke(result -> {
+                    if (result.created() + result.updated() > 0) {
+                        invalidatePageCache();
+                    }
+                });
     }
 
     @Override
-    @WithTransaction
-    public Uni<EntityDeviceVM> update(UUID id, UpdateEntityDTO dto) {
+    public Uni<EntityDeviceVM> update(UUID id, UpdateEntityDTO dto, List<Long> expectedVersions) {
         String cacheKey = cacheService.generateKey(CACHE_PREFIX_ENTITY, id.toString());
         String detailsCacheKey = cacheService.generateKey(CACHE_PREFIX_DETAILS, id.toString());
 
-        return entityDevicesService
-                .getById(id)
-                .flatMap(entity -> {
-                    // Check if name is being changed and if new name already exists
-                    if (!entity.getName().equalsIgnoreCase(dto.name())) {
-                        return entityDevicesService
-                                .findByName(dto.name())
-                                .flatMap(Unchecked.function(existingEntity -> {
-                                    if (existingEntity.isPresent()) {
-                                        // If an entity with the new name exists, throw an exception
-                                        throw new EntityConflictException(
-                                                ErrorsEnum.ENTITY_DEVICE_NAME_ALREADY_EXISTS.withLocale(
-                                                        requestContext.getLanguage(), dto.name()));
-                                    }
-
-                                    // Name is unique, proceed with update
-                                    entity.setName(dto.name());
-                                    entity.setDescription(dto.description());
-                                    return entityDevicesService.update(entity);
-                                }));
-                    } else {
-                        // Name hasn't changed, just update other fields
-                        entity.setDescription(dto.description());
-                        return entityDevicesService.update(entity);
-                    }
+        // A rename onto an existing name is rejected by the unique index on both paths, the unconditional one
+        // reads from the primary so it never merges a version a lagging replica still holds
+        Uni<EntityDevice> updated = expectedVersions == null
+                ? entityDevicesService.getLatestById(id).flatMap(entity -> {
+                    entity.setName(dto.name());
+                    entity.setDescription(dto.description());
+                    return entityDevicesService.update(entity);
                 })
-                .flatMap(updatedEntity -> {
-                    EntityDeviceVM entityVM = EntityDeviceMapper.map.toEntityDeviceVM(updatedEntity);
-                    EntityDeviceDetailsVM detailsVM = EntityDeviceMapper.map.toEntityDeviceDetailVM(updatedEntity);
+                : entityDevicesService.updateIfVersion(id, expectedVersions, dto.name(), dto.description());
 
-                    // Update both entity and details cache
-                    return Uni.combine()
-                            .all()
-                            .unis(
-                                    cacheService.set(cacheKey, entityVM, CACHE_TTL),
-                                    cacheService.set(detailsCacheKey, detailsVM, DETAILS_CACHE_TTL))
-                            .discardItems()
-                            .replaceWith(entityVM)
-                            .invoke(() -> {
-                                log.debug("Updated cache for entity: {}", id);
-                                invalidatePageCache();
-                            });
-                });
+        return updated.flatMap(updatedEntity -> {
+            EntityDeviceVM entityVM = EntityDeviceMapper.map.toEntityDeviceVM(updatedEntity);
+            EntityDeviceDetailsVM detailsVM = EntityDeviceMapper.map.toEntityDeviceDetailVM(updatedEntity);
+
+            // Update both entity and details cache
+            return Uni.combine()
+                    .all()
+                    .unis(
+                            cacheService.set(cacheKey, entityVM, CACHE_TTL),
+                            cacheService.set(detailsCacheKey, detailsVM, DETAILS_CACHE_TTL))
+                    .discardItems()
+                    .replaceWith(entityVM)
+                    .invoke(() -> {
+                        log.debug("Updated cache for entity: {}", id);
+                        invalidatePageCache();
+                    });
+        });
+    }
+
+    @Override
+    public Uni<EntityDeviceDetailsVM> mergePatchMetadata(UUID id, String patch, List<Long> expectedVersions) {
+        return patchMetadata(id, () -> MetadataPatch.fromMergePatch(new JsonObject(patch)), expectedVersions);
+    }
+
+    @Override
+    public Uni<EntityDeviceDetailsVM> jsonPatchMetadata(UUID id, String patch, List<Long> expectedVersions) {
+        return patchMetadata(id, () -> MetadataPatch.fromJsonPatch(new JsonArray(patch)), expectedVersions);
+    }
+
+    private Uni<EntityDeviceDetailsVM> patchMetadata(
+            UUID id, Supplier<MetadataPatch> parser, List<Long> expectedVersions) {
+        MetadataPatch patch;
+        try {
+            patch = parser.get();
+        } catch (DecodeException | IllegalArgumentException e) {
+            return Uni.createFrom()
+                    .failure(new ServiceException(ErrorsEnum.ENTITY_DEVICE_METADATA_BAD_REQUEST.withLocale(
+                            requestContext.getLanguage(), e.getMessage())));
+        }
+
+        String cacheKey = cacheService.generateKey(CACHE_PREFIX_ENTITY, id.toString());
+        String detailsCacheKey = cacheService.generateKey(CACHE_PREFIX_DETAILS, id.toString());
+
+        return entityDevicesService.patchMetadata(id, patch, expectedVersions).flatMap(patched -> {
+            EntityDeviceVM entityVM = EntityDeviceMapper.map.toEntityDeviceVM(patched);
+            EntityDeviceDetailsVM detailsVM = EntityDeviceMapper.map.toEntityDeviceDetailVM(patched);
+
+            // The statement returns the patched row, the cached views are refreshed rather than evicted
+            return Uni.combine()
+                    .all()
+                    .unis(
+                            cacheService.set(cacheKey, entityVM, CACHE_TTL),
+                            cacheService.set(detailsCacheKey, detailsVM, DETAILS_CACHE_TTL))
+                    .discardItems()
+                    .replaceWith(detailsVM)
+                    .invoke(() -> {
+                        log.debug("Patched metadata and refreshed cache for entity: {}", id);
+                        // Pages carry the version
+                        invalidatePageCache();
+                    });
+        });
     }
 
     @Override
@@ -165,7 +290,9 @@ public class EntityDeviceUseCaseImpl implements EntityDeviceUseCase {
             } else {
                 return Uni.combine()
                         .all()
-                        .unis(entityDeviceRepository.findAll(filters), entityDeviceRepository.countAll(filters))
+                        .unis(
+                                entityDeviceRepository.findAllSummaries(filters),
+                                entityDeviceRepository.countAll(filters))
                         .with((data, total) -> PageResponse.<EntityDeviceVM>builder()
                                 .content(data.stream()
                                         .map(EntityDeviceMapper.map::toEntityDeviceVM)
@@ -182,6 +309,30 @@ public class EntityDeviceUseCaseImpl implements EntityDeviceUseCase {
         });
     }
 
+    @Override
+    public Multi<EntityDeviceDetailsVM> export(EntityDeviceFilters filters) {
+        // Bypasses the cache on purpose, an export must not evict or flood the hot entries
+        return entityDeviceRepository
+                .streamAll(filters, ConfigsProvider.ENTITY_DEVICE_EXPORT_FETCH_SIZE)
+                .map(EntityDeviceMapper.map::toEntityDeviceDetailVM);
+    }
+
+    @Override
+    public Multi<String> exportCsv(EntityDeviceFilters filters) {
+        Multi<String> header = Multi.createFrom()
+                .item(CsvUtil.toLine("id", "name", "description", "version", "createdBy", "createdDate", "metadata"));
+        Multi<String> lines = export(filters)
+                .map(device -> CsvUtil.toLine(
+                        device.getId(),
+                        device.getName(),
+                        device.getDescription(),
+                        device.getVersion(),
+                        device.getCreatedBy(),
+                        device.getCreatedDate(),
+                        device.getMetadata() != null ? device.getMetadata().encode() : null));
+        return Multi.createBy().concatenating().streams(header, lines);
+    }
+
     @Override
     @WithTransaction
     public Uni<Void> delete(UUID id) {
@@ -189,12 +340,15 @@ public class EntityDeviceUseCaseImpl implements EntityDeviceUseCase {
         String detailsCacheKey = cacheService.generateKey(CACHE_PREFIX_DETAILS, id.toString());
 
         return entityDevicesService
-                .delete(id)
-                .flatMap(ignored -> {
+                .remove(id)
+                .flatMap(removed -> {
                     // Remove from cache after successful deletion
                     return Uni.combine()
                             .all()
-                            .unis(cacheService.delete(cacheKey), cacheService.delete(detailsCacheKey))
+                            .unis(
+                                    cacheService.delete(cacheKey),
+                                    cacheService.delete(detailsCacheKey),
+                                    entityDeviceStatsUseCase.recordDeleted(removed))
                             .discardItems();
                 })
                 .invoke(() -> {
@@ -203,6 +357,32 @@ public class EntityDeviceUseCaseImpl implements EntityDeviceUseCase {
                 });
     }
 
+    /**
+     * Validate a batch item against the DTO constraints.
+     *
+     * @return the violations joined in a single message, null when the item is valid
+     */
+    private String validate(CreateEntityDTO item) {
+        if (item == null) {
+            return "item: must not be null";
+        }
+        Set<ConstraintViolation<CreateEntityDTO>> violations = validator.validate(item);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    private BatchItemResultVM conflict(int index, String name, Locale locale) {
+        String message = ErrorsEnum.ENTITY_DEVICE_NAME_ALREADY_EXISTS
+                .withLocale(locale, name.toUpperCase())
+                .getMessage();
+        return new BatchItemResultVM(index, null, name, null, BatchItemResultVM.Status.CONFLICT, message);
+    }
+
     /**
      * Generate cache key for paginated results based on filters
      */
@@ -216,7 +396,8 @@ public class EntityDeviceUseCaseImpl implements EntityDeviceUseCase {
     }
 
     /**
-     * Invalidate all page cache entries when entities are modified
+     * Invalidate all page cache entries when entities are modified. Best effort for read-your-writes,
+     * the cache invalidation listener or the outbox relay invalidates them again once the write is committed.
      */
     private void invalidatePageCache() {
         String pattern = cacheService.generateKey(CACHE_PREFIX_PAGE, "*");
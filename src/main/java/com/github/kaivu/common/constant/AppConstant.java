@@ -7,5 +7,7 @@ public final class AppConstant {
     public static final String I18N_ERROR = PATH_I18N + "/error_messages";
     public static final String I18N_VALIDATION = PATH_I18N + "/validation_messages";
 
+    public static final int BATCH_MAX_SIZE = 500;
+
     private AppConstant() {}
 }
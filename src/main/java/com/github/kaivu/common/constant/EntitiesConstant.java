@@ -11,6 +11,10 @@ public final class EntitiesConstant {
     // ENTITY_NAME BUSINESS LOGIC
     public static final String USER = "user";
     public static final String ENTITY_DEVICE = "entity_device";
+    public static final String ENTITY_DEVICE_IMPORT = "entity_device_import";
+    public static final String ENTITY_DEVICE_METADATA = "entity_device_metadata";
+    public static final String ENTITY_DEVICE_CHANGES = "entity_device_changes";
+    public static final String MEDIA_FILE = "media_file";
 
     private EntitiesConstant() {}
 }
@@ -19,12 +19,16 @@ public final class ErrorsKeyConstant {
     public static final String DATABASE_CONNECTION_FAILED = "database_connection_failed";
     public static final String CLIENT_BAD_REQUEST = "client_bad_request";
     public static final String CONFLICT = "conflict";
+    public static final String EXPIRED = "expired";
     public static final String ID_CONFLICT = "id_conflict";
     public static final String ID_INVALID = "id_invalid";
     public static final String INVALID_SORT_ORDER = "invalid_sort_order";
     public static final String INVALID_SORT_PARAMETER = "invalid_sort_parameter";
     public static final String INVALID_TIME_RANGE = "invalid_time_range";
     public static final String NOT_FOUND = "not_found";
+    public static final String PRECONDITION_FAILED = "precondition_failed";
+    public static final String RANGE_NOT_SATISFIABLE = "range_not_satisfiable";
+    public static final String STORAGE_BUSY = "storage_busy";
 
     private ErrorsKeyConstant() {}
 }
@@ -4,7 +4,11 @@ import com.github.kaivu.adapter.in.rest.dto.request.CreateEntityDTO;
 import com.github.kaivu.adapter.in.rest.dto.vm.EntityDeviceDetailsVM;
 import com.github.kaivu.adapter.in.rest.dto.vm.EntityDeviceVM;
 import com.github.kaivu.domain.EntityDevice;
+import com.github.kaivu.domain.projection.EntityDeviceSummary;
+import com.github.kaivu.domain.type.JsonMetadata;
+import io.vertx.core.json.JsonObject;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import org.mapstruct.factory.Mappers;
 
 /**
@@ -21,5 +25,14 @@ public interface EntityDeviceMapper {
 
     EntityDeviceDetailsVM toEntityDeviceDetailVM(EntityDevice entityDevice);
 
+    // Same upper-case rendering as EntityDevice#getName
+    @Mapping(target = "name", expression = "java(summary.name() != null ? summary.name().toUpperCase() : null)")
+    EntityDeviceVM toEntityDeviceVM(EntityDeviceSummary summary);
+
     EntityDevice toEntity(CreateEntityDTO dto);
+
+    // The metadata is decoded here, only for the views that expose it
+    default JsonObject toJsonObject(JsonMetadata metadata) {
+        return metadata != null ? metadata.toJsonObject() : null;
+    }
 }
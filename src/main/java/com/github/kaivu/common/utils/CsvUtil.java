@@ -0,0 +1,79 @@
+package com.github.kaivu.common.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Minimal RFC 4180 helpers for CSV exports.
+ */
+public final class CsvUtil {
+
+    private static final String SEPARATOR = ",";
+    private static final String LINE_END = "\r\n";
+
+    private CsvUtil() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Build one CSV record, terminated by CRLF. Null values become empty fields.
+     */
+    public static String toLine(Object... values) {
+        return Arrays.stream(values).map(CsvUtil::escape).collect(Collectors.joining(SEPARATOR)) + LINE_END;
+    }
+
+    /**
+     * Split one CSV record into its fields, honouring quoted fields and doubled quotes.
+     * A record spanning several lines must be passed whole, see {@link #isOpenRecord(String)}.
+     */
+    public static List<String> parseLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c != '\r') {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Whether the text ends inside a quoted field, its record then goes on over the next line.
+     */
+    public static boolean isOpenRecord(String text) {
+        return text.chars().filter(c -> c == '"').count() % 2 == 1;
+    }
+
+    /**
+     * Quote a field when it holds a separator, a quote or a line break, doubling embedded quotes.
+     */
+    public static String escape(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String field = value.toString();
+        if (field.contains(SEPARATOR) || field.contains("\"") || field.contains("\n") || field.contains("\r")) {
+            return "\"" + field.replace("\"", "\"\"") + "\"";
+        }
+        return field;
+    }
+}
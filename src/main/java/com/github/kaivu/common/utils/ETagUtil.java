@@ -0,0 +1,178 @@
+package com.github.kaivu.common.utils;
+
+import jakarta.ws.rs.core.EntityTag;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Helpers to build and compare entity tags derived from an entity {@code @Version} or stored with a file, and the
+ * HTTP dates used as weaker validators.
+ */
+public final class ETagUtil {
+
+    private static final String WILDCARD = "*";
+    private static final String WEAK_PREFIX = "W/";
+
+    /**
+     * IMF-fixdate always has two day digits, {@link DateTimeFormatter#RFC_1123_DATE_TIME} writes a single one.
+     */
+    private static final DateTimeFormatter IMF_FIXDATE =
+            DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+
+    private ETagUtil() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Build a strong entity tag from a version, null when the version is unknown.
+     */
+    public static EntityTag toEntityTag(Long version) {
+        return version == null ? null : new EntityTag(version.toString());
+    }
+
+    /**
+     * Weak comparison of an If-None-Match header against the current version.
+     *
+     * @param ifNoneMatch the raw header value, may list several tags
+     * @param version     the current version
+     * @return true if the client copy is still current and 304 can be answered
+     */
+    public static boolean matchesNoneMatch(String ifNoneMatch, Long version) {
+        return version != null && matchesNoneMatch(ifNoneMatch, version.toString());
+    }
+
+    /**
+     * Weak comparison of an If-None-Match header against the current entity tag.
+     *
+     * @param ifNoneMatch the raw header value, may list several tags
+     * @param current     the current tag, unquoted
+     * @return true if the client copy is still current and 304 can be answered
+     */
+    public static boolean matchesNoneMatch(String ifNoneMatch, String current) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank() || current == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            String value = tag.trim();
+            if (WILDCARD.equals(value)) {
+                return true;
+            }
+            if (value.startsWith(WEAK_PREFIX)) {
+                value = value.substring(WEAK_PREFIX.length());
+            }
+            if (current.equals(unquote(value))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Extract the expected versions from an If-Match header. The header may list several tags, the request proceeds
+     * when the current version equals any of them. Weak tags never match If-Match (RFC 7232 section 3.1) and tags
+     * that are not ours are dropped.
+     *
+     * @param ifMatch the raw header value
+     * @return null when the request is unconditional (absent or {@code *}), otherwise the strong versions listed,
+     * empty when none of the tags can match
+     */
+    public static List<Long> parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank()) {
+            return null;
+        }
+        List<Long> versions = new ArrayList<>();
+        for (String tag : ifMatch.split(",")) {
+            String value = tag.trim();
+            if (WILDCARD.equals(value)) {
+                return null;
+            }
+            if (value.isEmpty() || value.startsWith(WEAK_PREFIX)) {
+                continue;
+            }
+            try {
+                versions.add(Long.parseLong(unquote(value)));
+            } catch (NumberFormatException ex) {
+                // Not a tag issued by this service, it can never match
+            }
+        }
+        return versions;
+    }
+
+    /**
+     * Evaluate an If-Range header (RFC 7233 section 3.2): the Range header is only honoured when the validator still
+     * designates the current representation. A tag is compared strongly, a date must be the exact Last-Modified.
+     *
+     * @param ifRange      the raw header value
+     * @param current      the current tag, unquoted
+     * @param lastModified the last modification of the representation, may be null
+     * @return true when there is no If-Range header or it matches, false when the whole representation must be sent
+     */
+    public static boolean matchesIfRange(String ifRange, String current, Instant lastModified) {
+        if (ifRange == null || ifRange.isBlank()) {
+            return true;
+        }
+        String value = ifRange.trim();
+        if (value.startsWith(WEAK_PREFIX)) {
+            return false;
+        }
+        if (value.startsWith("\"")) {
+            return current != null && current.equals(unquote(value));
+        }
+        Instant date = parseHttpDate(value);
+        return date != null && lastModified != null && date.equals(toHttpPrecision(lastModified));
+    }
+
+    /**
+     * Evaluate an If-Modified-Since header, only meaningful when the request has no If-None-Match.
+     *
+     * @param ifModifiedSince the raw header value
+     * @param lastModified    the last modification of the representation, may be null
+     * @return true if the client copy is still current and 304 can be answered
+     */
+    public static boolean notModifiedSince(String ifModifiedSince, Instant lastModified) {
+        Instant date = parseHttpDate(ifModifiedSince);
+        return date != null && lastModified != null && !toHttpPrecision(lastModified).isAfter(date);
+    }
+
+    /**
+     * Format an instant as an HTTP date (RFC 7231 IMF-fixdate).
+     */
+    public static String formatHttpDate(Instant instant) {
+        return IMF_FIXDATE.format(ZonedDateTime.ofInstant(instant, ZoneOffset.UTC));
+    }
+
+    /**
+     * HTTP dates have a precision of one second.
+     */
+    public static Instant toHttpPrecision(Instant instant) {
+        return instant.truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    private static Instant parseHttpDate(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            // Lenient on purpose, also accepts the single day digit some clients send
+            return ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+        } catch (DateTimeParseException ex) {
+            // Invalid dates are ignored, as if the header were absent
+            return null;
+        }
+    }
+
+    private static String unquote(String value) {
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+}
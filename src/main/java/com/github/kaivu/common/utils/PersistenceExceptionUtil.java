@@ -0,0 +1,41 @@
+package com.github.kaivu.common.utils;
+
+import io.vertx.pgclient.PgException;
+import org.hibernate.exception.ConstraintViolationException;
+
+/**
+ * Helpers to classify failures raised by Hibernate Reactive or the reactive PG client.
+ */
+public final class PersistenceExceptionUtil {
+
+    private static final String UNIQUE_VIOLATION_SQL_STATE = "23505";
+
+    private PersistenceExceptionUtil() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Check whether the failure (or one of its causes) is a unique violation of the given constraint.
+     *
+     * @param throwable      the failure to inspect
+     * @param constraintName the unique index or constraint name
+     * @return true if the write was rejected by that constraint
+     */
+    public static boolean isUniqueViolation(Throwable throwable, String constraintName) {
+        Throwable current = throwable;
+        while (current != null) {
+            if (current instanceof ConstraintViolationException violation
+                    && violation.getConstraintName() != null
+                    && violation.getConstraintName().toLowerCase().contains(constraintName.toLowerCase())) {
+                return true;
+            }
+            if (current instanceof PgException pgException
+                    && UNIQUE_VIOLATION_SQL_STATE.equals(pgException.getSqlState())
+                    && constraintName.equalsIgnoreCase(pgException.getConstraint())) {
+                return true;
+            }
+            current = current.getCause() == current ? null : current.getCause();
+        }
+        return false;
+    }
+}
@@ -0,0 +1,102 @@
+package com.github.kaivu.common.utils;
+
+import com.github.kaivu.adapter.in.rest.dto.vm.RangeInfo;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Parser of the Range request header (RFC 7233), byte ranges only.
+ */
+public final class RangeHeaderUtil {
+
+    private static final String BYTES_UNIT = "bytes=";
+
+    private RangeHeaderUtil() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Resolve a Range header against the size of the representation.
+     * Open-ended ({@code bytes=N-}) and suffix ({@code bytes=-N}) specs are clamped to {@code maxOpenLength} bytes
+     * from their first byte, the Content-Range of the response tells the client where to continue. Closed specs are
+     * served as asked, within the representation.
+     *
+     * @param rangeHeader   the raw header value
+     * @param fileSize      the size of the representation
+     * @param maxOpenLength the longest range served for an open-ended or suffix spec
+     * @return null when the whole representation must be sent (no header, another unit or a malformed header, which
+     * RFC 7233 says to ignore), an empty list when no spec is satisfiable (416), otherwise the satisfiable ranges in
+     * request order
+     */
+    public static List<RangeInfo> parse(String rangeHeader, long fileSize, long maxOpenLength) {
+        if (rangeHeader == null || !rangeHeader.regionMatches(true, 0, BYTES_UNIT, 0, BYTES_UNIT.length())) {
+            return null;
+        }
+
+        List<RangeInfo> ranges = new ArrayList<>();
+        for (String spec : rangeHeader.substring(BYTES_UNIT.length()).split(",")) {
+            String value = spec.trim();
+            int dash = value.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            String first = value.substring(0, dash).trim();
+            String last = value.substring(dash + 1).trim();
+            try {
+                if (first.isEmpty()) {
+                    // Suffix: the last N bytes
+                    long suffixLength = last.isEmpty() ? -1 : Long.parseLong(last);
+                    if (suffixLength < 0) {
+                        return null;
+                    }
+                    if (suffixLength > 0 && fileSize > 0) {
+                        long start = Math.max(0, fileSize - suffixLength);
+                        ranges.add(new RangeInfo(start, Math.min(fileSize - 1, start + maxOpenLength - 1)));
+                    }
+                    continue;
+                }
+
+                long start = Long.parseLong(first);
+                long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+                if (start < 0 || end < start) {
+                    return null;
+                }
+                if (start >= fileSize) {
+                    continue;
+                }
+                if (last.isEmpty()) {
+                    end = start + maxOpenLength - 1;
+                }
+                ranges.add(new RangeInfo(start, Math.min(end, fileSize - 1)));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return ranges;
+    }
+
+    /**
+     * Merge overlapping and adjacent ranges, as RFC 7233 allows, so no byte is sent twice.
+     *
+     * @param ranges the satisfiable ranges, in any order
+     * @return the merged ranges, sorted by first byte
+     */
+    public static List<RangeInfo> coalesce(List<RangeInfo> ranges) {
+        List<RangeInfo> sorted = new ArrayList<>(ranges);
+        sorted.sort(Comparator.comparingLong(RangeInfo::startByte));
+
+        List<RangeInfo> merged = new ArrayList<>();
+        for (RangeInfo range : sorted) {
+            RangeInfo last = merged.isEmpty() ? null : merged.getLast();
+            if (last != null && range.startByte() <= last.endByte() + 1) {
+                long endByte = Math.max(last.endByte(), range.endByte());
+                merged.set(merged.size() - 1, new RangeInfo(last.startByte(), endByte));
+            } else {
+                merged.add(range);
+            }
+        }
+        return merged;
+    }
+}
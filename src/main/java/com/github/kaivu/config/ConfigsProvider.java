@@ -2,6 +2,8 @@ package com.github.kaivu.config;
 
 import org.eclipse.microprofile.config.ConfigProvider;
 
+import java.time.Duration;
+
 public class ConfigsProvider {
 
     private ConfigsProvider() {
@@ -27,6 +29,82 @@ public class ConfigsProvider {
      */
     public static final String DATABASE_SCHEMA =
             ConfigProvider.getConfig().getValue("quarkus.hibernate-orm.database.default-schema", String.class);
+    public static final String DATABASE_SCHEMA_STRATEGY = ConfigProvider.getConfig()
+            .getOptionalValue("quarkus.hibernate-orm.schema-management.strategy", String.class)
+            .orElse("none");
+    public static final String DATABASE_URL =
+            ConfigProvider.getConfig().getValue("quarkus.datasource.reactive.url", String.class);
+    public static final String DATABASE_USERNAME =
+            ConfigProvider.getConfig().getValue("quarkus.datasource.username", String.class);
+    public static final String DATABASE_PASSWORD =
+            ConfigProvider.getConfig().getValue("quarkus.datasource.password", String.class);
+    public static final Boolean READ_ROUTING_ENABLED = ConfigProvider.getConfig()
+            .getOptionalValue("datasource-routing.enabled", Boolean.class)
+            .orElse(Boolean.TRUE);
+    public static final Duration READ_ROUTING_STICKY_WINDOW = ConfigProvider.getConfig()
+            .getOptionalValue("datasource-routing.sticky-window", Duration.class)
+            .orElse(Duration.ofSeconds(5));
+
+    /*
+     * *****************************************************************************
+     * Cache invalidation configurations
+     */
+    public static final Boolean CACHE_LISTENER_ENABLED = ConfigProvider.getConfig()
+            .getOptionalValue("cache-invalidation.listener.enabled", Boolean.class)
+            .orElse(Boolean.TRUE);
+    public static final Integer CACHE_LISTENER_BATCH_SIZE = ConfigProvider.getConfig()
+            .getOptionalValue("cache-invalidation.listener.batch-size", Integer.class)
+            .orElse(500);
+    public static final Duration CACHE_LISTENER_FLUSH_INTERVAL = ConfigProvider.getConfig()
+            .getOptionalValue("cache-invalidation.listener.flush-interval", Duration.class)
+            .orElse(Duration.ofMillis(200));
+    public static final Integer CACHE_LISTENER_CATCH_UP_LIMIT = ConfigProvider.getConfig()
+            .getOptionalValue("cache-invalidation.listener.catch-up-limit", Integer.class)
+            .orElse(1000);
+
+    /*
+     * *****************************************************************************
+     * Entity device configurations
+     */
+    public static final Integer ENTITY_DEVICE_EXPORT_FETCH_SIZE = ConfigProvider.getConfig()
+            .getOptionalValue("entity-device.export.fetch-size", Integer.class)
+            .orElse(500);
+    public static final Integer ENTITY_DEVICE_IMPORT_CHUNK_SIZE = ConfigProvider.getConfig()
+            .getOptionalValue("entity-device.import.chunk-size", Integer.class)
+            .orElse(500);
+    public static final Integer ENTITY_DEVICE_IMPORT_PARALLELISM = ConfigProvider.getConfig()
+            .getOptionalValue("entity-device.import.parallelism", Integer.class)
+            .orElse(4);
+    public static final Integer ENTITY_DEVICE_IMPORT_MAX_ERRORS = ConfigProvider.getConfig()
+            .getOptionalValue("entity-device.import.max-errors", Integer.class)
+            .orElse(1000);
+    public static final Duration ENTITY_DEVICE_IMPORT_LEASE = ConfigProvider.getConfig()
+            .getOptionalValue("entity-device.import.lease", Duration.class)
+            .orElse(Duration.ofMinutes(5));
+    public static final Integer ENTITY_DEVICE_STATS_HISTOGRAM_DAYS = ConfigProvider.getConfig()
+            .getOptionalValue("entity-device.stats.histogram-days", Integer.class)
+            .orElse(90);
+    public static final Integer ENTITY_DEVICE_CHANGES_MAX_LIMIT = ConfigProvider.getConfig()
+            .getOptionalValue("entity-device.changes.max-limit", Integer.class)
+            .orElse(1000);
+    public static final Duration ENTITY_DEVICE_CHANGES_RETENTION = ConfigProvider.getConfig()
+            .getOptionalValue("entity-device.changes.retention", Duration.class)
+            .orElse(Duration.ofDays(7));
+    public static final Duration ENTITY_DEVICE_CHANGES_COMPACT_AFTER = ConfigProvider.getConfig()
+            .getOptionalValue("entity-device.changes.compact-after", Duration.class)
+            .orElse(Duration.ofHours(1));
+    public static final Duration ENTITY_DEVICE_CHANGES_LAG_WARN_AFTER = ConfigProvider.getConfig()
+            .getOptionalValue("entity-device.changes.lag-warn-after", Duration.class)
+            .orElse(Duration.ofMinutes(5));
+    public static final Integer ENTITY_DEVICE_OUTBOX_BATCH_SIZE = ConfigProvider.getConfig()
+            .getOptionalValue("entity-device.outbox.batch-size", Integer.class)
+            .orElse(200);
+    public static final Duration ENTITY_DEVICE_OUTBOX_CLAIM_TIMEOUT = ConfigProvider.getConfig()
+            .getOptionalValue("entity-device.outbox.claim-timeout", Duration.class)
+            .orElse(Duration.ofMinutes(1));
+    public static final Integer ENTITY_DEVICE_OUTBOX_MAX_BATCHES = ConfigProvider.getConfig()
+            .getOptionalValue("entity-device.outbox.max-batches", Integer.class)
+            .orElse(50);
 
     /*
      * *****************************************************************************
@@ -35,4 +113,83 @@ public class ConfigsProvider {
     public static final String MINIO_URL = ConfigProvider.getConfig().getValue("minio.url", String.class);
     public static final String MINIO_ACCESS_KEY = ConfigProvider.getConfig().getValue("minio.access-key", String.class);
     public static final String MINIO_SECRET_KEY = ConfigProvider.getConfig().getValue("minio.secret-key", String.class);
+    public static final String MINIO_REGION = ConfigProvider.getConfig()
+            .getOptionalValue("minio.region", String.class)
+            .orElse("us-east-1");
+    public static final Integer MINIO_MULTIPART_PART_SIZE = ConfigProvider.getConfig()
+            .getOptionalValue("minio.multipart.part-size", Integer.class)
+            .orElse(8 * 1024 * 1024);
+    public static final Integer MINIO_MULTIPART_CONCURRENCY = ConfigProvider.getConfig()
+            .getOptionalValue("minio.multipart.concurrency", Integer.class)
+            .orElse(4);
+    public static final Integer MINIO_MULTIPART_BUFFERS = ConfigProvider.getConfig()
+            .getOptionalValue("minio.multipart.buffers", Integer.class)
+            .orElse(8);
+    public static final Integer MINIO_MULTIPART_MAX_ATTEMPTS = ConfigProvider.getConfig()
+            .getOptionalValue("minio.multipart.max-attempts", Integer.class)
+            .orElse(3);
+
+    /*
+     * *****************************************************************************
+     * Media streaming configurations
+     */
+    public static final Integer MEDIA_STREAM_CHUNK_SIZE = ConfigProvider.getConfig()
+            .getOptionalValue("media.stream.chunk-size", Integer.class)
+            .orElse(64 * 1024);
+    public static final Long MEDIA_STREAM_MAX_RANGE_LENGTH = ConfigProvider.getConfig()
+            .getOptionalValue("media.stream.max-range-length", Long.class)
+            .orElse(4L * 1024 * 1024);
+    public static final Integer MEDIA_STREAM_MAX_RANGES = ConfigProvider.getConfig()
+            .getOptionalValue("media.stream.max-ranges", Integer.class)
+            .orElse(16);
+    public static final Integer MEDIA_STREAM_RANGE_CONCURRENCY = ConfigProvider.getConfig()
+            .getOptionalValue("media.stream.range-concurrency", Integer.class)
+            .orElse(4);
+    public static final Boolean MEDIA_STREAM_REDIRECT_ENABLED = ConfigProvider.getConfig()
+            .getOptionalValue("media.stream.redirect.enabled", Boolean.class)
+            .orElse(false);
+    public static final Duration MEDIA_STREAM_REDIRECT_EXPIRY = ConfigProvider.getConfig()
+            .getOptionalValue("media.stream.redirect.expiry", Duration.class)
+            .orElse(Duration.ofMinutes(5));
+    public static final Duration MEDIA_STREAM_REDIRECT_REFRESH_BEFORE = ConfigProvider.getConfig()
+            .getOptionalValue("media.stream.redirect.refresh-before", Duration.class)
+            .orElse(Duration.ofMinutes(1));
+
+    public static final Boolean MEDIA_SEGMENT_CACHE_ENABLED = ConfigProvider.getConfig()
+            .getOptionalValue("media.segment-cache.enabled", Boolean.class)
+            .orElse(false);
+    public static final String MEDIA_SEGMENT_CACHE_DIRECTORY = ConfigProvider.getConfig()
+            .getOptionalValue("media.segment-cache.directory", String.class)
+            .orElse(System.getProperty("java.io.tmpdir") + "/media-segments");
+    public static final Long MEDIA_SEGMENT_CACHE_MAX_SIZE = ConfigProvider.getConfig()
+            .getOptionalValue("media.segment-cache.max-size", Long.class)
+            .orElse(2L * 1024 * 1024 * 1024);
+    public static final Integer MEDIA_SEGMENT_CACHE_CHUNK_SIZE = ConfigProvider.getConfig()
+            .getOptionalValue("media.segment-cache.chunk-size", Integer.class)
+            .orElse(1024 * 1024);
+    public static final Integer MEDIA_SEGMENT_CACHE_ADMIT_AFTER = ConfigProvider.getConfig()
+            .getOptionalValue("media.segment-cache.admit-after", Integer.class)
+            .orElse(2);
+    public static final Integer MEDIA_SEGMENT_CACHE_MAX_FILLS = ConfigProvider.getConfig()
+            .getOptionalValue("media.segment-cache.max-fills", Integer.class)
+            .orElse(8);
+    public static final Long MEDIA_SEGMENT_CACHE_FLIGHT_MAX_MEMORY = ConfigProvider.getConfig()
+            .getOptionalValue("media.segment-cache.flight-max-memory", Long.class)
+            .orElse(64L * 1024 * 1024);
+
+    public static final Boolean MEDIA_READ_AHEAD_ENABLED = ConfigProvider.getConfig()
+            .getOptionalValue("media.read-ahead.enabled", Boolean.class)
+            .orElse(false);
+    public static final Integer MEDIA_READ_AHEAD_SIZE = ConfigProvider.getConfig()
+            .getOptionalValue("media.read-ahead.size", Integer.class)
+            .orElse(1024 * 1024);
+    public static final Long MEDIA_READ_AHEAD_MAX_MEMORY = ConfigProvider.getConfig()
+            .getOptionalValue("media.read-ahead.max-memory", Long.class)
+            .orElse(64L * 1024 * 1024);
+    public static final Integer MEDIA_READ_AHEAD_MAX_SESSIONS = ConfigProvider.getConfig()
+            .getOptionalValue("media.read-ahead.max-sessions", Integer.class)
+            .orElse(4096);
+    public static final Duration MEDIA_READ_AHEAD_IDLE_TIMEOUT = ConfigProvider.getConfig()
+            .getOptionalValue("media.read-ahead.idle-timeout", Duration.class)
+            .orElse(Duration.ofSeconds(30));
 }
@@ -1,21 +1,45 @@
 package com.github.kaivu.config.bean;
 
+import com.github.kaivu.adapter.out.client.impl.MultipartMinioClient;
 import com.github.kaivu.config.ConfigsProvider;
 import com.github.kaivu.config.minio.MinioProfile;
 import com.github.kaivu.config.minio.MinioProfileType;
+import io.minio.MinioAsyncClient;
 import io.minio.MinioClient;
+import io.quarkus.runtime.StartupEvent;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
 import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Singleton;
 import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.Config;
 import org.eclipse.microprofile.config.ConfigProvider;
 
 /**
  * MinIO client producer for different profiles
+ * The region is configured rather than looked up, so presigning URLs never calls MinIO
  */
 @Slf4j
 @ApplicationScoped
 public class MinioClientProvider {
 
+    // S3 minimum for every part but the last, a smaller one is only refused when the upload completes
+    private static final int MIN_MULTIPART_PART_SIZE = 5 * 1024 * 1024;
+
+    /**
+     * Refuse to start with a multipart configuration every upload would fail with.
+     */
+    void validate(@Observes StartupEvent event) {
+        if (ConfigsProvider.MINIO_MULTIPART_PART_SIZE < MIN_MULTIPART_PART_SIZE) {
+            throw new IllegalStateException("minio.multipart.part-size must be at least " + MIN_MULTIPART_PART_SIZE
+                    + " bytes, got " + ConfigsProvider.MINIO_MULTIPART_PART_SIZE);
+        }
+        if (ConfigsProvider.MINIO_MULTIPART_MAX_ATTEMPTS < 1) {
+            throw new IllegalStateException("minio.multipart.max-attempts must be at least 1, got "
+                    + ConfigsProvider.MINIO_MULTIPART_MAX_ATTEMPTS);
+        }
+    }
+
     @Produces
     @MinioProfile(MinioProfileType.CORE)
     @ApplicationScoped
@@ -24,6 +48,7 @@ public class MinioClientProvider {
         return MinioClient.builder()
                 .endpoint(ConfigsProvider.MINIO_URL)
                 .credentials(ConfigsProvider.MINIO_ACCESS_KEY, ConfigsProvider.MINIO_SECRET_KEY)
+                .region(ConfigsProvider.MINIO_REGION)
                 .build();
     }
 
@@ -41,10 +66,14 @@ public class MinioClientProvider {
         String webSecretKey = ConfigProvider.getConfig()
                 .getOptionalValue("minio.web.secret-key", String.class)
                 .orElse(ConfigsProvider.MINIO_SECRET_KEY);
+        String webRegion = ConfigProvider.getConfig()
+                .getOptionalValue("minio.web.region", String.class)
+                .orElse(ConfigsProvider.MINIO_REGION);
 
         return MinioClient.builder()
                 .endpoint(webUrl)
                 .credentials(webAccessKey, webSecretKey)
+                .region(webRegion)
                 .build();
     }
 
@@ -62,10 +91,14 @@ public class MinioClientProvider {
         String mediaSecretKey = ConfigProvider.getConfig()
                 .getOptionalValue("minio.media.secret-key", String.class)
                 .orElse(ConfigsProvider.MINIO_SECRET_KEY);
+        String mediaRegion = ConfigProvider.getConfig()
+                .getOptionalValue("minio.media.region", String.class)
+                .orElse(ConfigsProvider.MINIO_REGION);
 
         return MinioClient.builder()
                 .endpoint(mediaUrl)
                 .credentials(mediaAccessKey, mediaSecretKey)
+                .region(mediaRegion)
                 .build();
     }
 
@@ -83,10 +116,63 @@ public class MinioClientProvider {
         String backupSecretKey = ConfigProvider.getConfig()
                 .getOptionalValue("minio.backup.secret-key", String.class)
                 .orElse(ConfigsProvider.MINIO_SECRET_KEY);
+        String backupRegion = ConfigProvider.getConfig()
+                .getOptionalValue("minio.backup.region", String.class)
+                .orElse(ConfigsProvider.MINIO_REGION);
 
         return MinioClient.builder()
                 .endpoint(backupUrl)
                 .credentials(backupAccessKey, backupSecretKey)
+                .region(backupRegion)
                 .build();
     }
+
+    @Produces
+    @Singleton
+    @MinioProfile(MinioProfileType.CORE)
+    public MultipartMinioClient coreMultipartClient() {
+        return multipartClient(MinioProfileType.CORE);
+    }
+
+    @Produces
+    @Singleton
+    @MinioProfile(MinioProfileType.WEB)
+    public MultipartMinioClient webMultipartClient() {
+        return multipartClient(MinioProfileType.WEB);
+    }
+
+    @Produces
+    @Singleton
+    @MinioProfile(MinioProfileType.MEDIA)
+    public MultipartMinioClient mediaMultipartClient() {
+        return multipartClient(MinioProfileType.MEDIA);
+    }
+
+    @Produces
+    @Singleton
+    @MinioProfile(MinioProfileType.BACKUP)
+    public MultipartMinioClient backupMultipartClient() {
+        return multipartClient(MinioProfileType.BACKUP);
+    }
+
+    /**
+     * Multipart uploads need the asynchronous client, built with the settings of the profile client
+     */
+    private static MultipartMinioClient multipartClient(MinioProfileType profile) {
+        log.info("Creating {} MinIO multipart client", profile);
+        Config config = ConfigProvider.getConfig();
+        String prefix = "minio." + profile.getConfigKey() + ".";
+        String url = config.getOptionalValue(prefix + "url", String.class).orElse(ConfigsProvider.MINIO_URL);
+        String accessKey =
+                config.getOptionalValue(prefix + "access-key", String.class).orElse(ConfigsProvider.MINIO_ACCESS_KEY);
+        String secretKey =
+                config.getOptionalValue(prefix + "secret-key", String.class).orElse(ConfigsProvider.MINIO_SECRET_KEY);
+        String region = config.getOptionalValue(prefix + "region", String.class).orElse(ConfigsProvider.MINIO_REGION);
+
+        return new MultipartMinioClient(MinioAsyncClient.builder()
+                .endpoint(url)
+                .credentials(accessKey, secretKey)
+                .region(region)
+                .build());
+    }
 }
@@ -0,0 +1,64 @@
+package com.github.kaivu.config.bean;
+
+import com.github.kaivu.config.minio.MinioExecutor;
+import com.github.kaivu.config.minio.MinioProfile;
+import com.github.kaivu.config.minio.MinioProfileType;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Disposes;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * MinIO executor provider, one executor per profile so a slow bucket cannot starve the others
+ * Configured with minio.[profile].executor.mode (virtual or platform), threads and queue-size
+ */
+@Slf4j
+@ApplicationScoped
+public class MinioExecutorProvider {
+
+    @Produces
+    @Singleton
+    @MinioProfile(MinioProfileType.CORE)
+    public MinioExecutor coreMinioExecutor(MeterRegistry meterRegistry) {
+        return new MinioExecutor(MinioProfileType.CORE, meterRegistry);
+    }
+
+    @Produces
+    @Singleton
+    @MinioProfile(MinioProfileType.WEB)
+    public MinioExecutor webMinioExecutor(MeterRegistry meterRegistry) {
+        return new MinioExecutor(MinioProfileType.WEB, meterRegistry);
+    }
+
+    @Produces
+    @Singleton
+    @MinioProfile(MinioProfileType.MEDIA)
+    public MinioExecutor mediaMinioExecutor(MeterRegistry meterRegistry) {
+        return new MinioExecutor(MinioProfileType.MEDIA, meterRegistry);
+    }
+
+    @Produces
+    @Singleton
+    @MinioProfile(MinioProfileType.BACKUP)
+    public MinioExecutor backupMinioExecutor(MeterRegistry meterRegistry) {
+        return new MinioExecutor(MinioProfileType.BACKUP, meterRegistry);
+    }
+
+    void closeCore(@Disposes @MinioProfile(MinioProfileType.CORE) MinioExecutor executor) {
+        executor.close();
+    }
+
+    void closeWeb(@Disposes @MinioProfile(MinioProfileType.WEB) MinioExecutor executor) {
+        executor.close();
+    }
+
+    void closeMedia(@Disposes @MinioProfile(MinioProfileType.MEDIA) MinioExecutor executor) {
+        executor.close();
+    }
+
+    void closeBackup(@Disposes @MinioProfile(MinioProfileType.BACKUP) MinioExecutor executor) {
+        executor.close();
+    }
+}
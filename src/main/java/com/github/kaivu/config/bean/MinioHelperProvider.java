@@ -2,6 +2,8 @@ package com.github.kaivu.config.bean;
 
 import com.github.kaivu.adapter.out.client.MinioHelper;
 import com.github.kaivu.adapter.out.client.impl.MinioHelperImpl;
+import com.github.kaivu.adapter.out.client.impl.MultipartMinioClient;
+import com.github.kaivu.config.minio.MinioExecutor;
 import com.github.kaivu.config.minio.MinioProfile;
 import com.github.kaivu.config.minio.MinioProfileType;
 import io.minio.MinioClient;
@@ -24,9 +26,12 @@ public class MinioHelperProvider {
     @Produces
     @Singleton
     @MinioProfile(MinioProfileType.CORE)
-    public MinioHelper coreMinioHelper(@MinioProfile(MinioProfileType.CORE) MinioClient minioClient) {
+    public MinioHelper coreMinioHelper(
+            @MinioProfile(MinioProfileType.CORE) MinioClient minioClient,
+            @MinioProfile(MinioProfileType.CORE) MultipartMinioClient multipartClient,
+            @MinioProfile(MinioProfileType.CORE) MinioExecutor minioExecutor) {
         log.info("Creating CORE MinIO helper");
-        return new MinioHelperImpl(minioClient);
+        return new MinioHelperImpl(minioClient, multipartClient, minioExecutor);
     }
 
     /**
@@ -35,9 +40,12 @@ public class MinioHelperProvider {
     @Produces
     @Singleton
     @MinioProfile(MinioProfileType.WEB)
-    public MinioHelper webMinioHelper(@MinioProfile(MinioProfileType.WEB) MinioClient minioClient) {
+    public MinioHelper webMinioHelper(
+            @MinioProfile(MinioProfileType.WEB) MinioClient minioClient,
+            @MinioProfile(MinioProfileType.WEB) MultipartMinioClient multipartClient,
+            @MinioProfile(MinioProfileType.WEB) MinioExecutor minioExecutor) {
         log.info("Creating WEB MinIO helper");
-        return new MinioHelperImpl(minioClient);
+        return new MinioHelperImpl(minioClient, multipartClient, minioExecutor);
     }
 
     /**
@@ -46,9 +54,12 @@ public class MinioHelperProvider {
     @Produces
     @Singleton
     @MinioProfile(MinioProfileType.MEDIA)
-    public MinioHelper mediaMinioHelper(@MinioProfile(MinioProfileType.MEDIA) MinioClient minioClient) {
+    public MinioHelper mediaMinioHelper(
+            @MinioProfile(MinioProfileType.MEDIA) MinioClient minioClient,
+            @MinioProfile(MinioProfileType.MEDIA) MultipartMinioClient multipartClient,
+            @MinioProfile(MinioProfileType.MEDIA) MinioExecutor minioExecutor) {
         log.info("Creating MEDIA MinIO helper");
-        return new MinioHelperImpl(minioClient);
+        return new MinioHelperImpl(minioClient, multipartClient, minioExecutor);
     }
 
     /**
@@ -57,8 +68,11 @@ public class MinioHelperProvider {
     @Produces
     @Singleton
     @MinioProfile(MinioProfileType.BACKUP)
-    public MinioHelper backupMinioHelper(@MinioProfile(MinioProfileType.BACKUP) MinioClient minioClient) {
+    public MinioHelper backupMinioHelper(
+            @MinioProfile(MinioProfileType.BACKUP) MinioClient minioClient,
+            @MinioProfile(MinioProfileType.BACKUP) MultipartMinioClient multipartClient,
+            @MinioProfile(MinioProfileType.BACKUP) MinioExecutor minioExecutor) {
         log.info("Creating BACKUP MinIO helper");
-        return new MinioHelperImpl(minioClient);
+        return new MinioHelperImpl(minioClient, multipartClient, minioExecutor);
     }
 }
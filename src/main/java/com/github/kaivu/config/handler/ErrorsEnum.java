@@ -33,10 +33,23 @@ public enum ErrorsEnum implements AppErrorEnum {
     SYSTEM_INVALID_SORT_ORDER(EntitiesConstant.SYSTEM, ErrorsKeyConstant.INVALID_SORT_ORDER, ""),
     SYSTEM_INVALID_SORT_PARAMETER(EntitiesConstant.SYSTEM, ErrorsKeyConstant.INVALID_SORT_PARAMETER, ""),
     SYSTEM_INVALID_TIME_RANGE(EntitiesConstant.SYSTEM, ErrorsKeyConstant.INVALID_TIME_RANGE, ""),
+    SYSTEM_STORAGE_BUSY(EntitiesConstant.SYSTEM, ErrorsKeyConstant.STORAGE_BUSY, ""),
 
     // Entity Device Errors
     ENTITY_DEVICE_NOT_FOUND(EntitiesConstant.ENTITY_DEVICE, ErrorsKeyConstant.NOT_FOUND, ""),
     ENTITY_DEVICE_NAME_ALREADY_EXISTS(EntitiesConstant.ENTITY_DEVICE, ErrorsKeyConstant.ALREADY_EXISTS, ""),
+    ENTITY_DEVICE_VERSION_MISMATCH(EntitiesConstant.ENTITY_DEVICE, ErrorsKeyConstant.PRECONDITION_FAILED, ""),
+    ENTITY_DEVICE_IMPORT_NOT_FOUND(EntitiesConstant.ENTITY_DEVICE_IMPORT, ErrorsKeyConstant.NOT_FOUND, ""),
+    ENTITY_DEVICE_IMPORT_BAD_REQUEST(EntitiesConstant.ENTITY_DEVICE_IMPORT, ErrorsKeyConstant.CLIENT_BAD_REQUEST, ""),
+    ENTITY_DEVICE_IMPORT_CONFLICT(EntitiesConstant.ENTITY_DEVICE_IMPORT, ErrorsKeyConstant.CONFLICT, ""),
+    ENTITY_DEVICE_METADATA_BAD_REQUEST(
+            EntitiesConstant.ENTITY_DEVICE_METADATA, ErrorsKeyConstant.CLIENT_BAD_REQUEST, ""),
+    ENTITY_DEVICE_METADATA_CONFLICT(EntitiesConstant.ENTITY_DEVICE_METADATA, ErrorsKeyConstant.CONFLICT, ""),
+    ENTITY_DEVICE_CHANGES_BAD_REQUEST(EntitiesConstant.ENTITY_DEVICE_CHANGES, ErrorsKeyConstant.CLIENT_BAD_REQUEST, ""),
+    ENTITY_DEVICE_CHANGES_EXPIRED(EntitiesConstant.ENTITY_DEVICE_CHANGES, ErrorsKeyConstant.EXPIRED, ""),
+
+    // Media File Errors
+    MEDIA_FILE_RANGE_NOT_SATISFIABLE(EntitiesConstant.MEDIA_FILE, ErrorsKeyConstant.RANGE_NOT_SATISFIABLE, ""),
 
     // User Errors
     USER_NOT_FOUND(EntitiesConstant.USER, ErrorsKeyConstant.NOT_FOUND, ""),
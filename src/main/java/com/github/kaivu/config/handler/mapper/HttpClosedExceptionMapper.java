@@ -0,0 +1,33 @@
+package com.github.kaivu.config.handler.mapper;
+
+import com.github.kaivu.common.constant.AppHeaderConstant;
+import io.vertx.core.http.HttpClosedException;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.ExceptionMapper;
+import jakarta.ws.rs.ext.Provider;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The client went away before the response was ready; nothing can be written back, so this only ends the request
+ * quietly instead of logging it as a server error.
+ */
+@Slf4j
+@Provider
+public class HttpClosedExceptionMapper implements ExceptionMapper<HttpClosedException> {
+
+    private static final int CLIENT_CLOSED_REQUEST = 499;
+
+    @Context
+    ContainerRequestContext requestContext;
+
+    @Override
+    public Response toResponse(HttpClosedException ex) {
+        String errorId = requestContext.getHeaderString(AppHeaderConstant.TRACE_ID);
+
+        log.debug("{} - {}", errorId, ex.getMessage());
+
+        return Response.status(CLIENT_CLOSED_REQUEST).build();
+    }
+}
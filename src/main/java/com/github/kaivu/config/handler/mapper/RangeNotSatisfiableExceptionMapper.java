@@ -0,0 +1,36 @@
+package com.github.kaivu.config.handler.mapper;
+
+import com.github.kaivu.application.exception.RangeNotSatisfiableException;
+import com.github.kaivu.common.constant.AppHeaderConstant;
+import com.github.kaivu.config.handler.ErrorMessage;
+import com.github.kaivu.config.handler.ErrorResponse;
+import com.google.common.net.HttpHeaders;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.ExceptionMapper;
+import jakarta.ws.rs.ext.Provider;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Provider
+public class RangeNotSatisfiableExceptionMapper implements ExceptionMapper<RangeNotSatisfiableException> {
+
+    @Context
+    ContainerRequestContext requestContext;
+
+    @Override
+    public Response toResponse(RangeNotSatisfiableException ex) {
+        String errorId = requestContext.getHeaderString(AppHeaderConstant.TRACE_ID);
+
+        log.warn("{} - {}", errorId, ex.getMessage());
+
+        ErrorMessage errorMessage = new ErrorMessage(ex.getEntityName() + "." + ex.getErrorKey(), ex.getMessage());
+        ErrorResponse errorResponse = new ErrorResponse(errorId, errorMessage);
+
+        return Response.status(Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE)
+                .header(HttpHeaders.CONTENT_RANGE, "bytes */" + ex.getFileSize())
+                .entity(errorResponse)
+                .build();
+    }
+}
@@ -0,0 +1,34 @@
+package com.github.kaivu.config.handler.mapper;
+
+import com.github.kaivu.application.exception.ResourceGoneException;
+import com.github.kaivu.common.constant.AppHeaderConstant;
+import com.github.kaivu.config.handler.ErrorMessage;
+import com.github.kaivu.config.handler.ErrorResponse;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.ExceptionMapper;
+import jakarta.ws.rs.ext.Provider;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Provider
+public class ResourceGoneExceptionMapper implements ExceptionMapper<ResourceGoneException> {
+
+    @Context
+    ContainerRequestContext requestContext;
+
+    @Override
+    public Response toResponse(ResourceGoneException ex) {
+        String errorId = requestContext.getHeaderString(AppHeaderConstant.TRACE_ID);
+
+        log.warn("{} - {}", errorId, ex.getMessage());
+
+        ErrorMessage errorMessage = new ErrorMessage(ex.getEntityName() + "." + ex.getErrorKey(), ex.getMessage());
+        ErrorResponse errorResponse = new ErrorResponse(errorId, errorMessage);
+
+        return Response.status(Response.Status.GONE)
+                .entity(errorResponse)
+                .build();
+    }
+}
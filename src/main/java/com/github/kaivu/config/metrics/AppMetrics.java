@@ -31,6 +31,10 @@ public class AppMetrics {
     private final AtomicLong activeConnections = new AtomicLong(0);
     private final AtomicLong waitingConnections = new AtomicLong(0);
     private final AtomicLong connectionEvents = new AtomicLong(0);
+    private final LongAdder cancelledQueries = new LongAdder();
+
+    // HTTP metrics
+    private final LongAdder abandonedRequests = new LongAdder();
 
     void onStart(@Observes StartupEvent ev) {
         log.info("App metrics system initialized successfully");
@@ -86,6 +90,21 @@ public class AppMetrics {
         waitingConnections.decrementAndGet();
     }
 
+    public void recordCancelledQuery() {
+        cancelledQueries.increment();
+        log.debug("Database statement cancelled");
+    }
+
+    // HTTP metrics recording methods
+    public void recordAbandonedRequest() {
+        abandonedRequests.increment();
+        log.debug("Request abandoned by the client");
+    }
+
+    public long getAbandonedRequests() {
+        return abandonedRequests.sum();
+    }
+
     // Hit rate calculation methods
     public double getRedisHitRate() {
         long hits = redisHits.sum();
@@ -134,6 +153,7 @@ public class AppMetrics {
                 activeConnections.get(),
                 waitingConnections.get(),
                 connectionEvents.get(),
+                cancelledQueries.sum(),
                 true // Simplified health check
                 );
     }
@@ -156,5 +176,9 @@ public class AppMetrics {
      * Data class for database statistics
      */
     public record DatabaseStats(
-            long activeConnections, long waitingConnections, long connectionEvents, boolean healthy) {}
+            long activeConnections,
+            long waitingConnections,
+            long connectionEvents,
+            long cancelledQueries,
+            boolean healthy) {}
 }
@@ -0,0 +1,264 @@
+package com.github.kaivu.config.minio;
+
+import com.github.kaivu.application.exception.ServiceUnavailableException;
+import com.github.kaivu.config.handler.ErrorsEnum;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.ConfigProvider;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs the blocking MinIO SDK calls of one profile off the event loop, on virtual threads or on a bounded platform
+ * pool. Either way at most {@code threads} calls run at once and at most {@code queue-size} more wait; beyond that
+ * the call fails fast with {@link ServiceUnavailableException}, so a slow object store sheds load instead of
+ * freezing every request. Follow-up calls of admitted work, the chunk reads of an open stream, are not counted
+ * against the admission and wait for a thread instead. Results are handed back on the Vert.x context of the caller.
+ * This is NOT a CDI bean - instances are created by MinioExecutorProvider
+ */
+@Slf4j
+public class MinioExecutor implements AutoCloseable {
+
+    /**
+     * Kind of threads the blocking calls run on.
+     */
+    public enum Mode {
+        VIRTUAL,
+        PLATFORM,
+    }
+
+    @Getter
+    private final MinioProfileType profile;
+
+    @Getter
+    private final Mode mode;
+
+    private final ExecutorService executor;
+    private final int capacity;
+    // Admission: running plus queued calls, bounds the virtual thread mode where no queue exists
+    private final Semaphore admitted;
+    // Concurrency of the calls themselves, the waiting virtual threads form the queue
+    private final Semaphore running;
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final Counter rejectedCounter;
+    private final Counter eventLoopReadsCounter;
+    private final Timer queueWaitTimer;
+
+    public MinioExecutor(MinioProfileType profile, MeterRegistry meterRegistry) {
+        this.profile = profile;
+        String prefix = "minio." + profile.getConfigKey() + ".executor.";
+        this.mode = Mode.valueOf(ConfigProvider.getConfig()
+                .getOptionalValue(prefix + "mode", String.class)
+                .orElse(Mode.PLATFORM.name())
+                .toUpperCase(Locale.ROOT));
+        int threads = ConfigProvider.getConfig()
+                .getOptionalValue(prefix + "threads", Integer.class)
+                .orElse(8);
+        int queueSize = ConfigProvider.getConfig()
+                .getOptionalValue(prefix + "queue-size", Integer.class)
+                .orElse(100);
+
+        String threadName = "minio-" + profile.getConfigKey() + "-";
+        if (mode == Mode.VIRTUAL) {
+            this.executor = Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name(threadName, 0).factory());
+        } else {
+            this.executor = new ThreadPoolExecutor(
+                    threads,
+                    threads,
+                    60L,
+                    TimeUnit.SECONDS,
+                    // Unbounded, admission bounds it: queue-size calls plus one follow-up per open stream
+                    new LinkedBlockingQueue<>(),
+                    Thread.ofPlatform().name(threadName, 0).daemon(true).factory(),
+                    new ThreadPoolExecutor.AbortPolicy());
+        }
+        this.capacity = threads + queueSize;
+        this.admitted = new Semaphore(capacity);
+        this.running = new Semaphore(threads);
+
+        String profileTag = profile.getConfigKey();
+        Gauge.builder("minio.executor.queued", queued, AtomicInteger::get)
+                .description("MinIO calls waiting for a thread")
+                .tag("profile", profileTag)
+                .register(meterRegistry);
+        Gauge.builder("minio.executor.active", active, AtomicInteger::get)
+                .description("MinIO calls running")
+                .tag("profile", profileTag)
+                .register(meterRegistry);
+        Gauge.builder("minio.executor.saturation", this, MinioExecutor::saturation)
+                .description("Share of the admission capacity in use, 1 means new calls are rejected")
+                .tag("profile", profileTag)
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("minio.executor.rejected")
+                .description("MinIO calls rejected because the executor was saturated")
+                .tag("profile", profileTag)
+                .register(meterRegistry);
+        this.eventLoopReadsCounter = Counter.builder("minio.event_loop.blocking_reads")
+                .description("Reads of a MinIO object stream made on a Vert.x event loop thread")
+                .tag("profile", profileTag)
+                .register(meterRegistry);
+        this.queueWaitTimer = Timer.builder("minio.executor.queue.wait")
+                .description("Time a MinIO call waited for a thread")
+                .tag("profile", profileTag)
+                .register(meterRegistry);
+
+        log.info("MinIO {} executor: {} threads={}, queue-size={}", profileTag, mode, threads, queueSize);
+    }
+
+    /**
+     * Run a blocking call on the executor.
+     *
+     * @param task the blocking call, its exceptions fail the Uni
+     */
+    public <T> Uni<T> supply(Supplier<T> task) {
+        return submit(task, true);
+    }
+
+    /**
+     * Run a follow-up of a call already admitted, such as the next read of an object stream it opened. It waits for
+     * a thread rather than failing fast: rejecting it would break a response half sent.
+     *
+     * @param task the blocking call, its exceptions fail the Uni
+     */
+    public <T> Uni<T> supplyAdmitted(Supplier<T> task) {
+        return submit(task, false);
+    }
+
+    private <T> Uni<T> submit(Supplier<T> task, boolean admit) {
+        return Uni.createFrom().emitter(emitter -> {
+            Context context = Vertx.currentContext();
+            if (admit && !admitted.tryAcquire()) {
+                rejectedCounter.increment();
+                log.warn("MinIO {} executor saturated, rejecting call", profile.getConfigKey());
+                emitter.fail(new ServiceUnavailableException(ErrorsEnum.SYSTEM_STORAGE_BUSY));
+                return;
+            }
+            long enqueuedAt = System.nanoTime();
+            queued.incrementAndGet();
+            Runnable call = () -> {
+                try {
+                    running.acquireUninterruptibly();
+                    queued.decrementAndGet();
+                    queueWaitTimer.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+                    try {
+                        // Skip calls whose subscriber went away while they were queued
+                        if (emitter.isCancelled()) {
+                            return;
+                        }
+                        active.incrementAndGet();
+                        T result = task.get();
+                        emitOn(context, () -> emitter.complete(result));
+                    } catch (RuntimeException e) {
+                        emitOn(context, () -> emitter.fail(e));
+                    } finally {
+                        active.decrementAndGet();
+                        running.release();
+                    }
+                } finally {
+                    if (admit) {
+                        admitted.release();
+                    }
+                }
+            };
+            try {
+                executor.execute(call);
+            } catch (RejectedExecutionException e) {
+                queued.decrementAndGet();
+                if (admit) {
+                    admitted.release();
+                }
+                rejectedCounter.increment();
+                emitter.fail(new ServiceUnavailableException(ErrorsEnum.SYSTEM_STORAGE_BUSY));
+            }
+        });
+    }
+
+    /**
+     * Wrap an object stream so that reads made on an event loop thread are counted and reported once per stream;
+     * each one blocks the loop on the network.
+     */
+    public InputStream guardEventLoop(InputStream stream, String objectName) {
+        return new FilterInputStream(stream) {
+            private final AtomicBoolean reported = new AtomicBoolean();
+
+            @Override
+            public int read() throws IOException {
+                check();
+                return super.read();
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                check();
+                return super.read(buffer, offset, length);
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                check();
+                return super.skip(n);
+            }
+
+            private void check() {
+                if (Context.isOnEventLoopThread()) {
+                    eventLoopReadsCounter.increment();
+                    if (reported.compareAndSet(false, true)) {
+                        log.warn(
+                                "Blocking read of MinIO object {} on event loop thread {}",
+                                objectName,
+                                Thread.currentThread().getName(),
+                                new IllegalStateException("Blocking read on an event loop"));
+                    }
+                }
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private double saturation() {
+        return 1.0 - (double) admitted.availablePermits() / capacity;
+    }
+
+    private static void emitOn(Context context, Runnable emission) {
+        if (context != null) {
+            context.runOnContext(ignored -> emission.run());
+        } else {
+            emission.run();
+        }
+    }
+}
@@ -1,10 +1,13 @@
 package com.github.kaivu.config.minio;
 
 import com.github.kaivu.adapter.out.client.MinioHelper;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
+import io.vertx.core.buffer.Buffer;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.InputStream;
+import java.time.Duration;
 
 /**
  * Simplified MinIO manager using Helper pattern only
@@ -29,6 +32,15 @@ public class MinioManager {
         return minioHelper.getObject(bucketName, objectName, offset, length);
     }
 
+    public Multi<Buffer> getObjectChunks(
+            String bucketName, String objectName, long offset, long length, int chunkSize) {
+        return minioHelper.getObjectChunks(bucketName, objectName, offset, length, chunkSize);
+    }
+
+    public Uni<String> getPresignedObjectUrl(String bucketName, String objectName, Duration expiry) {
+        return minioHelper.getPresignedObjectUrl(bucketName, objectName, expiry);
+    }
+
     public Uni<Long> getObjectSize(String bucketName, String objectName) {
         return minioHelper.getObjectSize(bucketName, objectName);
     }
@@ -42,6 +54,19 @@ public class MinioManager {
         return minioHelper.uploadObject(bucketName, objectName, inputStream, contentType, size);
     }
 
+    public Uni<String> createMultipartUpload(String bucketName, String objectName, String contentType) {
+        return minioHelper.createMultipartUpload(bucketName, objectName, contentType);
+    }
+
+    public Uni<Void> uploadMultipart(
+            String bucketName, String objectName, String uploadId, InputStream inputStream, long size) {
+        return minioHelper.uploadMultipart(bucketName, objectName, uploadId, inputStream, size);
+    }
+
+    public Uni<Void> abortMultipartUpload(String bucketName, String objectName, String uploadId) {
+        return minioHelper.abortMultipartUpload(bucketName, objectName, uploadId);
+    }
+
     public Uni<Void> deleteObject(String bucketName, String objectName) {
         return minioHelper.deleteObject(bucketName, objectName);
     }
@@ -5,6 +5,7 @@ import io.smallrye.mutiny.Uni;
 import lombok.extern.slf4j.Slf4j;
 
 import java.time.Duration;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -54,6 +55,10 @@ public class RedisManager {
         return redisHelper.delete(key);
     }
 
+    public Uni<Long> delete(List<String> keys) {
+        return redisHelper.delete(keys);
+    }
+
     public Uni<Long> deleteByPattern(String pattern) {
         return redisHelper.deleteByPattern(pattern);
     }
@@ -66,6 +71,10 @@ public class RedisManager {
         return redisHelper.setMultiple(keyValueMap, ttl);
     }
 
+    public Uni<Boolean> setIfAbsent(String key, String value, Duration ttl) {
+        return redisHelper.setIfAbsent(key, value, ttl);
+    }
+
     public Uni<Long> increment(String key, long delta) {
         return redisHelper.increment(key, delta);
     }
@@ -73,4 +82,16 @@ public class RedisManager {
     public Uni<Long> increment(String key) {
         return increment(key, 1L);
     }
+
+    public Uni<Long> hashIncrement(String key, String field, long delta) {
+        return redisHelper.hashIncrement(key, field, delta);
+    }
+
+    public Uni<Map<String, Long>> hashGetAll(String key) {
+        return redisHelper.hashGetAll(key);
+    }
+
+    public Uni<Void> hashReplace(String key, Map<String, Long> values, String deltasKey) {
+        return redisHelper.hashReplace(key, values, deltasKey);
+    }
 }
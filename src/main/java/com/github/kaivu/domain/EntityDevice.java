@@ -1,23 +1,24 @@
 package com.github.kaivu.domain;
 
 import com.github.kaivu.domain.enumeration.ActionStatus;
+import com.github.kaivu.domain.generator.UuidV7;
 import com.github.kaivu.domain.supplier.DeletedStatusSupplier;
-import com.github.kaivu.domain.type.JsonObjectType;
-import io.vertx.core.json.JsonObject;
+import com.github.kaivu.domain.type.JsonMetadata;
+import com.github.kaivu.domain.type.JsonMetadataType;
 import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Index;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.Size;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnTransformer;
 import org.hibernate.annotations.Filter;
 import org.hibernate.annotations.FilterDef;
 import org.hibernate.annotations.ParamDef;
@@ -34,7 +35,7 @@ import java.util.UUID;
 @NoArgsConstructor
 @Table(
         name = "entity_device",
-        indexes = {@Index(name = "idx_entity_device_name", columnList = "name", unique = true)})
+        indexes = {@Index(name = EntityDevice.NAME_UNIQUE_INDEX, columnList = "name", unique = true)})
 @FilterDef(
         name = "entitiesDeletedFilter",
         autoEnabled = true,
@@ -46,13 +47,21 @@ public class EntityDevice extends AbstractAuditingEntity implements Serializable
     @Serial
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Unique index backing name uniqueness, write paths rely on it instead of a read-before-write check.
+     */
+    public static final String NAME_UNIQUE_INDEX = "idx_entity_device_name";
+
+    /**
+     * Time-ordered so inserts append to the primary key index instead of splitting random pages.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @UuidV7
     @Column(name = "id", updatable = false, nullable = false)
     private UUID id;
 
     @Size(max = 500)
-    @Column(name = "name", unique = true, length = 500)
+    @Column(name = "name", length = 500)
     private String name;
 
     @Size(max = 2000)
@@ -63,9 +72,20 @@ public class EntityDevice extends AbstractAuditingEntity implements Serializable
     @Column(name = "status")
     private ActionStatus status = ActionStatus.ACTIVATED;
 
+    /**
+     * Read and written as text, decoded only when the application asks for it.
+     */
     @Column(name = "metadata", columnDefinition = "jsonb")
-    @Type(value = JsonObjectType.class)
-    private JsonObject metadata = new JsonObject();
+    @Type(value = JsonMetadataType.class)
+    @ColumnTransformer(read = "cast(metadata as text)", write = "cast(cast(? as text) as jsonb)")
+    private JsonMetadata metadata = JsonMetadata.empty();
+
+    /**
+     * Optimistic lock version, also exposed as the ETag of the device.
+     */
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
 
     public String getName() {
         return name.toUpperCase();
@@ -0,0 +1,60 @@
+package com.github.kaivu.domain.change;
+
+import java.util.Comparator;
+
+/**
+ * Position in a change log: the id of the writing transaction, then the change id within the log.
+ * Transaction ids are assigned at first write and committed out of order, so the log is only read up to the oldest
+ * running transaction and ordered by transaction first; a change committed later can then never land behind a
+ * position already handed to a client.
+ * The token is opaque to clients, {@link #encode()} and {@link #parse(String)} are its only representation.
+ */
+public record ChangeToken(long txId, long id) implements Comparable<ChangeToken> {
+
+    private static final ChangeToken ORIGIN = new ChangeToken(0L, 0L);
+
+    private static final Comparator<ChangeToken> ORDER =
+            Comparator.comparingLong(ChangeToken::txId).thenComparingLong(ChangeToken::id);
+
+    private static final char SEPARATOR = '.';
+
+    /**
+     * Position before any change.
+     */
+    public static ChangeToken origin() {
+        return ORIGIN;
+    }
+
+    /**
+     * @throws IllegalArgumentException when the value is not a token produced by {@link #encode()}
+     */
+    public static ChangeToken parse(String value) {
+        int separator = value.indexOf(SEPARATOR);
+        if (separator <= 0 || separator == value.length() - 1) {
+            throw new IllegalArgumentException("malformed change token '" + value + "'");
+        }
+        try {
+            long txId = Long.parseLong(value, 0, separator, Character.MAX_RADIX);
+            long id = Long.parseLong(value, separator + 1, value.length(), Character.MAX_RADIX);
+            if (txId < 0 || id < 0) {
+                throw new IllegalArgumentException("malformed change token '" + value + "'");
+            }
+            return new ChangeToken(txId, id);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("malformed change token '" + value + "'", e);
+        }
+    }
+
+    public String encode() {
+        return Long.toString(txId, Character.MAX_RADIX) + SEPARATOR + Long.toString(id, Character.MAX_RADIX);
+    }
+
+    public boolean isBefore(ChangeToken other) {
+        return compareTo(other) < 0;
+    }
+
+    @Override
+    public int compareTo(ChangeToken other) {
+        return ORDER.compare(this, other);
+    }
+}
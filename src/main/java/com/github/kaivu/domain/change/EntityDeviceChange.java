@@ -0,0 +1,21 @@
+package com.github.kaivu.domain.change;
+
+import com.github.kaivu.domain.EntityDevice;
+import com.github.kaivu.domain.enumeration.ChangeOperation;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * One entry of the {@code entity_device} change log.
+ *
+ * @param version the device version written by the change
+ * @param device  the current state of the device, null for a delete or when the device is gone since
+ */
+public record EntityDeviceChange(
+        ChangeToken position,
+        UUID deviceId,
+        ChangeOperation operation,
+        Long version,
+        Instant changedAt,
+        EntityDevice device) {}
@@ -0,0 +1,14 @@
+package com.github.kaivu.domain.change;
+
+import com.github.kaivu.domain.enumeration.ChangeOperation;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A device write recorded in the outbox, relayed once its transaction committed.
+ *
+ * @param id         outbox sequence, increasing in insertion order
+ * @param occurredAt when the write happened, the relay lag is measured from it
+ */
+public record EntityDeviceEvent(long id, UUID deviceId, ChangeOperation operation, Long version, Instant occurredAt) {}
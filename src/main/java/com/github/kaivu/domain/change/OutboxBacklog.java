@@ -0,0 +1,10 @@
+package com.github.kaivu.domain.change;
+
+import java.time.Instant;
+
+/**
+ * Events still waiting in an outbox.
+ *
+ * @param oldest when the oldest pending event occurred, null when the outbox is empty
+ */
+public record OutboxBacklog(long pending, Instant oldest) {}
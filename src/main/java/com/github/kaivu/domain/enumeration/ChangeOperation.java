@@ -0,0 +1,10 @@
+package com.github.kaivu.domain.enumeration;
+
+/**
+ * The kind of write recorded in a change log. A soft delete is recorded as {@link #DELETE}.
+ */
+public enum ChangeOperation {
+    INSERT,
+    UPDATE,
+    DELETE,
+}
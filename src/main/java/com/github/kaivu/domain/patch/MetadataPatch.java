@@ -0,0 +1,152 @@
+package com.github.kaivu.domain.patch;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Patch of the device metadata, normalized into a list of primitive operations so both JSON Merge Patch
+ * (RFC 7396) and JSON Patch (RFC 6902) documents can be applied by the database in one statement.
+ * Paths are split JSON pointers, an empty path is the whole document.
+ */
+public record MetadataPatch(List<Operation> operations) {
+
+    public enum Kind {
+        /**
+         * Set an object member, creating it when missing. When the parent is an array, a numeric last token
+         * inserts before that index and {@link #APPEND_TOKEN} appends.
+         */
+        ADD,
+        /** Set an existing member or element only, aborting the whole patch when it is missing. */
+        REPLACE,
+        /** Remove an existing member or element, aborting the whole patch when it is missing. */
+        REMOVE,
+        /** Remove a member when present, a merge patch null on a missing member is not an error. */
+        REMOVE_IF_PRESENT,
+        /** Make sure the member is an object, replacing any other value by {@code {}}. */
+        ENSURE_OBJECT,
+        COPY,
+        MOVE,
+        /** Abort the whole patch unless the value at the path equals the given value. */
+        TEST
+    }
+
+    /**
+     * @param value JSON value for ADD, REPLACE and TEST, as returned by Vert.x JSON accessors.
+     * @param from  source path for COPY and MOVE.
+     */
+    public record Operation(Kind kind, List<String> path, List<String> from, Object value) {}
+
+    public static final String APPEND_TOKEN = "-";
+
+    /**
+     * Translate a JSON Merge Patch: null removes a member, an object is merged recursively, anything else
+     * replaces the member.
+     */
+    public static MetadataPatch fromMergePatch(JsonObject patch) {
+        List<Operation> operations = new ArrayList<>();
+        flattenMergePatch(List.of(), patch, operations);
+        return new MetadataPatch(List.copyOf(operations));
+    }
+
+    /**
+     * Translate a JSON Patch document.
+     *
+     * @throws IllegalArgumentException when an operation is malformed.
+     */
+    public static MetadataPatch fromJsonPatch(JsonArray patch) {
+        List<Operation> operations = new ArrayList<>();
+        for (int index = 0; index < patch.size(); index++) {
+            if (!(patch.getValue(index) instanceof JsonObject operation)) {
+                throw new IllegalArgumentException("operation " + index + " is not an object");
+            }
+            operations.add(toOperation(index, operation));
+        }
+        return new MetadataPatch(List.copyOf(operations));
+    }
+
+    private static void flattenMergePatch(List<String> prefix, JsonObject patch, List<Operation> operations) {
+        for (String key : patch.fieldNames()) {
+            List<String> path = append(prefix, key);
+            Object value = patch.getValue(key);
+            if (value == null) {
+                operations.add(new Operation(Kind.REMOVE_IF_PRESENT, path, null, null));
+            } else if (value instanceof JsonObject nested) {
+                operations.add(new Operation(Kind.ENSURE_OBJECT, path, null, null));
+                flattenMergePatch(path, nested, operations);
+            } else {
+                operations.add(new Operation(Kind.ADD, path, null, value));
+            }
+        }
+    }
+
+    private static Operation toOperation(int index, JsonObject operation) {
+        String op = operation.getValue("op") instanceof String name ? name : null;
+        List<String> path = parsePointer(index, operation.getValue("path"));
+        if (op == null) {
+            throw new IllegalArgumentException("operation " + index + " has no op");
+        }
+        return switch (op) {
+            case "add" -> new Operation(Kind.ADD, path, null, requireValue(index, operation));
+            case "replace" -> new Operation(Kind.REPLACE, path, null, requireValue(index, operation));
+            case "test" -> new Operation(Kind.TEST, path, null, requireValue(index, operation));
+            case "remove" -> {
+                if (path.isEmpty()) {
+                    throw new IllegalArgumentException("operation " + index + " cannot remove the whole document");
+                }
+                yield new Operation(Kind.REMOVE, path, null, null);
+            }
+            case "copy", "move" -> {
+                List<String> from = parsePointer(index, operation.getValue("from"));
+                if (path.isEmpty() || ("move".equals(op) && isProperPrefix(from, path))) {
+                    throw new IllegalArgumentException("operation " + index + " has an invalid target path");
+                }
+                yield new Operation("copy".equals(op) ? Kind.COPY : Kind.MOVE, path, from, null);
+            }
+            default -> throw new IllegalArgumentException("operation " + index + " has an unknown op " + op);
+        };
+    }
+
+    private static Object requireValue(int index, JsonObject operation) {
+        if (!operation.containsKey("value")) {
+            throw new IllegalArgumentException("operation " + index + " has no value");
+        }
+        return operation.getValue("value");
+    }
+
+    /**
+     * Split a JSON pointer (RFC 6901) into unescaped reference tokens.
+     */
+    private static List<String> parsePointer(int index, Object pointer) {
+        if (!(pointer instanceof String text) || (!text.isEmpty() && !text.startsWith("/"))) {
+            throw new IllegalArgumentException("operation " + index + " has an invalid JSON pointer");
+        }
+        if (text.isEmpty()) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : text.substring(1).split("/", -1)) {
+            tokens.add(token.replace("~1", "/").replace("~0", "~"));
+        }
+        return List.copyOf(tokens);
+    }
+
+    /**
+     * Whether the token addresses an array position rather than an object member.
+     */
+    public static boolean isArrayPosition(String token) {
+        return APPEND_TOKEN.equals(token) || (!token.isEmpty() && token.chars().allMatch(Character::isDigit));
+    }
+
+    private static boolean isProperPrefix(List<String> prefix, List<String> path) {
+        return prefix.size() < path.size() && path.subList(0, prefix.size()).equals(prefix);
+    }
+
+    private static List<String> append(List<String> prefix, String token) {
+        List<String> path = new ArrayList<>(prefix);
+        path.add(token);
+        return List.copyOf(path);
+    }
+}
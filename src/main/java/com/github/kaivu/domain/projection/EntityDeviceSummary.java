@@ -0,0 +1,11 @@
+package com.github.kaivu.domain.projection;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Listing columns of {@link com.github.kaivu.domain.EntityDevice}, selected with a constructor expression
+ * so list views never hydrate managed entities nor decode the jsonb metadata.
+ * The name is the stored, lower-case value.
+ */
+public record EntityDeviceSummary(UUID id, String name, Long version, String createdBy, Instant createdDate) {}
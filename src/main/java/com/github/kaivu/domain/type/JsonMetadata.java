@@ -0,0 +1,85 @@
+package com.github.kaivu.domain.type;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Immutable jsonb value kept in its serialized form.
+ * <p>
+ * The document is only decoded when {@link #toJsonObject()} is called, equality compares the serialized bytes and
+ * the hash is computed once, so loading and flushing an entity never walks the JSON tree. Postgres returns jsonb
+ * in a normalized text form, two reads of the same document are therefore byte-equal.
+ */
+public final class JsonMetadata implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private static final JsonMetadata EMPTY = new JsonMetadata("{}".getBytes(StandardCharsets.UTF_8));
+
+    private final byte[] utf8;
+
+    // Racy single-check, like String#hashCode: recomputing the same value on a race is harmless
+    private transient int hash;
+
+    private JsonMetadata(byte[] utf8) {
+        this.utf8 = utf8;
+    }
+
+    public static JsonMetadata empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Wrap the text of a jsonb document, as read from the database. The text is not validated.
+     */
+    public static JsonMetadata ofJson(String json) {
+        return json == null || json.isEmpty() ? EMPTY : new JsonMetadata(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Snapshot of the object, later changes of the object are not reflected.
+     */
+    public static JsonMetadata of(JsonObject jsonObject) {
+        return jsonObject == null ? EMPTY : new JsonMetadata(jsonObject.toBuffer().getBytes());
+    }
+
+    /**
+     * Decode the document, the returned object belongs to the caller and changing it does not change this value.
+     */
+    public JsonObject toJsonObject() {
+        return new JsonObject(Buffer.buffer(utf8));
+    }
+
+    public String encode() {
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        return other instanceof JsonMetadata that && Arrays.equals(utf8, that.utf8);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = hash;
+        if (result == 0) {
+            result = Arrays.hashCode(utf8);
+            hash = result;
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return encode();
+    }
+}
@@ -0,0 +1,87 @@
+package com.github.kaivu.domain.type;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.usertype.UserType;
+
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * Maps a jsonb column to an immutable {@link JsonMetadata}.
+ * <p>
+ * Unlike {@link JsonObjectType} nothing is copied for the dirty-check snapshot and equality is a byte comparison.
+ * The column is exchanged as text so the driver does not decode it either, the mapped attribute must declare
+ * {@code @ColumnTransformer(read = "cast(metadata as text)", write = "cast(cast(? as text) as jsonb)")}.
+ */
+public class JsonMetadataType implements UserType<JsonMetadata> {
+
+    @Override
+    public int getSqlType() {
+        return Types.VARCHAR;
+    }
+
+    @Override
+    public Class<JsonMetadata> returnedClass() {
+        return JsonMetadata.class;
+    }
+
+    @Override
+    public boolean equals(JsonMetadata x, JsonMetadata y) {
+        if (x == null) {
+            return y == null;
+        }
+        return x.equals(y);
+    }
+
+    @Override
+    public int hashCode(JsonMetadata x) {
+        return x.hashCode();
+    }
+
+    @Override
+    public JsonMetadata nullSafeGet(
+            ResultSet rs, int position, SharedSessionContractImplementor session, Object owner) throws SQLException {
+        String json = rs.getString(position);
+        return json != null ? JsonMetadata.ofJson(json) : null;
+    }
+
+    @Override
+    public void nullSafeSet(
+            PreparedStatement st, JsonMetadata value, int index, SharedSessionContractImplementor session)
+            throws SQLException {
+        if (value == null) {
+            st.setNull(index, Types.VARCHAR);
+        } else {
+            st.setString(index, value.encode());
+        }
+    }
+
+    @Override
+    public JsonMetadata deepCopy(JsonMetadata value) {
+        // Immutable, the loaded instance is its own snapshot
+        return value;
+    }
+
+    @Override
+    public boolean isMutable() {
+        return false;
+    }
+
+    @Override
+    public Serializable disassemble(JsonMetadata value) {
+        return value;
+    }
+
+    @Override
+    public JsonMetadata assemble(Serializable cached, Object owner) {
+        return (JsonMetadata) cached;
+    }
+
+    @Override
+    public JsonMetadata replace(JsonMetadata original, JsonMetadata target, Object owner) {
+        return original;
+    }
+}
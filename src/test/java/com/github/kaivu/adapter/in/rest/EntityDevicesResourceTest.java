@@ -0,0 +1,73 @@
+package com.github.kaivu.adapter.in.rest;
+
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs against the datasources and Redis configured for the application (see local-setup.sh).
+ */
+@QuarkusTest
+class EntityDevicesResourceTest {
+
+    private static final int PARALLEL_CREATES = 16;
+
+    @TestHTTPResource("/api/entity-devices")
+    URI entityDevicesUri;
+
+    /**
+     * Duplicate names are only caught by the unique index, so parallel creates of one name must still let exactly
+     * one of them through.
+     */
+    @Test
+    void parallelCreatesWithSameNameConflict() throws Exception {
+        String body = """
+                {"name": "device-%s", "description": "parallel create"}
+                """.formatted(UUID.randomUUID());
+        HttpClient client = HttpClient.newHttpClient();
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<Integer>> statuses = new ArrayList<>();
+
+        try (ExecutorService senders = Executors.newFixedThreadPool(PARALLEL_CREATES)) {
+            for (int i = 0; i < PARALLEL_CREATES; i++) {
+                statuses.add(CompletableFuture.supplyAsync(
+                        () -> {
+                            try {
+                                start.await();
+                                HttpRequest request = HttpRequest.newBuilder(entityDevicesUri)
+                                        .header("Content-Type", "application/json")
+                                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                                        .build();
+                                return client.send(request, HttpResponse.BodyHandlers.discarding())
+                                        .statusCode();
+                            } catch (Exception e) {
+                                throw new IllegalStateException(e);
+                            }
+                        },
+                        senders));
+            }
+            start.countDown();
+            CompletableFuture.allOf(statuses.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+        }
+
+        long created = statuses.stream().filter(status -> status.join() == 201).count();
+        long conflicts = statuses.stream().filter(status -> status.join() == 409).count();
+        assertEquals(1, created, "exactly one create succeeds");
+        assertEquals(PARALLEL_CREATES - 1, conflicts, "every other create is a conflict");
+    }
+}
@@ -0,0 +1,212 @@
+package com.github.kaivu.adapter.out.client.impl;
+
+import com.github.kaivu.common.exception.ServiceException;
+import com.github.kaivu.config.ConfigsProvider;
+import com.github.kaivu.config.minio.MinioExecutor;
+import com.github.kaivu.config.minio.MinioProfileType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.MinioAsyncClient;
+import io.minio.messages.ListPartsResult;
+import io.minio.messages.Part;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs in Quarkus for the configuration only, the object store is faked.
+ */
+@QuarkusTest
+class MultipartUploaderTest {
+
+    private static final String BUCKET = "bucket";
+    private static final String OBJECT = "object";
+    private static final String UPLOAD_ID = "upload-1";
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final int partSize = ConfigsProvider.MINIO_MULTIPART_PART_SIZE;
+    private final byte[] object = randomBytes(2 * partSize + 1_000);
+
+    private MinioExecutor executor;
+    private FakeMultipartClient client;
+    private MultipartUploader uploader;
+
+    @BeforeEach
+    void setUp() {
+        executor = new MinioExecutor(MinioProfileType.MEDIA, new SimpleMeterRegistry());
+        client = new FakeMultipartClient();
+        uploader = new MultipartUploader(client, executor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    void uploadsEveryPartAndCompletesInOrder() {
+        upload();
+
+        assertEquals(List.of(1, 2, 3), client.completedNumbers());
+        assertEquals(List.of("etag-1", "etag-2", "etag-3"), client.completedEtags());
+        assertPartSent(1);
+        assertPartSent(2);
+        assertPartSent(3);
+    }
+
+    @Test
+    void failedPartIsRetriedAlone() {
+        client.failures.put(2, new AtomicInteger(ConfigsProvider.MINIO_MULTIPART_MAX_ATTEMPTS - 1));
+
+        upload();
+
+        assertEquals(1, client.attempts(1));
+        assertEquals(ConfigsProvider.MINIO_MULTIPART_MAX_ATTEMPTS, client.attempts(2));
+        assertEquals(1, client.attempts(3));
+        assertEquals(List.of(1, 2, 3), client.completedNumbers());
+        assertPartSent(2);
+    }
+
+    @Test
+    void partFailingEveryAttemptFailsTheUploadWithoutCompleting() {
+        client.failures.put(3, new AtomicInteger(Integer.MAX_VALUE));
+
+        assertThrows(ServiceException.class, this::upload);
+        assertEquals(ConfigsProvider.MINIO_MULTIPART_MAX_ATTEMPTS, client.attempts(3));
+        assertNull(client.completed);
+    }
+
+    /**
+     * Part 1 is stored, part 2 was stored with another size, so only parts 2 and 3 are sent again, read from the
+     * right offsets of a stream that starts at the first byte.
+     */
+    @Test
+    void resumeSendsOnlyTheMissingPartsAcrossListPages() {
+        client.storedPages.add(page(true, 1, storedPart(1, "stored-1", partSize)));
+        client.storedPages.add(page(false, 0, storedPart(2, "stored-2", partSize - 1)));
+
+        upload();
+
+        assertEquals(0, client.attempts(1));
+        assertEquals(1, client.attempts(2));
+        assertEquals(1, client.attempts(3));
+        assertEquals(List.of(0, 1), client.listMarkers);
+        assertEquals(List.of("stored-1", "etag-2", "etag-3"), client.completedEtags());
+        assertPartSent(2);
+        assertPartSent(3);
+    }
+
+    private void upload() {
+        uploader.upload(BUCKET, OBJECT, UPLOAD_ID, new ByteArrayInputStream(object), object.length)
+                .await()
+                .atMost(TIMEOUT);
+    }
+
+    private void assertPartSent(int number) {
+        int start = (number - 1) * partSize;
+        byte[] expected = Arrays.copyOfRange(object, start, Math.min(object.length, start + partSize));
+        assertArrayEquals(expected, client.sent.get(number), "bytes of part " + number);
+    }
+
+    private static Part storedPart(int number, String etag, long size) {
+        Part part = mock(Part.class);
+        when(part.partNumber()).thenReturn(number);
+        when(part.etag()).thenReturn(etag);
+        when(part.partSize()).thenReturn(size);
+        return part;
+    }
+
+    private static ListPartsResult page(boolean truncated, int nextMarker, Part... parts) {
+        ListPartsResult page = mock(ListPartsResult.class);
+        when(page.partList()).thenReturn(List.of(parts));
+        when(page.isTruncated()).thenReturn(truncated);
+        when(page.nextPartNumberMarker()).thenReturn(nextMarker);
+        return page;
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(50).nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * Keeps the parts in memory, failing the first attempts of the parts listed in {@link #failures}.
+     */
+    private static final class FakeMultipartClient extends MultipartMinioClient {
+
+        private final Map<Integer, AtomicInteger> failures = new ConcurrentHashMap<>();
+        private final Map<Integer, AtomicInteger> attempts = new ConcurrentHashMap<>();
+        private final Map<Integer, byte[]> sent = new ConcurrentHashMap<>();
+        private final List<ListPartsResult> storedPages = new ArrayList<>();
+        private final List<Integer> listMarkers = new ArrayList<>();
+        private volatile Part[] completed;
+
+        private FakeMultipartClient() {
+            super(MinioAsyncClient.builder()
+                    .endpoint("http://localhost:9000")
+                    .credentials("test", "test")
+                    .region("us-east-1")
+                    .build());
+        }
+
+        @Override
+        public CompletableFuture<ListPartsResult> listParts(
+                String bucketName, String objectName, String uploadId, int partNumberMarker) {
+            listMarkers.add(partNumberMarker);
+            return CompletableFuture.completedFuture(
+                    storedPages.isEmpty() ? page(false, 0) : storedPages.get(listMarkers.size() - 1));
+        }
+
+        @Override
+        public CompletableFuture<String> uploadPart(
+                String bucketName, String objectName, String uploadId, int partNumber, byte[] data, int length) {
+            attempts.computeIfAbsent(partNumber, number -> new AtomicInteger()).incrementAndGet();
+            AtomicInteger failing = failures.get(partNumber);
+            if (failing != null && failing.getAndDecrement() > 0) {
+                return CompletableFuture.failedFuture(new IOException("Connection reset"));
+            }
+            sent.put(partNumber, Arrays.copyOf(data, length));
+            return CompletableFuture.supplyAsync(() -> "etag-" + partNumber);
+        }
+
+        @Override
+        public CompletableFuture<Void> completeMultipartUpload(
+                String bucketName, String objectName, String uploadId, Part[] parts) {
+            completed = parts;
+            return CompletableFuture.completedFuture(null);
+        }
+
+        int attempts(int partNumber) {
+            AtomicInteger count = attempts.get(partNumber);
+            return count != null ? count.get() : 0;
+        }
+
+        List<Integer> completedNumbers() {
+            return Arrays.stream(completed).map(Part::partNumber).toList();
+        }
+
+        List<String> completedEtags() {
+            return Arrays.stream(completed).map(Part::etag).toList();
+        }
+    }
+}
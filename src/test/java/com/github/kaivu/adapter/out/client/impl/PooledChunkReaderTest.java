@@ -0,0 +1,134 @@
+package com.github.kaivu.adapter.out.client.impl;
+
+import io.netty.buffer.ByteBuf;
+import io.vertx.core.buffer.Buffer;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PooledChunkReaderTest {
+
+    private static final int READERS = 16;
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int OBJECT_SIZE = 10 * CHUNK_SIZE + 123;
+
+    @Test
+    void readsTheLengthInChunksThenEmptyBuffers() {
+        byte[] object = randomBytes(OBJECT_SIZE, 1);
+        PooledChunkReader reader = new PooledChunkReader(new ByteArrayInputStream(object), CHUNK_SIZE, OBJECT_SIZE);
+
+        List<Integer> sizes = new ArrayList<>();
+        for (Buffer chunk = reader.next(); chunk.length() > 0; chunk = reader.next()) {
+            sizes.add(chunk.length());
+        }
+        reader.close();
+
+        assertEquals(11, sizes.size());
+        assertEquals(CHUNK_SIZE, sizes.getFirst());
+        assertEquals(123, sizes.getLast());
+    }
+
+    /**
+     * Readers share the pooled allocator: each must get its own bytes back and hold at most one live chunk.
+     */
+    @Test
+    void concurrentReadersGetTheirOwnBytesAndHoldOneChunk() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+
+        try (ExecutorService readers = Executors.newFixedThreadPool(READERS)) {
+            for (int r = 0; r < READERS; r++) {
+                byte[] object = randomBytes(OBJECT_SIZE, r);
+                results.add(readers.submit(() -> {
+                    start.await();
+                    readAndCheck(object);
+                    return null;
+                }));
+            }
+            start.countDown();
+        }
+
+        for (Future<?> result : results) {
+            result.get(60, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void closeDuringAReadReleasesTheChunkAndCancels() throws Exception {
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch closed = new CountDownLatch(1);
+        InputStream blocking = new InputStream() {
+            @Override
+            public int read() {
+                return 0;
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) {
+                reading.countDown();
+                try {
+                    closed.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return length;
+            }
+
+            @Override
+            public void close() {
+                closed.countDown();
+            }
+        };
+        PooledChunkReader reader = new PooledChunkReader(blocking, CHUNK_SIZE, OBJECT_SIZE);
+
+        CompletableFuture<Buffer> next = CompletableFuture.supplyAsync(reader::next);
+        assertTrue(reading.await(10, TimeUnit.SECONDS));
+        reader.close();
+
+        Exception failure = assertThrows(Exception.class, () -> next.get(10, TimeUnit.SECONDS));
+        assertTrue(failure.getCause() instanceof CancellationException, failure.toString());
+        assertThrows(CancellationException.class, reader::next);
+    }
+
+    private static void readAndCheck(byte[] object) {
+        PooledChunkReader reader = new PooledChunkReader(new ByteArrayInputStream(object), CHUNK_SIZE, object.length);
+        ByteArrayOutputStream read = new ByteArrayOutputStream(object.length);
+        ByteBuf previous = null;
+        try {
+            for (Buffer chunk = reader.next(); chunk.length() > 0; chunk = reader.next()) {
+                if (previous != null) {
+                    assertEquals(0, previous.refCnt(), "previous chunk still held");
+                }
+                previous = chunk.getByteBuf();
+                read.writeBytes(chunk.getBytes());
+            }
+            assertEquals(0, previous.refCnt(), "last chunk held past the end");
+        } finally {
+            reader.close();
+        }
+        assertArrayEquals(object, read.toByteArray());
+    }
+
+    private static byte[] randomBytes(int size, long seed) {
+        byte[] bytes = new byte[size];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,125 @@
+package com.github.kaivu.adapter.out.persistence;
+
+import com.github.kaivu.adapter.in.rest.dto.request.EntityDeviceFilters;
+import com.github.kaivu.adapter.in.rest.dto.vm.EntityDeviceVM;
+import com.github.kaivu.application.port.IEntityDeviceRepository;
+import com.github.kaivu.common.mapper.EntityDeviceMapper;
+import com.sun.management.ThreadMXBean;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.smallrye.common.vertx.VertxContext;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.Vertx;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs against the datasources and Redis configured for the application (see local-setup.sh).
+ * Allocations are read for every thread of the JVM, the pages are repeated so background noise averages out.
+ */
+@QuarkusTest
+class EntityDeviceRepositoryAllocationTest {
+
+    private static final int PAGE_SIZE = 20;
+    private static final int WARMUP_PAGES = 50;
+    private static final int MEASURED_PAGES = 200;
+
+    @TestHTTPResource("/api/entity-devices")
+    URI entityDevicesUri;
+
+    @Inject
+    IEntityDeviceRepository entityDeviceRepository;
+
+    @Inject
+    Vertx vertx;
+
+    /**
+     * A list page from the projection skips the managed entities, their dirty-checking snapshots and the jsonb
+     * metadata, so it must allocate less than the same page mapped from entities.
+     */
+    @Test
+    void projectionPageAllocatesLessThanEntityPage() throws Exception {
+        String keyword = "alloc-" + UUID.randomUUID();
+        seed(keyword);
+        EntityDeviceFilters filters = new EntityDeviceFilters();
+        filters.setKeyword(keyword);
+        filters.setSize(PAGE_SIZE);
+        filters.setSort("createdDate");
+
+        assertEquals(PAGE_SIZE, await(() -> entityDeviceRepository.findAllSummaries(filters)).size());
+
+        long entityBytes = bytesPerPage(() -> entityDeviceRepository
+                .findAll(filters)
+                .map(devices ->
+                        devices.stream().map(EntityDeviceMapper.map::toEntityDeviceVM).toList()));
+        long projectionBytes = bytesPerPage(() -> entityDeviceRepository
+                .findAllSummaries(filters)
+                .map(summaries ->
+                        summaries.stream().map(EntityDeviceMapper.map::toEntityDeviceVM).toList()));
+
+        assertTrue(
+                projectionBytes < entityBytes,
+                "bytes allocated per page: " + projectionBytes + " from the projection, " + entityBytes
+                        + " from entities");
+    }
+
+    private void seed(String keyword) throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            HttpRequest create = HttpRequest.newBuilder(entityDevicesUri)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("""
+                            {"name": "%s-%d", "description": "allocation per page"}
+                            """.formatted(keyword, i)))
+                    .build();
+            HttpResponse<Void> created = client.send(create, HttpResponse.BodyHandlers.discarding());
+            assertEquals(201, created.statusCode());
+
+            URI location = URI.create(created.headers().firstValue("Location").orElseThrow());
+            HttpRequest patch = HttpRequest.newBuilder(entityDevicesUri.resolve(location.getPath() + "/metadata"))
+                    .header("Content-Type", "application/merge-patch+json")
+                    .method("PATCH", HttpRequest.BodyPublishers.ofString("""
+                            {"firmware": "1.4.%d", "tags": ["edge", "outdoor", "batch-%d"],
+                             "location": {"site": "plant-%d", "rack": %d, "slot": "b%d"}}
+                            """.formatted(i, i, i % 3, i, i)))
+                    .build();
+            assertEquals(200, client.send(patch, HttpResponse.BodyHandlers.discarding()).statusCode());
+        }
+    }
+
+    private long bytesPerPage(Supplier<Uni<List<EntityDeviceVM>>> page) throws Exception {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < WARMUP_PAGES; i++) {
+            await(page);
+        }
+        long before = threads.getTotalThreadAllocatedBytes();
+        for (int i = 0; i < MEASURED_PAGES; i++) {
+            await(page);
+        }
+        return (threads.getTotalThreadAllocatedBytes() - before) / MEASURED_PAGES;
+    }
+
+    /**
+     * Hibernate Reactive sessions must be opened on a Vert.x context.
+     */
+    private <T> T await(Supplier<Uni<T>> query) throws Exception {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        VertxContext.getOrCreateDuplicatedContext(vertx)
+                .runOnContext(ignored -> query.get().subscribe().with(result::complete, result::completeExceptionally));
+        return result.get(30, TimeUnit.SECONDS);
+    }
+}
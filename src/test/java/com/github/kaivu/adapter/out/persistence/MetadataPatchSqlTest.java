@@ -0,0 +1,104 @@
+package com.github.kaivu.adapter.out.persistence;
+
+import com.github.kaivu.domain.patch.MetadataPatch;
+import com.github.kaivu.domain.patch.MetadataPatch.Kind;
+import com.github.kaivu.domain.patch.MetadataPatch.Operation;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.mutiny.sqlclient.Tuple;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MetadataPatchSqlTest {
+
+    private static final String DOCUMENT = "metadata";
+
+    @Test
+    void addMemberIsOneJsonbSet() {
+        Tuple params = Tuple.tuple();
+
+        String sql = new MetadataPatchSql(params)
+                .compile(DOCUMENT, MetadataPatch.fromMergePatch(new JsonObject("{\"b\": 1}")));
+
+        assertEquals("jsonb_set(metadata, $2::text[], $1::text::jsonb, true)", sql);
+        assertEquals("1", params.getString(0));
+        assertArrayEquals(new String[] {"b"}, params.getArrayOfStrings(1));
+    }
+
+    @Test
+    void mergePatchNullRemovesWithoutFailing() {
+        Tuple params = Tuple.tuple();
+
+        String sql = new MetadataPatchSql(params)
+                .compile(DOCUMENT, MetadataPatch.fromMergePatch(new JsonObject("{\"a\": null, \"b\": null}")));
+
+        assertEquals("((metadata #- $1::text[]) #- $2::text[])", sql);
+        assertEquals(2, params.size());
+    }
+
+    @Test
+    void appendChecksTheParentIsAnArray() {
+        Tuple params = Tuple.tuple();
+
+        String sql = new MetadataPatchSql(params)
+                .compile(DOCUMENT, MetadataPatch.fromJsonPatch(
+                        new JsonArray("[{\"op\": \"add\", \"path\": \"/tags/-\", \"value\": \"x\"}]")));
+
+        assertEquals(
+                "(SELECT CASE WHEN jsonb_typeof(d #> $4::text[]) = 'array'"
+                        + " THEN jsonb_insert(d, $3::text[], $1::text::jsonb, true)"
+                        + " ELSE jsonb_set(d, $2::text[], $1::text::jsonb, true) END FROM (SELECT metadata AS d) s)",
+                sql);
+        assertEquals("\"x\"", params.getString(0));
+        assertArrayEquals(new String[] {"tags", "-1"}, params.getArrayOfStrings(2));
+        assertArrayEquals(new String[] {"tags"}, params.getArrayOfStrings(3));
+    }
+
+    @Test
+    void replaceAndTestNullTheDocumentWhenTheyFail() {
+        Tuple params = Tuple.tuple();
+
+        String sql = new MetadataPatchSql(params)
+                .compile(DOCUMENT, MetadataPatch.fromJsonPatch(new JsonArray(
+                        "[{\"op\": \"test\", \"path\": \"/a\", \"value\": 1},"
+                                + " {\"op\": \"replace\", \"path\": \"/a\", \"value\": 2}]")));
+
+        String test = "(SELECT CASE WHEN (d #> $1::text[]) = $2::text::jsonb THEN d END FROM (SELECT metadata AS d) s)";
+        assertEquals(
+                "(SELECT CASE WHEN d #> $3::text[] IS NULL THEN NULL ELSE jsonb_set(d, $3::text[], $4::text::jsonb,"
+                        + " false) END FROM (SELECT " + test + " AS d) s)",
+                sql);
+    }
+
+    @Test
+    void mergeIntoObjectReplacesOtherValues() {
+        Tuple params = Tuple.tuple();
+
+        MetadataPatch patch = new MetadataPatch(List.of(new Operation(Kind.ENSURE_OBJECT, List.of("a"), null, null)));
+
+        String sql = new MetadataPatchSql(params).compile(DOCUMENT, patch);
+
+        assertEquals(
+                "(SELECT jsonb_set(d, $1::text[], CASE WHEN jsonb_typeof(d #> $1::text[]) = 'object'"
+                        + " THEN d #> $1::text[] ELSE '{}'::jsonb END) FROM (SELECT metadata AS d) s)",
+                sql);
+    }
+
+    @Test
+    void statementGrowsLinearlyWithThePatch() {
+        List<Operation> operations = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            operations.add(new Operation(Kind.REPLACE, List.of("a"), null, i));
+            operations.add(new Operation(Kind.MOVE, List.of("b"), List.of("a"), null));
+        }
+
+        String sql = new MetadataPatchSql(Tuple.tuple()).compile(DOCUMENT, new MetadataPatch(operations));
+
+        assertEquals(1, sql.split(DOCUMENT, -1).length - 1);
+    }
+}
@@ -0,0 +1,103 @@
+package com.github.kaivu.application.usecase.impl;
+
+import com.github.kaivu.adapter.in.rest.dto.vm.EntityDeviceChangesVM;
+import com.github.kaivu.application.exception.ResourceGoneException;
+import com.github.kaivu.application.port.IEntityDeviceChangeRepository;
+import com.github.kaivu.common.exception.ServiceException;
+import com.github.kaivu.domain.change.ChangeToken;
+import com.github.kaivu.domain.change.EntityDeviceChange;
+import com.github.kaivu.domain.enumeration.ChangeOperation;
+import io.smallrye.mutiny.Uni;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EntityDeviceChangesUseCaseImplTest {
+
+    private static final ChangeToken HORIZON = new ChangeToken(10L, 50L);
+
+    private final IEntityDeviceChangeRepository repository = mock(IEntityDeviceChangeRepository.class);
+    private final EntityDeviceChangesUseCaseImpl useCase = new EntityDeviceChangesUseCaseImpl();
+
+    @BeforeEach
+    void setUp() {
+        ContainerRequestContext requestContext = mock(ContainerRequestContext.class);
+        when(requestContext.getLanguage()).thenReturn(Locale.ENGLISH);
+        useCase.requestContext = requestContext;
+        useCase.entityDeviceChangeRepository = repository;
+        when(repository.horizon()).thenReturn(Uni.createFrom().item(HORIZON));
+    }
+
+    @Test
+    void tokenBehindTheHorizonIsGone() {
+        String since = new ChangeToken(10L, 49L).encode();
+
+        assertThrows(ResourceGoneException.class, () -> useCase.changes(since, 10)
+                .await()
+                .indefinitely());
+        verify(repository, never()).findAfter(any(), anyInt());
+    }
+
+    @Test
+    void tokenAtTheHorizonIsStillServed() {
+        when(repository.findAfter(HORIZON, 3)).thenReturn(Uni.createFrom().item(List.of()));
+
+        EntityDeviceChangesVM page = useCase.changes(HORIZON.encode(), 2).await().indefinitely();
+
+        assertTrue(page.changes().isEmpty());
+        assertEquals(HORIZON.encode(), page.nextToken());
+        assertFalse(page.hasMore());
+    }
+
+    @Test
+    void pageIsFetchedOneOverTheLimit() {
+        ChangeToken since = new ChangeToken(11L, 1L);
+        List<EntityDeviceChange> changes = List.of(
+                change(new ChangeToken(11L, 2L)), change(new ChangeToken(12L, 1L)), change(new ChangeToken(12L, 5L)));
+        when(repository.findAfter(since, 3)).thenReturn(Uni.createFrom().item(changes));
+
+        EntityDeviceChangesVM page = useCase.changes(since.encode(), 2).await().indefinitely();
+
+        assertEquals(2, page.changes().size());
+        assertEquals(new ChangeToken(12L, 1L).encode(), page.nextToken());
+        assertTrue(page.hasMore());
+    }
+
+    @Test
+    void malformedTokenIsABadRequest() {
+        assertThrows(ServiceException.class, () -> useCase.changes("not-a-token", 10)
+                .await()
+                .indefinitely());
+        verify(repository, never()).horizon();
+    }
+
+    @Test
+    void firstCallStartsFromTheHorizonOfAnEmptyLog() {
+        when(repository.head()).thenReturn(Uni.createFrom().nullItem());
+
+        EntityDeviceChangesVM page = useCase.changes(null, 10).await().indefinitely();
+
+        assertEquals(HORIZON.encode(), page.nextToken());
+        assertTrue(page.changes().isEmpty());
+    }
+
+    private static EntityDeviceChange change(ChangeToken position) {
+        return new EntityDeviceChange(position, UUID.randomUUID(), ChangeOperation.DELETE, 1L, Instant.now(), null);
+    }
+}
@@ -0,0 +1,72 @@
+package com.github.kaivu.common.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsvUtilTest {
+
+    @Test
+    void toLineQuotesOnlyWhenNeeded() {
+        assertEquals("plain,,42\r\n", CsvUtil.toLine("plain", null, 42));
+        assertEquals(
+                "\"a,b\",\"say \"\"hi\"\"\",\"two\nlines\"\r\n", CsvUtil.toLine("a,b", "say \"hi\"", "two\nlines"));
+    }
+
+    @Test
+    void parseLineHandlesQuotesAndSeparators() {
+        assertEquals(List.of("a", "", "c"), CsvUtil.parseLine("a,,c"));
+        assertEquals(List.of("a,b", "say \"hi\""), CsvUtil.parseLine("\"a,b\",\"say \"\"hi\"\"\""));
+        assertEquals(List.of("a", "b"), CsvUtil.parseLine("a,b\r"));
+        assertEquals(List.of(""), CsvUtil.parseLine(""));
+    }
+
+    @Test
+    void isOpenRecordDetectsAnUnterminatedQuotedField() {
+        assertFalse(CsvUtil.isOpenRecord("a,b"));
+        assertFalse(CsvUtil.isOpenRecord("\"a,b\",c"));
+        assertFalse(CsvUtil.isOpenRecord("\"say \"\"hi\"\"\""));
+        assertTrue(CsvUtil.isOpenRecord("x,\"first line"));
+        assertTrue(CsvUtil.isOpenRecord("x,\"say \"\"hi\"\" then"));
+    }
+
+    @Test
+    void multiLineQuotedRecordRoundTrips() throws Exception {
+        String csv = CsvUtil.toLine("name", "description")
+                + CsvUtil.toLine("device-1", "first line\nsecond, \"quoted\" line\n\nlast line")
+                + CsvUtil.toLine("device-2", "single");
+
+        List<List<String>> records = readRecords(csv);
+
+        assertEquals(3, records.size());
+        assertEquals(List.of("name", "description"), records.get(0));
+        assertEquals(List.of("device-1", "first line\nsecond, \"quoted\" line\n\nlast line"), records.get(1));
+        assertEquals(List.of("device-2", "single"), records.get(2));
+    }
+
+    /**
+     * Joins physical lines while the record is open, as the import reads an upload.
+     */
+    private static List<List<String>> readRecords(String csv) throws Exception {
+        try (BufferedReader reader = new BufferedReader(new StringReader(csv))) {
+            Iterator<String> lines = reader.lines().iterator();
+            List<List<String>> records = new ArrayList<>();
+            while (lines.hasNext()) {
+                StringBuilder text = new StringBuilder(lines.next());
+                while (CsvUtil.isOpenRecord(text.toString()) && lines.hasNext()) {
+                    text.append('\n').append(lines.next());
+                }
+                records.add(CsvUtil.parseLine(text.toString()));
+            }
+            return records;
+        }
+    }
+}
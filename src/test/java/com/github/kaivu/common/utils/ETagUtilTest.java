@@ -0,0 +1,81 @@
+package com.github.kaivu.common.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ETagUtilTest {
+
+    private static final Instant LAST_MODIFIED = Instant.parse("2024-03-05T08:09:10.750Z");
+
+    @Test
+    void parseIfMatchIsUnconditionalWhenAbsentOrWildcard() {
+        assertNull(ETagUtil.parseIfMatch(null));
+        assertNull(ETagUtil.parseIfMatch("  "));
+        assertNull(ETagUtil.parseIfMatch("*"));
+        assertNull(ETagUtil.parseIfMatch(" * "));
+    }
+
+    @Test
+    void parseIfMatchReadsEveryStrongTagOfAList() {
+        assertEquals(List.of(7L), ETagUtil.parseIfMatch("\"7\""));
+        assertEquals(List.of(7L, 8L), ETagUtil.parseIfMatch("\"7\", \"8\""));
+        assertEquals(List.of(7L, 8L), ETagUtil.parseIfMatch("\"7\",\"8\""));
+    }
+
+    @Test
+    void parseIfMatchDropsWeakAndForeignTags() {
+        assertEquals(List.of(8L), ETagUtil.parseIfMatch("W/\"7\", \"8\""));
+        assertEquals(List.of(9L), ETagUtil.parseIfMatch("\"abc\", \"9\", ,"));
+        assertTrue(ETagUtil.parseIfMatch("W/\"7\"").isEmpty());
+        assertTrue(ETagUtil.parseIfMatch("\"not-a-version\"").isEmpty());
+    }
+
+    @Test
+    void matchesNoneMatchComparesWeakly() {
+        assertTrue(ETagUtil.matchesNoneMatch("\"3\"", 3L));
+        assertTrue(ETagUtil.matchesNoneMatch("W/\"3\"", 3L));
+        assertTrue(ETagUtil.matchesNoneMatch("\"1\", W/\"3\"", 3L));
+        assertTrue(ETagUtil.matchesNoneMatch("*", 3L));
+        assertFalse(ETagUtil.matchesNoneMatch("\"4\"", 3L));
+        assertFalse(ETagUtil.matchesNoneMatch(null, 3L));
+        assertFalse(ETagUtil.matchesNoneMatch("\"3\"", (Long) null));
+    }
+
+    @Test
+    void matchesIfRangeComparesTagsStronglyAndDatesExactly() {
+        assertTrue(ETagUtil.matchesIfRange(null, "abc", LAST_MODIFIED));
+        assertTrue(ETagUtil.matchesIfRange("\"abc\"", "abc", LAST_MODIFIED));
+        assertFalse(ETagUtil.matchesIfRange("W/\"abc\"", "abc", LAST_MODIFIED));
+        assertFalse(ETagUtil.matchesIfRange("\"abd\"", "abc", LAST_MODIFIED));
+
+        assertTrue(ETagUtil.matchesIfRange("Tue, 05 Mar 2024 08:09:10 GMT", "abc", LAST_MODIFIED));
+        assertFalse(ETagUtil.matchesIfRange("Tue, 05 Mar 2024 08:09:09 GMT", "abc", LAST_MODIFIED));
+        assertFalse(ETagUtil.matchesIfRange("not a date", "abc", LAST_MODIFIED));
+    }
+
+    @Test
+    void notModifiedSinceIgnoresSubSecondPrecision() {
+        assertTrue(ETagUtil.notModifiedSince("Tue, 05 Mar 2024 08:09:10 GMT", LAST_MODIFIED));
+        assertTrue(ETagUtil.notModifiedSince("Tue, 05 Mar 2024 09:00:00 GMT", LAST_MODIFIED));
+        assertFalse(ETagUtil.notModifiedSince("Tue, 05 Mar 2024 08:09:09 GMT", LAST_MODIFIED));
+        assertFalse(ETagUtil.notModifiedSince("garbage", LAST_MODIFIED));
+        assertFalse(ETagUtil.notModifiedSince(null, LAST_MODIFIED));
+    }
+
+    @Test
+    void formatHttpDateWritesTwoDayDigits() {
+        assertEquals("Tue, 05 Mar 2024 08:09:10 GMT", ETagUtil.formatHttpDate(LAST_MODIFIED));
+    }
+
+    @Test
+    void parsedHttpDateAcceptsSingleDayDigit() {
+        assertTrue(ETagUtil.notModifiedSince("Tue, 5 Mar 2024 08:09:10 GMT", LAST_MODIFIED));
+    }
+}
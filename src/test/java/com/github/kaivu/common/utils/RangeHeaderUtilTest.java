@@ -0,0 +1,77 @@
+package com.github.kaivu.common.utils;
+
+import com.github.kaivu.adapter.in.rest.dto.vm.RangeInfo;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RangeHeaderUtilTest {
+
+    private static final long FILE_SIZE = 1_000;
+    private static final long MAX_OPEN_LENGTH = 100;
+
+    @Test
+    void closedRangesAreServedAsAskedWithinTheFile() {
+        assertEquals(List.of(new RangeInfo(0, 499)), parse("bytes=0-499"));
+        assertEquals(List.of(new RangeInfo(900, 999)), parse("bytes=900-5000"));
+        assertEquals(List.of(new RangeInfo(10, 10), new RangeInfo(0, 1)), parse("BYTES= 10-10 , 0-1"));
+    }
+
+    @Test
+    void openEndedRangesAreClamped() {
+        assertEquals(List.of(new RangeInfo(200, 299)), parse("bytes=200-"));
+        assertEquals(List.of(new RangeInfo(950, 999)), parse("bytes=950-"));
+    }
+
+    @Test
+    void suffixRangesAreClampedFromTheirFirstByte() {
+        assertEquals(List.of(new RangeInfo(950, 999)), parse("bytes=-50"));
+        assertEquals(List.of(new RangeInfo(500, 599)), parse("bytes=-500"));
+        assertEquals(List.of(new RangeInfo(0, 99)), parse("bytes=-5000"));
+    }
+
+    @Test
+    void unsatisfiableSpecsAreDropped() {
+        assertTrue(parse("bytes=1000-1200").isEmpty());
+        assertTrue(parse("bytes=-0").isEmpty());
+        assertTrue(RangeHeaderUtil.parse("bytes=-10", 0, MAX_OPEN_LENGTH).isEmpty());
+        assertEquals(List.of(new RangeInfo(0, 9)), parse("bytes=2000-, 0-9"));
+    }
+
+    @Test
+    void malformedHeadersAreIgnored() {
+        assertNull(parse(null));
+        assertNull(parse("items=0-1"));
+        assertNull(parse("bytes=10"));
+        assertNull(parse("bytes=-"));
+        assertNull(parse("bytes=5-4"));
+        assertNull(parse("bytes=a-b"));
+        assertNull(parse("bytes=0-1, x"));
+        assertNull(parse("bytes=--1"));
+    }
+
+    @Test
+    void coalesceMergesOverlappingAndAdjacentRanges() {
+        List<RangeInfo> merged = RangeHeaderUtil.coalesce(List.of(
+                new RangeInfo(500, 599), new RangeInfo(0, 9), new RangeInfo(10, 19), new RangeInfo(550, 700)));
+
+        assertEquals(List.of(new RangeInfo(0, 19), new RangeInfo(500, 700)), merged);
+    }
+
+    @Test
+    void coalesceKeepsDisjointRangesSorted() {
+        List<RangeInfo> merged =
+                RangeHeaderUtil.coalesce(List.of(new RangeInfo(30, 39), new RangeInfo(0, 9), new RangeInfo(11, 20)));
+
+        assertEquals(List.of(new RangeInfo(0, 9), new RangeInfo(11, 20), new RangeInfo(30, 39)), merged);
+        assertTrue(RangeHeaderUtil.coalesce(List.of()).isEmpty());
+    }
+
+    private static List<RangeInfo> parse(String header) {
+        return RangeHeaderUtil.parse(header, FILE_SIZE, MAX_OPEN_LENGTH);
+    }
+}
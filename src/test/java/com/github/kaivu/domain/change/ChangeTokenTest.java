@@ -0,0 +1,44 @@
+package com.github.kaivu.domain.change;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChangeTokenTest {
+
+    @Test
+    void encodeAndParseRoundTrip() {
+        for (ChangeToken token : List.of(
+                ChangeToken.origin(),
+                new ChangeToken(1L, 2L),
+                new ChangeToken(123_456_789L, 42L),
+                new ChangeToken(Long.MAX_VALUE, Long.MAX_VALUE))) {
+            assertEquals(token, ChangeToken.parse(token.encode()));
+        }
+        assertEquals("0.0", ChangeToken.origin().encode());
+        assertEquals("z.10", new ChangeToken(35L, 36L).encode());
+    }
+
+    @Test
+    void parseRejectsMalformedTokens() {
+        for (String invalid : List.of("", ".", "1.", ".1", "1", "1.2.3", "-1.2", "1.-2", "1.!", "zzzzzzzzzzzzzz.1")) {
+            assertThrows(IllegalArgumentException.class, () -> ChangeToken.parse(invalid), invalid);
+        }
+    }
+
+    @Test
+    void transactionIdOrdersBeforeChangeId() {
+        ChangeToken earlierTransaction = new ChangeToken(5L, 900L);
+        ChangeToken laterTransaction = new ChangeToken(6L, 100L);
+
+        assertTrue(earlierTransaction.isBefore(laterTransaction));
+        assertTrue(new ChangeToken(6L, 99L).isBefore(laterTransaction));
+        assertFalse(laterTransaction.isBefore(laterTransaction));
+        assertTrue(ChangeToken.origin().isBefore(new ChangeToken(0L, 1L)));
+    }
+}
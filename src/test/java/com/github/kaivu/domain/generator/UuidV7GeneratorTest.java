@@ -0,0 +1,93 @@
+package com.github.kaivu.domain.generator;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UuidV7GeneratorTest {
+
+    private static final int THREADS = 8;
+    private static final int PER_THREAD = 50_000;
+
+    @Test
+    void layoutIsVersion7WithTheCurrentTime() {
+        long before = System.currentTimeMillis();
+        UUID uuid = UuidV7Generator.next();
+        long after = System.currentTimeMillis();
+
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+        long millis = uuid.getMostSignificantBits() >>> 16;
+        // The clock may only be ahead when earlier calls borrowed milliseconds
+        assertTrue(millis >= before, "timestamp " + millis + " before " + before);
+        assertTrue(millis <= after + 1_000, "timestamp " + millis + " far after " + after);
+    }
+
+    @Test
+    void consecutiveValuesAreStrictlyIncreasing() {
+        UUID previous = UuidV7Generator.next();
+        for (int i = 0; i < 100_000; i++) {
+            UUID current = UuidV7Generator.next();
+            assertTrue(compareUnsigned(previous, current) < 0, previous + " is not before " + current);
+            previous = current;
+        }
+    }
+
+    /**
+     * Each thread must see its own values increase and no value may be issued twice, even when the sequence of a
+     * millisecond runs out and later milliseconds are borrowed.
+     */
+    @Test
+    void valuesStayUniqueAndOrderedUnderContention() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<long[]>> results = new ArrayList<>();
+
+        try (ExecutorService generators = Executors.newFixedThreadPool(THREADS)) {
+            for (int t = 0; t < THREADS; t++) {
+                results.add(generators.submit(() -> {
+                    start.await();
+                    long[] timeAndSequence = new long[PER_THREAD];
+                    for (int i = 0; i < PER_THREAD; i++) {
+                        timeAndSequence[i] = UuidV7Generator.next().getMostSignificantBits();
+                    }
+                    return timeAndSequence;
+                }));
+            }
+            start.countDown();
+        }
+
+        Set<Long> issued = new HashSet<>(THREADS * PER_THREAD);
+        for (Future<long[]> result : results) {
+            long[] values = result.get(60, TimeUnit.SECONDS);
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    assertTrue(Long.compareUnsigned(values[i - 1], values[i]) < 0, "not increasing at " + i);
+                }
+                issued.add(values[i]);
+            }
+        }
+        assertEquals(THREADS * PER_THREAD, issued.size(), "a time and sequence was issued twice");
+    }
+
+    /**
+     * The order of the stored bytes, as PostgreSQL compares uuid values.
+     */
+    private static int compareUnsigned(UUID first, UUID second) {
+        int byTime = Long.compareUnsigned(first.getMostSignificantBits(), second.getMostSignificantBits());
+        return byTime != 0
+                ? byTime
+                : Long.compareUnsigned(first.getLeastSignificantBits(), second.getLeastSignificantBits());
+    }
+}
@@ -0,0 +1,109 @@
+package com.github.kaivu.domain.patch;
+
+import com.github.kaivu.domain.patch.MetadataPatch.Kind;
+import com.github.kaivu.domain.patch.MetadataPatch.Operation;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetadataPatchTest {
+
+    @Test
+    void mergePatchFlattensNestedObjects() {
+        MetadataPatch patch = MetadataPatch.fromMergePatch(
+                new JsonObject("{\"a\": 1, \"b\": null, \"c\": {\"d\": \"x\", \"e\": null}}"));
+
+        assertEquals(
+                List.of(
+                        new Operation(Kind.ADD, List.of("a"), null, 1),
+                        new Operation(Kind.REMOVE_IF_PRESENT, List.of("b"), null, null),
+                        new Operation(Kind.ENSURE_OBJECT, List.of("c"), null, null),
+                        new Operation(Kind.ADD, List.of("c", "d"), null, "x"),
+                        new Operation(Kind.REMOVE_IF_PRESENT, List.of("c", "e"), null, null)),
+                patch.operations());
+    }
+
+    @Test
+    void mergePatchReplacesArraysWhole() {
+        MetadataPatch patch = MetadataPatch.fromMergePatch(new JsonObject("{\"tags\": [1, 2]}"));
+
+        assertEquals(
+                List.of(new Operation(Kind.ADD, List.of("tags"), null, new JsonArray("[1, 2]"))), patch.operations());
+    }
+
+    @Test
+    void jsonPatchMapsEveryOperation() {
+        MetadataPatch patch = MetadataPatch.fromJsonPatch(new JsonArray(
+                """
+                [
+                  {"op": "add", "path": "/a/-", "value": 1},
+                  {"op": "replace", "path": "", "value": {}},
+                  {"op": "remove", "path": "/b"},
+                  {"op": "copy", "from": "/a", "path": "/c"},
+                  {"op": "move", "from": "/c", "path": "/d"},
+                  {"op": "test", "path": "/d", "value": null}
+                ]
+                """));
+
+        assertEquals(
+                List.of(
+                        new Operation(Kind.ADD, List.of("a", "-"), null, 1),
+                        new Operation(Kind.REPLACE, List.of(), null, new JsonObject()),
+                        new Operation(Kind.REMOVE, List.of("b"), null, null),
+                        new Operation(Kind.COPY, List.of("c"), List.of("a"), null),
+                        new Operation(Kind.MOVE, List.of("d"), List.of("c"), null),
+                        new Operation(Kind.TEST, List.of("d"), null, null)),
+                patch.operations());
+    }
+
+    @Test
+    void jsonPatchUnescapesPointerTokens() {
+        MetadataPatch patch =
+                MetadataPatch.fromJsonPatch(new JsonArray("[{\"op\": \"remove\", \"path\": \"/a~1b/~0c/\"}]"));
+
+        assertEquals(List.of("a/b", "~c", ""), patch.operations().getFirst().path());
+    }
+
+    @Test
+    void jsonPatchRejectsMalformedOperations() {
+        for (String invalid : List.of(
+                "[1]",
+                "[{\"path\": \"/a\"}]",
+                "[{\"op\": \"add\", \"path\": \"/a\"}]",
+                "[{\"op\": \"add\", \"path\": \"a\", \"value\": 1}]",
+                "[{\"op\": \"remove\", \"path\": \"\"}]",
+                "[{\"op\": \"move\", \"from\": \"/a\", \"path\": \"/a/b\"}]",
+                "[{\"op\": \"copy\", \"path\": \"/a\"}]",
+                "[{\"op\": \"unknown\", \"path\": \"/a\"}]")) {
+            assertThrows(
+                    IllegalArgumentException.class,
+                    () -> MetadataPatch.fromJsonPatch(new JsonArray(invalid)),
+                    invalid);
+        }
+    }
+
+    @Test
+    void moveIntoItselfIsAllowedWhenNotAProperPrefix() {
+        MetadataPatch patch = MetadataPatch.fromJsonPatch(
+                new JsonArray("[{\"op\": \"move\", \"from\": \"/a\", \"path\": \"/a\"}]"));
+
+        assertEquals(Kind.MOVE, patch.operations().getFirst().kind());
+    }
+
+    @Test
+    void isArrayPositionAcceptsIndexesAndAppend() {
+        assertTrue(MetadataPatch.isArrayPosition("0"));
+        assertTrue(MetadataPatch.isArrayPosition("12"));
+        assertTrue(MetadataPatch.isArrayPosition(MetadataPatch.APPEND_TOKEN));
+        assertFalse(MetadataPatch.isArrayPosition(""));
+        assertFalse(MetadataPatch.isArrayPosition("-1"));
+        assertFalse(MetadataPatch.isArrayPosition("a1"));
+    }
+}
@@ -0,0 +1,110 @@
+package com.github.kaivu.domain.type;
+
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonMetadataTest {
+
+    private static final String DOCUMENT = "{\"firmware\": \"1.4.2\", \"location\": {\"rack\": 3}}";
+
+    @Test
+    void equalityComparesTheStoredText() {
+        JsonMetadata first = JsonMetadata.ofJson(DOCUMENT);
+        JsonMetadata second = JsonMetadata.ofJson(new String(DOCUMENT.toCharArray()));
+
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+        assertNotEquals(first, JsonMetadata.ofJson("{\"firmware\": \"1.4.3\", \"location\": {\"rack\": 3}}"));
+        assertNotEquals(first, null);
+        assertNotEquals(first, DOCUMENT);
+    }
+
+    @Test
+    void sameDocumentFromAnObjectIsEqual() {
+        JsonObject object = new JsonObject().put("firmware", "1.4.2").put("tags", new JsonArray());
+
+        assertEquals(JsonMetadata.of(object), JsonMetadata.of(object.copy()));
+        assertEquals(JsonMetadata.of(object), JsonMetadata.ofJson(object.encode()));
+    }
+
+    @Test
+    void emptyAndMissingDocumentsShareOneInstance() {
+        assertSame(JsonMetadata.empty(), JsonMetadata.ofJson(null));
+        assertSame(JsonMetadata.empty(), JsonMetadata.ofJson(""));
+        assertSame(JsonMetadata.empty(), JsonMetadata.of(null));
+        assertEquals(JsonMetadata.empty(), JsonMetadata.ofJson("{}"));
+    }
+
+    @Test
+    void textIsOnlyDecodedWhenAsked() {
+        JsonMetadata invalid = JsonMetadata.ofJson("{not json");
+
+        // Wrapping, comparing, hashing and encoding never parse the document
+        assertEquals("{not json", invalid.encode());
+        assertEquals(invalid, JsonMetadata.ofJson("{not json"));
+        invalid.hashCode();
+
+        assertThrows(DecodeException.class, invalid::toJsonObject);
+    }
+
+    @Test
+    void decodedObjectsBelongToTheCaller() {
+        JsonMetadata metadata = JsonMetadata.ofJson(DOCUMENT);
+
+        JsonObject decoded = metadata.toJsonObject();
+        decoded.getJsonObject("location").put("rack", 9);
+
+        assertNotSame(decoded, metadata.toJsonObject());
+        assertEquals(3, metadata.toJsonObject().getJsonObject("location").getInteger("rack"));
+    }
+
+    @Test
+    void valueIsASnapshotOfTheObject() {
+        JsonObject object = new JsonObject().put("firmware", "1.4.2");
+        JsonMetadata metadata = JsonMetadata.of(object);
+
+        object.put("firmware", "2.0.0");
+
+        assertEquals("1.4.2", metadata.toJsonObject().getString("firmware"));
+    }
+
+    @Test
+    void serializationKeepsEquality() throws Exception {
+        JsonMetadata metadata = JsonMetadata.ofJson(DOCUMENT);
+        metadata.hashCode();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(metadata);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            Object copy = in.readObject();
+            assertEquals(metadata, copy);
+            assertEquals(metadata.hashCode(), copy.hashCode());
+        }
+    }
+
+    @Test
+    void hibernateTypeKeepsTheLoadedInstanceAsSnapshot() {
+        JsonMetadataType type = new JsonMetadataType();
+        JsonMetadata metadata = JsonMetadata.ofJson(DOCUMENT);
+
+        assertSame(metadata, type.deepCopy(metadata));
+        assertTrue(type.equals(metadata, JsonMetadata.ofJson(DOCUMENT)));
+        assertTrue(type.equals(null, null));
+    }
+}